@@ -0,0 +1,24 @@
+package com.bentork.ev_system.config;
+
+/**
+ * The caller of the current request, resolved from the SecurityContext by
+ * AuthenticatedUserArgumentResolver. Declare it as a controller method
+ * parameter instead of parsing the Authorization header by hand. id is the
+ * users.id for USER and the admins.id for ADMIN.
+ */
+public record AuthenticatedUser(Long id, String email, String role) {
+
+    public static final String ADMIN = "ADMIN";
+    public static final String USER = "USER";
+
+    public boolean isAdmin() {
+        return ADMIN.equals(role);
+    }
+
+    /**
+     * True for the user themselves and for admins.
+     */
+    public boolean canAccessUser(Long userId) {
+        return isAdmin() || (userId != null && userId.equals(id));
+    }
+}
@@ -0,0 +1,113 @@
+package com.bentork.ev_system.config;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.bentork.ev_system.repository.AdminRepository;
+import com.bentork.ev_system.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Injects the AuthenticatedUser of the request into controller methods.
+ *
+ * Email and role come from the Authentication that JwtAuthenticationFilter
+ * already put in the SecurityContext; the account id is looked up once per
+ * email and cached (bounded, expiring after ttl-ms). Requests without an
+ * authenticated caller get 401.
+ */
+@Slf4j
+@Component
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdminRepository adminRepository;
+
+    @Value("${app.jwt.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${app.jwt.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public AuthenticatedUser resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
+        }
+
+        String email = authentication.getName();
+        String role = roleOf(authentication);
+        String key = role + ":" + email;
+
+        long now = System.currentTimeMillis();
+        Entry entry = users.get(key);
+        if (entry != null && entry.validUntil > now) {
+            return entry.user;
+        }
+
+        Optional<Long> id = AuthenticatedUser.ADMIN.equals(role)
+                ? adminRepository.findIdByEmail(email)
+                : userRepository.findIdByEmail(email);
+        if (id.isEmpty()) {
+            log.warn("Authenticated account not found: email={}, role={}", email, role);
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Account not found");
+        }
+
+        AuthenticatedUser user = new AuthenticatedUser(id.get(), email, role);
+        if (users.size() >= maxEntries) {
+            users.values().removeIf(e -> e.validUntil <= now);
+        }
+        if (users.size() < maxEntries) {
+            users.put(key, new Entry(user, now + ttlMs));
+        }
+        return user;
+    }
+
+    /**
+     * Forget the cached id of an account (deleted, or its email reused).
+     */
+    public void evict(String email) {
+        users.values().removeIf(entry -> entry.user.email().equals(email));
+    }
+
+    private static String roleOf(Authentication authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (AuthenticatedUser.ADMIN.equals(authority.getAuthority())) {
+                return AuthenticatedUser.ADMIN;
+            }
+        }
+        return AuthenticatedUser.USER;
+    }
+
+    private record Entry(AuthenticatedUser user, long validUntil) {
+    }
+}
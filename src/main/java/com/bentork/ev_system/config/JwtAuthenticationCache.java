@@ -0,0 +1,221 @@
+package com.bentork.ev_system.config;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import com.bentork.ev_system.model.Admin;
+import com.bentork.ev_system.repository.AdminRepository;
+import com.bentork.ev_system.repository.UserRepository;
+import com.bentork.ev_system.service.CustomUserDetailsService;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Verified bearer tokens and the principal they stand for.
+ *
+ * A token is parsed once (signature, expiry, subject and the authorities
+ * claim) and the result is kept for up to ttl-ms, never past the token's own
+ * expiry. Only tokens without an authorities claim (e.g. Google login) fall
+ * back to loading the account. The cache is bounded; when it is full,
+ * expired entries are purged and new tokens are verified without caching.
+ *
+ * On a cache miss the account is also checked, at most once per ttl-ms per
+ * account: tokens of a deleted account, or issued before the account's
+ * persisted passwordChangedAt, are rejected. A revocation on another node or
+ * before a restart therefore takes effect within ttl-ms. invalidateUser
+ * applies it on this node at once: it evicts the tokens of an account and
+ * rejects every token issued to it before that moment.
+ */
+@Slf4j
+@Component
+public class JwtAuthenticationCache {
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private AuthenticatedUserArgumentResolver authenticatedUserArgumentResolver;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AdminRepository adminRepo;
+
+    @Value("${app.jwt.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${app.jwt.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> tokens = new ConcurrentHashMap<>();
+
+    // username -> time (ms) before which its tokens are no longer accepted
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    // username -> what the database said about the account, and when
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Return the principal of a valid token, or null when the token is
+     * invalid, expired or revoked.
+     */
+    public UserDetails resolve(String token) {
+        long now = System.currentTimeMillis();
+        Entry entry = tokens.get(token);
+        if (entry != null) {
+            if (entry.validUntil > now) {
+                return entry.principal;
+            }
+            tokens.remove(token, entry);
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected JWT: {}", e.getMessage());
+            return null;
+        }
+
+        String username = claims.getSubject();
+        if (username == null || isRevoked(username, claims.getIssuedAt())
+                || !isAccountValid(username, claims.getIssuedAt(), now)) {
+            return null;
+        }
+
+        UserDetails principal;
+        List<String> authorities = jwtUtil.extractAuthorities(claims);
+        if (authorities.isEmpty()) {
+            try {
+                principal = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                log.warn("JWT subject no longer exists: {}", username);
+                return null;
+            }
+        } else {
+            principal = new User(username, "", authorities.stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toList()));
+        }
+
+        long validUntil = Math.min(now + ttlMs, claims.getExpiration().getTime());
+        put(token, new Entry(principal, validUntil));
+        return principal;
+    }
+
+    /**
+     * Drop the cached tokens of an account and reject tokens issued to it
+     * until now. Call after deleting the account or resetting its password.
+     */
+    public void invalidateUser(String username) {
+        if (username == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        revokedBefore.put(username, now);
+        accounts.remove(username);
+        tokens.values().removeIf(entry -> username.equals(entry.principal.getUsername()));
+        authenticatedUserArgumentResolver.evict(username);
+
+        // Revocations only matter while tokens issued before them can still be valid
+        long horizon = now - jwtUtil.getExpirationMs();
+        revokedBefore.values().removeIf(time -> time < horizon);
+        log.info("JWT cache invalidated for {}", username);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    private boolean isRevoked(String username, Date issuedAt) {
+        Long revokedAt = revokedBefore.get(username);
+        if (revokedAt == null) {
+            return false;
+        }
+        // iat has second precision; tokens from the same second are kept
+        return issuedAt == null || issuedAt.getTime() < revokedAt / 1000 * 1000;
+    }
+
+    private boolean isAccountValid(String username, Date issuedAt, long now) {
+        Account account = accounts.get(username);
+        if (account == null || account.checkedAt + ttlMs <= now) {
+            account = loadAccount(username, now);
+            if (accounts.size() >= maxEntries) {
+                accounts.values().removeIf(a -> a.checkedAt + ttlMs <= now);
+            }
+            if (accounts.size() < maxEntries) {
+                accounts.put(username, account);
+            }
+        }
+        if (!account.exists) {
+            log.warn("JWT subject no longer exists: {}", username);
+            return false;
+        }
+        // iat has second precision; tokens from the same second are kept
+        return account.passwordChangedAt == 0
+                || (issuedAt != null && issuedAt.getTime() >= account.passwordChangedAt / 1000 * 1000);
+    }
+
+    private Account loadAccount(String username, long now) {
+        Optional<com.bentork.ev_system.model.User> user = userRepo.findByEmailOrMobile(username, username);
+        if (user.isPresent()) {
+            return new Account(true, toMillis(user.get().getPasswordChangedAt()), now);
+        }
+        Optional<Admin> admin = adminRepo.findByEmailOrMobile(username, username);
+        if (admin.isPresent()) {
+            return new Account(true, toMillis(admin.get().getPasswordChangedAt()), now);
+        }
+        return new Account(false, 0, now);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+
+    private void put(String token, Entry entry) {
+        if (tokens.size() >= maxEntries) {
+            purgeExpired();
+            if (tokens.size() >= maxEntries) {
+                return;
+            }
+        }
+        tokens.put(token, entry);
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = tokens.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().validUntil <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    private record Entry(UserDetails principal, long validUntil) {
+    }
+
+    private record Account(boolean exists, long passwordChangedAt, long checkedAt) {
+    }
+}
@@ -31,13 +31,23 @@ public class JwtUtil {
 
     private Key key;
 
+    // Immutable and thread-safe, so built once instead of per call
+    private JwtParser parser;
+
     @PostConstruct
     public void init() {
         log.info("Initializing JWT utility with expiration time: {} ms", expirationMs);
         this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
         log.debug("JWT signing key initialized successfully");
     }
 
+    public long getExpirationMs() {
+        return expirationMs;
+    }
+
     public String generateToken(UserDetails userDetails) {
         log.debug("Generating JWT token for user: {}", userDetails.getUsername());
 
@@ -61,9 +71,7 @@ public class JwtUtil {
 
     public String extractUsername(String token) {
         try {
-            String username = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
+            String username = parser
                     .parseClaimsJws(token)
                     .getBody()
                     .getSubject();
@@ -131,13 +139,31 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verify the signature and expiry and return the claims in one parse.
+     * Throws JwtException (ExpiredJwtException, SignatureException, ...) for
+     * tokens that are not valid.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    // Authorities embedded by generateToken; empty when the claim is missing
+    public List<String> extractAuthorities(Claims claims) {
+        Object value = claims.get("authorities");
+        if (!(value instanceof List<?> list)) {
+            return List.of();
+        }
+        return list.stream()
+                .map(String::valueOf)
+                .collect(Collectors.toList());
+    }
+
     // Extract all claims from token using consistent key
     private Claims extractAllClaims(String token) {
         try {
             log.trace("Parsing JWT token claims");
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
+            return parser
                     .parseClaimsJws(token)
                     .getBody();
         } catch (JwtException e) {
@@ -72,6 +72,7 @@ public class SecurityConfig {
                                 "/login/**",
                                 "/api/user/google-login-success",
                                 "/api/user/byemail/**",
+                                "/api/razorpay/webhook",
                                 "/error",
                                 "/favicon.ico")
                         .permitAll()
@@ -81,7 +82,9 @@ public class SecurityConfig {
                                 "/api/chargers/**",
                                 "/api/plans/**",
                                 "/api/emergency-contacts/**",
-                                "/api/revenue/**"
+                                "/api/revenue/**",
+                                "/api/admin/export/**",
+                                "/api/admin/notifications/**"
                         ).hasAuthority("ADMIN")
 
                         .requestMatchers("/api/user-plan-selection/**").permitAll()
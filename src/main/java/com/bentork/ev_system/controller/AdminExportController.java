@@ -0,0 +1,114 @@
+package com.bentork.ev_system.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.bentork.ev_system.service.ExportService;
+import com.bentork.ev_system.service.ExportService.Format;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Full-range downloads for finance: sessions, revenue and wallet
+ * transactions created in [from, to] (ISO dates, inclusive), as CSV or
+ * NDJSON, optionally gzipped. Rows are streamed straight to the response.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/export")
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/sessions")
+    public ResponseEntity<StreamingResponseBody> exportSessions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return export("sessions", from, to, format, gzip, (f, out) -> exportService
+                .exportSessions(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), f, out));
+    }
+
+    @GetMapping("/revenue")
+    public ResponseEntity<StreamingResponseBody> exportRevenue(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return export("revenue", from, to, format, gzip, (f, out) -> exportService
+                .exportRevenue(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), f, out));
+    }
+
+    @GetMapping("/wallet-transactions")
+    public ResponseEntity<StreamingResponseBody> exportWalletTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return export("wallet-transactions", from, to, format, gzip, (f, out) -> exportService
+                .exportWalletTransactions(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), f, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, LocalDate from, LocalDate to,
+            String format, boolean gzip, ExportCall call) {
+        log.info("GET /api/admin/export/{} - Request received, from={}, to={}, format={}, gzip={}",
+                name, from, to, format, gzip);
+
+        Format parsed;
+        try {
+            parsed = Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            log.warn("GET /api/admin/export/{} - Bad request: {}", name, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        if (to.isBefore(from)) {
+            log.warn("GET /api/admin/export/{} - Bad request: to before from", name);
+            return ResponseEntity.badRequest().build();
+        }
+
+        String extension = parsed == Format.CSV ? "csv" : "ndjson";
+        String fileName = name + "-" + from + "-" + to + "." + extension + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : parsed == Format.CSV
+                        ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                        : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                call.write(parsed, gzipOut);
+                gzipOut.finish();
+            } else {
+                call.write(parsed, out);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface ExportCall {
+        long write(Format format, OutputStream out) throws IOException;
+    }
+}
@@ -1,5 +1,6 @@
 package com.bentork.ev_system.controller;
 
+import com.bentork.ev_system.config.AuthenticatedUser;
 import com.bentork.ev_system.dto.request.AdminNotificationDTO;
 import com.bentork.ev_system.service.AdminNotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,15 +15,41 @@ public class AdminNotificationController {
     @Autowired
     private AdminNotificationService notificationService;
 
-    // Get all notifications for a given admin
+    // Notifications of the calling admin
+    @GetMapping
+    public List<AdminNotificationDTO> getMyNotifications(AuthenticatedUser caller,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + AdminNotificationService.DEFAULT_PAGE_SIZE) int limit) {
+        return notificationService.getNotificationsByAdminId(caller.id(), beforeId, limit);
+    }
+
+    // Get notifications for a given admin, newest first; pass the last id as beforeId for the next page
     @GetMapping("/{adminId}")
-    public List<AdminNotificationDTO> getNotifications(@PathVariable Long adminId) {
-        return notificationService.getNotificationsByAdminId(adminId);
+    public List<AdminNotificationDTO> getNotifications(@PathVariable Long adminId,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + AdminNotificationService.DEFAULT_PAGE_SIZE) int limit) {
+        return notificationService.getNotificationsByAdminId(adminId, beforeId, limit);
+    }
+
+    @GetMapping("/{adminId}/unread-count")
+    public long getUnreadCount(@PathVariable Long adminId) {
+        return notificationService.getUnreadCount(adminId);
+    }
+
+    // Mark a notification (and everything older) as read
+    @PutMapping("/{adminId}/mark-read/{id}")
+    public void markNotificationAsRead(@PathVariable Long adminId, @PathVariable Long id) {
+        notificationService.markAsRead(adminId, id);
+    }
+
+    @PutMapping("/{adminId}/mark-all-read")
+    public void markAllAsRead(@PathVariable Long adminId) {
+        notificationService.markAllAsRead(adminId);
     }
 
-    // Mark a notification as read
+    // Kept for existing clients: marks read for the calling admin
     @PutMapping("/mark-read/{id}")
-    public void markNotificationAsRead(@PathVariable Long id) {
-        notificationService.markAsRead(id);
+    public void markNotificationAsRead(@PathVariable Long id, AuthenticatedUser caller) {
+        notificationService.markAsRead(caller.id(), id);
     }
 }
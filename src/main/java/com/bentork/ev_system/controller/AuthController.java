@@ -1,6 +1,7 @@
 package com.bentork.ev_system.controller;
 
 import java.nio.file.attribute.UserPrincipalNotFoundException;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +25,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bentork.ev_system.config.JwtAuthenticationCache;
 import com.bentork.ev_system.config.JwtUtil;
 import com.bentork.ev_system.dto.request.AdminLoginRequest;
 import com.bentork.ev_system.dto.request.AdminSignupRequest;
@@ -36,8 +38,10 @@ import com.bentork.ev_system.model.User;
 import com.bentork.ev_system.repository.AdminRepository;
 import com.bentork.ev_system.repository.UserRepository;
 import com.bentork.ev_system.service.AdminNotificationService;
+import com.bentork.ev_system.service.NotificationDispatcher;
 import com.bentork.ev_system.service.OtpDeliveryService;
 import com.bentork.ev_system.service.OtpService;
+import com.bentork.ev_system.service.WalletTransactionService;
 
 @RestController
 @RequestMapping("/api")
@@ -59,6 +63,10 @@ public class AuthController {
     private OtpService otpService;
     @Autowired
     private AdminNotificationService adminNotificationService;
+    @Autowired
+    private JwtAuthenticationCache jwtAuthenticationCache;
+    @Autowired
+    private WalletTransactionService walletTransactionService;
 
     @PostMapping("/user/signup")
     public ResponseEntity<?> registerUser(@RequestBody UserSignupRequest request) {
@@ -99,6 +107,8 @@ public class AuthController {
             @PathVariable String email) throws UserPrincipalNotFoundException {
         User user = userRepo.findByEmail(email)
                 .orElseThrow(() -> new UserPrincipalNotFoundException("User with email '" + email + "' not found."));
+        // The column is a lagging read model; the ledger has the current balance
+        user.setWalletBalance(walletTransactionService.getBalance(user.getId()));
         return ResponseEntity.ok(user);
     }
 
@@ -106,6 +116,7 @@ public class AuthController {
     @DeleteMapping("/user/delete/{id}")
     public ResponseEntity<?> deleteUserById(@RequestHeader("Authorization") String authHeader, @PathVariable Long id) {
         try {
+            userRepo.findById(id).ifPresent(user -> jwtAuthenticationCache.invalidateUser(user.getEmail()));
             userRepo.deleteById(id);
             return ResponseEntity.ok("User Deleted Successfully");
         } catch (DataAccessException e) {
@@ -192,8 +203,10 @@ public class AuthController {
 
         User user = userOpt.get();
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPasswordChangedAt(LocalDateTime.now());
         userRepo.save(user);
         otpService.clearOtp(email);
+        jwtAuthenticationCache.invalidateUser(user.getEmail());
 
         return ResponseEntity.ok("Password reset successful.");
     }
@@ -224,8 +237,10 @@ public class AuthController {
 
         Admin admin = adminOpt.get();
         admin.setPassword(passwordEncoder.encode(newPassword));
+        admin.setPasswordChangedAt(LocalDateTime.now());
         adminRepo.save(admin);
         otpService.clearOtp(email);
+        jwtAuthenticationCache.invalidateUser(admin.getEmail());
 
         return ResponseEntity.ok("Password reset successful.");
     }
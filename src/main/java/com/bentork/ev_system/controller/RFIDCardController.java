@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bentork.ev_system.config.AuthenticatedUser;
 import com.bentork.ev_system.dto.request.RFIDCardRequest;
 import com.bentork.ev_system.model.RFIDCard;
 import com.bentork.ev_system.service.RFIDCardService;
@@ -30,7 +31,16 @@ public class RFIDCardController {
 
     // Register card
     @PostMapping("/register")
-    public ResponseEntity<RFIDCard> register(@RequestBody RFIDCardRequest req) {
+    public ResponseEntity<RFIDCard> register(@RequestBody RFIDCardRequest req, AuthenticatedUser caller) {
+        // Users register cards for themselves; admins may name any user
+        if (req.getUserId() == null && !caller.isAdmin()) {
+            req.setUserId(caller.id());
+        }
+        if (!caller.canAccessUser(req.getUserId())) {
+            log.warn("POST /api/rfid-card/register - Forbidden: caller={}, userId={}", caller.email(), req.getUserId());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
         log.info("POST /api/rfid-card/register - Registering RFID card, cardNumber={}, userId={}",
                 req.getCardNumber(), req.getUserId());
 
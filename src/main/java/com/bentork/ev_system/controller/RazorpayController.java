@@ -3,17 +3,32 @@ package com.bentork.ev_system.controller;
 
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import com.bentork.ev_system.config.AuthenticatedUser;
+import com.bentork.ev_system.model.PaymentTopup;
+import com.bentork.ev_system.service.PaymentTopupService;
+import com.bentork.ev_system.service.PaymentWebhookService;
 import com.bentork.ev_system.service.RazorpayService;
 import com.bentork.ev_system.service.WalletTransactionService;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @RestController
 @RequestMapping("/api/razorpay")
 public class RazorpayController {
@@ -24,11 +39,22 @@ public class RazorpayController {
     @Autowired
     private WalletTransactionService walletService;
 
+    @Autowired
+    private PaymentTopupService topupService;
+
+    @Autowired
+    private PaymentWebhookService webhookService;
+
+    @Value("${payment.verify.response-timeout-ms:15000}")
+    private long responseTimeoutMs;
+
     @PostMapping("/create-order")
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload) {
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload, AuthenticatedUser caller) {
         try {
             BigDecimal amount = new BigDecimal(payload.get("amount").toString());
-            String order = razorpayService.createOrder(amount);
+            // Recorded in the order notes so webhooks and reconciliation know whom to credit
+            Long userId = caller.isAdmin() ? null : caller.id();
+            String order = razorpayService.createOrder(amount, userId);
             return ResponseEntity.ok(order);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error: " + e.getMessage());
@@ -36,43 +62,98 @@ public class RazorpayController {
     }
 
     @PostMapping("/verify-payment")
-    public ResponseEntity<?> verifyPayment(@RequestBody Map<String, String> payload) {
+    public DeferredResult<ResponseEntity<?>> verifyPayment(@RequestBody Map<String, String> payload,
+            AuthenticatedUser caller) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(responseTimeoutMs);
         try {
             String orderId = payload.get("order_id");
             String paymentId = payload.get("payment_id");
             String signature = payload.get("signature");
             Long userId = Long.parseLong(payload.get("user_id"));
 
+            if (!caller.canAccessUser(userId)) {
+                result.setResult(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+                return result;
+            }
+
             boolean valid = razorpayService.verifySignature(orderId, paymentId, signature);
 
             if (!valid) {
-                return ResponseEntity.badRequest().body("Invalid signature.");
+                result.setResult(ResponseEntity.badRequest().body("Invalid signature."));
+                return result;
             }
 
-            // 1️⃣ Fetch amount from Razorpay (in rupees)
-            com.razorpay.Order razorOrder = razorpayService.fetchOrder(orderId);
-            BigDecimal amount = new BigDecimal(razorOrder.get("amount").toString())
-                    .divide(BigDecimal.valueOf(100));
-
-            // 2️⃣ CREDIT WALLET (GST + PST APPLIED HERE)
-            walletService.credit(
-                    userId,
-                    null,
-                    amount,
-                    "TOPUP" // 🔴 MUST BE "TOPUP"
-            );
+            // Amount lookup and wallet credit (GST + PST applied) run on the
+            // top-up workers, once per order
+            CompletableFuture<PaymentTopup> topup = topupService.submit(orderId, paymentId, userId);
+
+            // Still running when the timeout hits: the client polls /topups/{orderId}
+            result.onTimeout(() -> result.setResult(pending(orderId)));
+            topup.whenComplete((completed, e) -> result.setResult(e != null
+                    ? ResponseEntity.status(500).body("Error verifying payment: " + e.getMessage())
+                    : toResponse(completed, orderId)));
+
+        } catch (IllegalStateException e) {
+            result.setResult(ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Too many payments in progress, please retry."));
+        } catch (Exception e) {
+            result.setResult(ResponseEntity.status(500)
+                    .body("Error verifying payment: " + e.getMessage()));
+        }
+        return result;
+    }
 
-            // 3️⃣ Fetch UPDATED wallet balance (NET)
-            BigDecimal walletBalance = walletService.getBalance(userId);
+    // Gateway-to-server notification; stored and credited asynchronously
+    @PostMapping("/webhook")
+    public ResponseEntity<?> webhook(@RequestBody String body,
+            @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature,
+            @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId) {
+        if (!razorpayService.verifyWebhookSignature(body, signature)) {
+            log.warn("Rejected Razorpay webhook with invalid signature");
+            return ResponseEntity.badRequest().body("Invalid signature.");
+        }
+        try {
+            webhookService.ingest(body, eventId);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            // Non-2xx makes the gateway redeliver
+            log.error("Failed to store Razorpay webhook: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body("Error: " + e.getMessage());
+        }
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "message", "Payment successful and wallet updated.",
-                    "walletAmount", walletBalance));
+    // Outcome of a verification that returned 202
+    @GetMapping("/topups/{orderId}")
+    public ResponseEntity<?> getTopup(@PathVariable String orderId, AuthenticatedUser caller) {
+        return topupService.find(orderId)
+                .filter(topup -> caller.canAccessUser(topup.getUserId()))
+                .<ResponseEntity<?>>map(topup -> toResponse(topup, orderId))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .body("Error verifying payment: " + e.getMessage());
+    private ResponseEntity<?> toResponse(PaymentTopup topup, String orderId) {
+        if (topup == null || PaymentTopup.PENDING.equals(topup.getStatus())) {
+            return pending(orderId);
+        }
+        if (PaymentTopup.FAILED.equals(topup.getStatus())) {
+            return ResponseEntity.status(500).body("Error verifying payment: " + topup.getError());
         }
+
+        // Fetch UPDATED wallet balance (NET)
+        BigDecimal walletBalance = walletService.getBalance(topup.getUserId());
+
+        return ResponseEntity.ok(Map.of(
+                "message", "Payment successful and wallet updated.",
+                "walletAmount", walletBalance));
+    }
+
+    private static ResponseEntity<?> pending(String orderId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "message", "Payment is being processed.",
+                "status", PaymentTopup.PENDING,
+                "orderId", orderId));
     }
 
 }
@@ -2,15 +2,19 @@ package com.bentork.ev_system.controller;
 
 import com.bentork.ev_system.config.JwtUtil;
 import com.bentork.ev_system.dto.request.RevenueDTO;
+import com.bentork.ev_system.dto.request.RevenueRollupDTO;
 import com.bentork.ev_system.model.Admin;
 import com.bentork.ev_system.repository.AdminRepository;
+import com.bentork.ev_system.service.RevenueRollupService;
 import com.bentork.ev_system.service.RevenueService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Slf4j
@@ -19,11 +23,14 @@ import java.util.List;
 public class RevenueController {
 
     private final RevenueService revenueService;
+    private final RevenueRollupService revenueRollupService;
     private final JwtUtil jwtUtil;
     private final AdminRepository adminRepository;
 
-    public RevenueController(RevenueService revenueService, JwtUtil jwtUtil, AdminRepository adminRepository) {
+    public RevenueController(RevenueService revenueService, RevenueRollupService revenueRollupService,
+            JwtUtil jwtUtil, AdminRepository adminRepository) {
         this.revenueService = revenueService;
+        this.revenueRollupService = revenueRollupService;
         this.jwtUtil = jwtUtil;
         this.adminRepository = adminRepository;
     }
@@ -188,4 +195,81 @@ public class RevenueController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Revenue per hour/day/week/month over [from, to] (ISO dates, inclusive),
+     * optionally for one station and/or payment status.
+     */
+    @GetMapping("/rollup")
+    public ResponseEntity<List<RevenueRollupDTO>> getRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam(required = false) Long stationId,
+            @RequestParam(required = false) String status,
+            @RequestHeader("Authorization") String auth) {
+        log.info("GET /api/revenue/rollup - Request received, from={}, to={}, period={}, stationId={}, status={}",
+                from, to, period, stationId, status);
+
+        try {
+            ensureAdmin(auth);
+            List<RevenueRollupDTO> series = revenueRollupService.getSeries(from, to, period, stationId, status);
+            log.info("GET /api/revenue/rollup - Success, returned {} periods", series.size());
+            return ResponseEntity.ok(series);
+        } catch (IllegalArgumentException e) {
+            log.warn("GET /api/revenue/rollup - Bad request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            log.error("GET /api/revenue/rollup - Authorization failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            log.error("GET /api/revenue/rollup - Failed: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Revenue per station over [from, to] (ISO dates, inclusive), highest first.
+     */
+    @GetMapping("/rollup/stations")
+    public ResponseEntity<List<RevenueRollupDTO>> getRollupByStation(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestHeader("Authorization") String auth) {
+        log.info("GET /api/revenue/rollup/stations - Request received, from={}, to={}, status={}",
+                from, to, status);
+
+        try {
+            ensureAdmin(auth);
+            List<RevenueRollupDTO> stations = revenueRollupService.getByStation(from, to, status);
+            log.info("GET /api/revenue/rollup/stations - Success, returned {} stations", stations.size());
+            return ResponseEntity.ok(stations);
+        } catch (RuntimeException e) {
+            log.error("GET /api/revenue/rollup/stations - Authorization failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            log.error("GET /api/revenue/rollup/stations - Failed: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Recompute the rollup from the revenue table (e.g. after manual data fixes)
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<String> rebuildRollup(@RequestHeader("Authorization") String auth) {
+        log.info("POST /api/revenue/rollup/rebuild - Request received");
+
+        try {
+            ensureAdmin(auth);
+            revenueRollupService.rebuild();
+            log.info("POST /api/revenue/rollup/rebuild - Success");
+            return ResponseEntity.ok("Revenue rollup rebuilt");
+        } catch (RuntimeException e) {
+            log.error("POST /api/revenue/rollup/rebuild - Authorization failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            log.error("POST /api/revenue/rollup/rebuild - Failed: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
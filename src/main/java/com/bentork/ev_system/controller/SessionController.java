@@ -1,22 +1,31 @@
 package com.bentork.ev_system.controller;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.bentork.ev_system.config.JwtUtil;
+import com.bentork.ev_system.config.AuthenticatedUser;
+import com.bentork.ev_system.dto.request.MeterSampleDTO;
 import com.bentork.ev_system.dto.request.SessionDTO;
+import com.bentork.ev_system.dto.request.SessionRecordPageDTO;
 import com.bentork.ev_system.model.Charger;
 import com.bentork.ev_system.model.Plan;
 import com.bentork.ev_system.model.Receipt;
@@ -25,8 +34,10 @@ import com.bentork.ev_system.model.User;
 import com.bentork.ev_system.repository.ChargerRepository;
 import com.bentork.ev_system.repository.PlanRepository;
 import com.bentork.ev_system.repository.UserRepository;
+import com.bentork.ev_system.service.MeterSampleService;
 import com.bentork.ev_system.service.ReceiptService;
 import com.bentork.ev_system.service.SessionService;
+import com.bentork.ev_system.service.SessionTelemetryHub;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -42,13 +53,16 @@ public class SessionController {
 	private ReceiptService receiptService;
 
 	@Autowired
-	private PlanRepository planRepository;
+	private MeterSampleService meterSampleService;
 
 	@Autowired
-	private ChargerRepository chargerRepository;
+	private SessionTelemetryHub sessionTelemetryHub;
+
+	@Autowired
+	private PlanRepository planRepository;
 
 	@Autowired
-	private JwtUtil jwtUtil;
+	private ChargerRepository chargerRepository;
 
 	@Autowired
 	private UserRepository userRepository;
@@ -61,16 +75,14 @@ public class SessionController {
 	@PostMapping("/start")
 	public ResponseEntity<Map<String, Object>> startSession(
 			@RequestBody SessionDTO request,
-			@RequestHeader("Authorization") String authHeader) {
+			AuthenticatedUser caller) {
 
 		log.info("POST /api/sessions/start - Starting session, chargerId={}, planId={}, selectedKwh={}",
 				request.getChargerId(), request.getPlanId(), request.getSelectedKwh());
 
 		try {
-			String token = authHeader.substring(7);
-			String email = jwtUtil.extractUsername(token);
-			User user = userRepository.findByEmail(email)
-					.orElseThrow(() -> new RuntimeException("User not found"));
+			// Reference only: the receipt just needs the foreign key
+			User user = userRepository.getReferenceById(caller.id());
 
 			Charger charger = chargerRepository.findById(request.getChargerId())
 					.orElseThrow(() -> new RuntimeException("Charger not found"));
@@ -86,7 +98,7 @@ public class SessionController {
 			Session session = paidReceipt.getSession();
 
 			log.info("POST /api/sessions/start - Success, sessionId={}, receiptId={}, userId={}, amountDebited={}",
-					session.getId(), paidReceipt.getId(), user.getId(), paidReceipt.getAmount());
+					session.getId(), paidReceipt.getId(), caller.id(), paidReceipt.getAmount());
 
 			return ResponseEntity.ok(Map.of(
 					"receiptId", paidReceipt.getId(),
@@ -109,17 +121,12 @@ public class SessionController {
 	@PostMapping("/stop")
 	public ResponseEntity<Map<String, Object>> stopSession(
 			@RequestBody SessionDTO request,
-			@RequestHeader("Authorization") String authHeader) {
+			AuthenticatedUser caller) {
 
 		log.info("POST /api/sessions/stop - Stopping session, sessionId={}", request.getSessionId());
 
 		try {
-			String token = authHeader.substring(7);
-			String email = jwtUtil.extractUsername(token);
-			User user = userRepository.findByEmail(email)
-					.orElseThrow(() -> new RuntimeException("User not found"));
-
-			Map<String, Object> result = sessionService.stopSession(user.getId(), request);
+			Map<String, Object> result = sessionService.stopSession(caller.id(), request);
 
 			log.info("POST /api/sessions/stop - Success, sessionId={}, energyUsed={}, finalCost={}",
 					request.getSessionId(), result.get("energyUsed"), result.get("finalCost"));
@@ -216,8 +223,8 @@ public class SessionController {
 				return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 			}
 
-			// No null check needed because 'double' is primitive
-			double energy = session.getEnergyKwh();
+			// Live value while charging; the DB row is only flushed periodically
+			double energy = sessionTelemetryHub.snapshotOf(session).getEnergyKwh();
 
 			log.info("GET /api/sessions/{}/energy - Success, energy={} kWh", sessionId, energy);
 			return ResponseEntity.ok(energy);
@@ -228,6 +235,37 @@ public class SessionController {
 		}
 	}
 
+	/**
+	 * Get the charge curve of a session (energy, power, current, voltage, SoC
+	 * samples), optionally limited to [from, to] (ISO-8601 instants).
+	 */
+	@GetMapping("/{sessionId}/curve")
+	public ResponseEntity<List<MeterSampleDTO>> getSessionCurve(
+			@PathVariable Long sessionId,
+			@RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to,
+			@RequestHeader("Authorization") String authHeader) {
+
+		log.info("GET /api/sessions/{}/curve - Request received, from={}, to={}", sessionId, from, to);
+
+		try {
+			Session session = sessionService.getSessionById(sessionId);
+			if (session == null) {
+				log.warn("GET /api/sessions/{}/curve - Session not found", sessionId);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+			}
+
+			List<MeterSampleDTO> curve = meterSampleService.getCurve(sessionId, from, to);
+
+			log.info("GET /api/sessions/{}/curve - Success, samples={}", sessionId, curve.size());
+			return ResponseEntity.ok(curve);
+
+		} catch (Exception e) {
+			log.error("GET /api/sessions/{}/curve - Failed: {}", sessionId, e.getMessage(), e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+		}
+	}
+
 	/**
 	 * Get specific session status by Session ID.
 	 */
@@ -245,7 +283,7 @@ public class SessionController {
 				return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 			}
 
-			String status = session.getStatus();
+			String status = sessionTelemetryHub.snapshotOf(session).getStatus();
 
 			log.info("GET /api/sessions/{}/status - Success, status={}", sessionId, status);
 			return ResponseEntity.ok(status);
@@ -255,6 +293,42 @@ public class SessionController {
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error fetching status");
 		}
 	}
+
+	/**
+	 * Live telemetry (energy, cost, status) of a session as server-sent
+	 * events, instead of polling /energy and /status. Updates are coalesced
+	 * and pushed at most once per telemetry.push-interval-ms; the stream
+	 * closes once the session is completed or failed.
+	 */
+	@GetMapping(value = "/{sessionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamSessionTelemetry(
+			@PathVariable Long sessionId,
+			AuthenticatedUser caller) {
+
+		log.info("GET /api/sessions/{}/stream - Request received", sessionId);
+
+		try {
+			Session session = sessionService.getSessionById(sessionId);
+			if (session == null) {
+				log.warn("GET /api/sessions/{}/stream - Session not found", sessionId);
+				return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+			}
+
+			if (!caller.canAccessUser(session.getUser() != null ? session.getUser().getId() : null)) {
+				log.warn("GET /api/sessions/{}/stream - Forbidden for {}", sessionId, caller.email());
+				return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+			}
+
+			SseEmitter emitter = sessionTelemetryHub.subscribe(session);
+
+			log.info("GET /api/sessions/{}/stream - Subscribed, status={}", sessionId, session.getStatus());
+			return ResponseEntity.ok(emitter);
+
+		} catch (Exception e) {
+			log.error("GET /api/sessions/{}/stream - Failed: {}", sessionId, e.getMessage(), e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+		}
+	}
     
 	//ERROR TODAY
     @GetMapping("/error/today")
@@ -272,11 +346,17 @@ public class SessionController {
         }
     }
 
-	// list of session
+	/**
+	 * List of all sessions as full entities.
+	 *
+	 * @deprecated unbounded and serializes nested user/charger/station
+	 *             entities; use GET /api/sessions/records instead.
+	 */
+	@Deprecated
     @GetMapping("/all/records")
     public ResponseEntity<List<Session>> getAllSessionRecords(@RequestHeader("Authorization") String authHeader) {
         try {
-            log.info("Calling session service to get all session records");
+            log.warn("GET /api/sessions/all/records is deprecated, use /api/sessions/records");
             List<Session> allRecords = sessionService.getallSessionRecords();
             return ResponseEntity.ok(allRecords);
         } catch (DataAccessException e) {
@@ -287,4 +367,39 @@ public class SessionController {
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+
+	/**
+	 * Session records newest first, one page at a time. Pass the returned
+	 * nextCursor as ?cursor= for the next page. from/to are ISO date-times
+	 * on created_at ([from, to)).
+	 */
+	@PreAuthorize("hasAuthority('ADMIN')")
+	@GetMapping("/records")
+	public ResponseEntity<SessionRecordPageDTO> getSessionRecords(
+			@RequestParam(required = false) String status,
+			@RequestParam(required = false) Long chargerId,
+			@RequestParam(required = false) Long stationId,
+			@RequestParam(required = false) Long userId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "50") int limit,
+			@RequestHeader("Authorization") String authHeader) {
+
+		log.info("GET /api/sessions/records - Request received, status={}, chargerId={}, stationId={}, userId={}, "
+				+ "from={}, to={}, limit={}", status, chargerId, stationId, userId, from, to, limit);
+
+		try {
+			SessionRecordPageDTO page = sessionService.getSessionRecords(status, chargerId, stationId, userId,
+					from, to, cursor, limit);
+			log.info("GET /api/sessions/records - Success, returned {} records", page.getRecords().size());
+			return ResponseEntity.ok(page);
+		} catch (IllegalArgumentException e) {
+			log.warn("GET /api/sessions/records - Bad request: {}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		} catch (Exception e) {
+			log.error("GET /api/sessions/records - Failed: {}", e.getMessage(), e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+		}
+	}
+}
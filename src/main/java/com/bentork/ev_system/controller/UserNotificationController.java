@@ -8,6 +8,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.bentork.ev_system.config.AuthenticatedUser;
 import com.bentork.ev_system.model.UserNotification;
 import com.bentork.ev_system.service.UserNotificationService;
 
@@ -26,9 +27,15 @@ public class UserNotificationController {
 
     // Get all notifications for a user
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<UserNotification>> getUserNotifications(@PathVariable Long userId) {
+    public ResponseEntity<List<UserNotification>> getUserNotifications(@PathVariable Long userId,
+            AuthenticatedUser caller) {
         log.info("GET /api/notifications/user/{} - Request received", userId);
 
+        if (!caller.canAccessUser(userId)) {
+            log.warn("GET /api/notifications/user/{} - Forbidden for {}", userId, caller.email());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
         try {
             List<UserNotification> notifications = service.getUserNotifications(userId);
             log.info("GET /api/notifications/user/{} - Success, returned {} notifications",
@@ -42,9 +49,15 @@ public class UserNotificationController {
 
     // Get only unread notifications
     @GetMapping("/user/{userId}/unread")
-    public ResponseEntity<List<UserNotification>> getUnreadNotifications(@PathVariable Long userId) {
+    public ResponseEntity<List<UserNotification>> getUnreadNotifications(@PathVariable Long userId,
+            AuthenticatedUser caller) {
         log.info("GET /api/notifications/user/{}/unread - Request received", userId);
 
+        if (!caller.canAccessUser(userId)) {
+            log.warn("GET /api/notifications/user/{}/unread - Forbidden for {}", userId, caller.email());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
         try {
             List<UserNotification> notifications = service.getUnreadNotifications(userId);
             log.info("GET /api/notifications/user/{}/unread - Success, returned {} unread notifications",
@@ -60,7 +73,8 @@ public class UserNotificationController {
     @PostMapping("/user/{userId}")
     public ResponseEntity<UserNotification> createNotification(
             @PathVariable Long userId,
-            @RequestBody Map<String, String> payload) {
+            @RequestBody Map<String, String> payload,
+            AuthenticatedUser caller) {
 
         String title = payload.get("title");
         String message = payload.get("message");
@@ -68,6 +82,11 @@ public class UserNotificationController {
 
         log.info("POST /api/notifications/user/{} - Creating notification, type={}", userId, type);
 
+        if (!caller.canAccessUser(userId)) {
+            log.warn("POST /api/notifications/user/{} - Forbidden for {}", userId, caller.email());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
         try {
             UserNotification notification = service.createNotification(userId, title, message, type);
             log.info("POST /api/notifications/user/{} - Success, notificationId={}",
@@ -2,9 +2,11 @@ package com.bentork.ev_system.controller;
 
 import java.util.List;
 
+import com.bentork.ev_system.config.AuthenticatedUser;
 import com.bentork.ev_system.model.WalletTransaction;
 import com.bentork.ev_system.service.WalletTransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,14 +16,29 @@ public class WalletTransactionController {
 
     @Autowired
     private WalletTransactionService walletService;
-    
+
+    // History of the calling user
+    @GetMapping("/history")
+    public ResponseEntity<List<WalletTransaction>> getMyWalletHistory(
+            AuthenticatedUser caller,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "viewAll", defaultValue = "false") boolean viewAll) {
+
+        List<WalletTransaction> history = walletService.getTransactionHistory(caller.id(), type, viewAll);
+        return ResponseEntity.ok(history);
+    }
+
     @GetMapping("/history/{userId}")
     public ResponseEntity<List<WalletTransaction>> getWalletHistory(
             @PathVariable Long userId,
+            AuthenticatedUser caller,
             @RequestParam(value = "type", required = false) String type,
             @RequestParam(value = "viewAll", defaultValue = "false") boolean viewAll) {
 
+        if (!caller.canAccessUser(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         List<WalletTransaction> history = walletService.getTransactionHistory(userId, type, viewAll);
         return ResponseEntity.ok(history);
     }
-}
\ No newline at end of file
+}
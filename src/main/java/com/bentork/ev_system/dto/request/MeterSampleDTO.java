@@ -0,0 +1,73 @@
+package com.bentork.ev_system.dto.request;
+
+import java.time.Instant;
+
+/**
+ * One point of a session's charge curve. Measurands the charger did not
+ * report are null.
+ */
+public class MeterSampleDTO {
+    private Instant timestamp;
+    private Long energyWh; // Energy.Active.Import.Register
+    private Double powerW; // Power.Active.Import
+    private Double currentA; // Current.Import
+    private Double voltageV; // Voltage
+    private Integer soc; // SoC (%)
+
+    public MeterSampleDTO() {
+    }
+
+    public MeterSampleDTO(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    // getters/setters
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Long getEnergyWh() {
+        return energyWh;
+    }
+
+    public void setEnergyWh(Long energyWh) {
+        this.energyWh = energyWh;
+    }
+
+    public Double getPowerW() {
+        return powerW;
+    }
+
+    public void setPowerW(Double powerW) {
+        this.powerW = powerW;
+    }
+
+    public Double getCurrentA() {
+        return currentA;
+    }
+
+    public void setCurrentA(Double currentA) {
+        this.currentA = currentA;
+    }
+
+    public Double getVoltageV() {
+        return voltageV;
+    }
+
+    public void setVoltageV(Double voltageV) {
+        this.voltageV = voltageV;
+    }
+
+    public Integer getSoc() {
+        return soc;
+    }
+
+    public void setSoc(Integer soc) {
+        this.soc = soc;
+    }
+}
@@ -18,6 +18,21 @@ public class RevenueDTO {
     public RevenueDTO() {
     }
 
+    // Used by the JPQL constructor expression in RevenueRepository
+    public RevenueDTO(Long id, Long sessionId, Long userId, Long chargerId, Long stationId, double amount,
+            String paymentMethod, String transactionId, String paymentStatus, LocalDateTime createdAt) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.chargerId = chargerId;
+        this.stationId = stationId;
+        this.amount = amount;
+        this.paymentMethod = paymentMethod;
+        this.transactionId = transactionId;
+        this.paymentStatus = paymentStatus;
+        this.createdAt = createdAt;
+    }
+
     // getters/setters
 
     public Long getId() {
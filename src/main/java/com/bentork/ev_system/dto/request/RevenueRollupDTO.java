@@ -0,0 +1,56 @@
+package com.bentork.ev_system.dto.request;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of a revenue report: totals of a period (hour/day/week/month)
+ * or of a station over the requested range.
+ */
+public class RevenueRollupDTO {
+    private LocalDateTime periodStart;
+    private Long stationId;
+    private long transactionCount;
+    private double amount;
+
+    public RevenueRollupDTO() {
+    }
+
+    public RevenueRollupDTO(LocalDateTime periodStart, Long stationId, long transactionCount, double amount) {
+        this.periodStart = periodStart;
+        this.stationId = stationId;
+        this.transactionCount = transactionCount;
+        this.amount = amount;
+    }
+
+    public LocalDateTime getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDateTime periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public Long getStationId() {
+        return stationId;
+    }
+
+    public void setStationId(Long stationId) {
+        this.stationId = stationId;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,170 @@
+package com.bentork.ev_system.dto.request;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat view of a session for admin listings, built directly by the query
+ * (no User / Charger / Station entities are loaded).
+ */
+public class SessionRecordDTO {
+    private Long id;
+    private Long userId;
+    private String userName;
+    private Long chargerId;
+    private String chargerOcppId;
+    private Long stationId;
+    private String stationName;
+    private String boxId;
+    private String status;
+    private String sourceType;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private double energyKwh;
+    private double cost;
+    private LocalDateTime createdAt;
+
+    public SessionRecordDTO() {
+    }
+
+    // Used by the JPQL constructor expression in SessionRepository
+    public SessionRecordDTO(Long id, Long userId, String userName, Long chargerId, String chargerOcppId,
+            Long stationId, String stationName, String boxId, String status, String sourceType,
+            LocalDateTime startTime, LocalDateTime endTime, double energyKwh, double cost,
+            LocalDateTime createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.userName = userName;
+        this.chargerId = chargerId;
+        this.chargerOcppId = chargerOcppId;
+        this.stationId = stationId;
+        this.stationName = stationName;
+        this.boxId = boxId;
+        this.status = status;
+        this.sourceType = sourceType;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.energyKwh = energyKwh;
+        this.cost = cost;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public Long getChargerId() {
+        return chargerId;
+    }
+
+    public void setChargerId(Long chargerId) {
+        this.chargerId = chargerId;
+    }
+
+    public String getChargerOcppId() {
+        return chargerOcppId;
+    }
+
+    public void setChargerOcppId(String chargerOcppId) {
+        this.chargerOcppId = chargerOcppId;
+    }
+
+    public Long getStationId() {
+        return stationId;
+    }
+
+    public void setStationId(Long stationId) {
+        this.stationId = stationId;
+    }
+
+    public String getStationName() {
+        return stationName;
+    }
+
+    public void setStationName(String stationName) {
+        this.stationName = stationName;
+    }
+
+    public String getBoxId() {
+        return boxId;
+    }
+
+    public void setBoxId(String boxId) {
+        this.boxId = boxId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public void setSourceType(String sourceType) {
+        this.sourceType = sourceType;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public double getEnergyKwh() {
+        return energyKwh;
+    }
+
+    public void setEnergyKwh(double energyKwh) {
+        this.energyKwh = energyKwh;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public void setCost(double cost) {
+        this.cost = cost;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.bentork.ev_system.dto.request;
+
+import java.util.List;
+
+/**
+ * One page of session records, newest first. nextCursor is passed back as
+ * ?cursor= to get the following page; it is null on the last page.
+ */
+public class SessionRecordPageDTO {
+    private List<SessionRecordDTO> records;
+    private String nextCursor;
+
+    public SessionRecordPageDTO() {
+    }
+
+    public SessionRecordPageDTO(List<SessionRecordDTO> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SessionRecordDTO> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<SessionRecordDTO> records) {
+        this.records = records;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,68 @@
+package com.bentork.ev_system.dto.request;
+
+import java.time.LocalDateTime;
+
+/**
+ * Live state of a charging session as pushed to the app. cost is the amount
+ * billed so far for RFID sessions and the final cost once a session is
+ * completed; it is null while a prepaid session is still charging.
+ */
+public class SessionTelemetryDTO {
+    private Long sessionId;
+    private String status;
+    private double energyKwh;
+    private Double cost;
+    private LocalDateTime updatedAt;
+
+    public SessionTelemetryDTO() {
+    }
+
+    public SessionTelemetryDTO(Long sessionId, String status, double energyKwh, Double cost,
+            LocalDateTime updatedAt) {
+        this.sessionId = sessionId;
+        this.status = status;
+        this.energyKwh = energyKwh;
+        this.cost = cost;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public double getEnergyKwh() {
+        return energyKwh;
+    }
+
+    public void setEnergyKwh(double energyKwh) {
+        this.energyKwh = energyKwh;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public void setCost(Double cost) {
+        this.cost = cost;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
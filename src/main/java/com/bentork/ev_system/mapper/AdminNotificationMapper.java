@@ -1,27 +1,19 @@
 package com.bentork.ev_system.mapper;
 
 import com.bentork.ev_system.dto.request.AdminNotificationDTO;
-import com.bentork.ev_system.model.AdminNotification;
+import com.bentork.ev_system.model.SystemEvent;
 
 public class AdminNotificationMapper {
 
-    public static AdminNotificationDTO toDTO(AdminNotification notification) {
+    // Read/unread is derived from the admin's cursor
+    public static AdminNotificationDTO toDTO(SystemEvent event, Long adminId, long lastReadId) {
         AdminNotificationDTO dto = new AdminNotificationDTO();
-        dto.setId(notification.getId());
-        dto.setAdminId(notification.getAdmin().getId());
-        dto.setMessage(notification.getMessage());
-        dto.setType(notification.getType());
-        dto.setRead(notification.isRead());
-        dto.setCreatedAt(notification.getCreatedAt());
+        dto.setId(event.getId());
+        dto.setAdminId(adminId);
+        dto.setMessage(event.getMessage());
+        dto.setType(event.getType());
+        dto.setRead(event.getId() <= lastReadId);
+        dto.setCreatedAt(event.getCreatedAt());
         return dto;
     }
-
-    public static AdminNotification toEntity(AdminNotificationDTO dto) {
-        AdminNotification notification = new AdminNotification();
-        notification.setMessage(dto.getMessage());
-        notification.setType(dto.getType());
-        notification.setRead(dto.isRead());
-        notification.setCreatedAt(dto.getCreatedAt());
-        return notification;
-    }
 }
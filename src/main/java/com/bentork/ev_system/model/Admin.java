@@ -20,6 +20,7 @@ public class Admin {
     private String password;
     private String role;
     private LocalDateTime createdAt = LocalDateTime.now();
+    private LocalDateTime passwordChangedAt; // tokens issued before this are rejected
 
     // Getters and Setters
 
@@ -78,4 +79,12 @@ public class Admin {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public LocalDateTime getPasswordChangedAt() {
+        return passwordChangedAt;
+    }
+
+    public void setPasswordChangedAt(LocalDateTime passwordChangedAt) {
+        this.passwordChangedAt = passwordChangedAt;
+    }
 }
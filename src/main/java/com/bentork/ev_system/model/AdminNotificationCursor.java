@@ -0,0 +1,50 @@
+package com.bentork.ev_system.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read position of one admin in the system_events stream: every event with
+ * id <= lastReadId counts as read. Admins without a row have read nothing.
+ */
+@Entity
+@Table(name = "admin_notification_cursors")
+public class AdminNotificationCursor {
+
+    @Id
+    @Column(name = "admin_id")
+    private Long adminId;
+
+    @Column(name = "last_read_id", nullable = false)
+    private long lastReadId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+
+    public Long getAdminId() {
+        return adminId;
+    }
+
+    public void setAdminId(Long adminId) {
+        this.adminId = adminId;
+    }
+
+    public long getLastReadId() {
+        return lastReadId;
+    }
+
+    public void setLastReadId(long lastReadId) {
+        this.lastReadId = lastReadId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,117 @@
+package com.bentork.ev_system.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A block of consecutive meter samples of one session, stored as a single
+ * encoded blob (see MeterSampleCodec) instead of one row per sample.
+ * Rows are append-only and written in JDBC batches by MeterSampleService.
+ */
+@Entity
+@Table(name = "meter_samples", indexes = {
+        @Index(name = "idx_meter_samples_session_seq", columnList = "session_id, chunk_seq")
+})
+public class MeterSampleChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // sessions.id; kept as a plain column so inserts need no entity lookup
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    // Order of the chunk within the session, starting at 0
+    @Column(name = "chunk_seq", nullable = false)
+    private int chunkSeq;
+
+    @Column(name = "sample_count", nullable = false)
+    private int sampleCount;
+
+    // Epoch millis of the first / last sample, used for range reads
+    @Column(name = "first_ts", nullable = false)
+    private long firstTs;
+
+    @Column(name = "last_ts", nullable = false)
+    private long lastTs;
+
+    @Lob
+    @Column(name = "data", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public int getChunkSeq() {
+        return chunkSeq;
+    }
+
+    public void setChunkSeq(int chunkSeq) {
+        this.chunkSeq = chunkSeq;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public long getFirstTs() {
+        return firstTs;
+    }
+
+    public void setFirstTs(long firstTs) {
+        this.firstTs = firstTs;
+    }
+
+    public long getLastTs() {
+        return lastTs;
+    }
+
+    public void setLastTs(long lastTs) {
+        this.lastTs = lastTs;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
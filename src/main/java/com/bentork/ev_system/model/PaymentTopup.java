@@ -0,0 +1,126 @@
+package com.bentork.ev_system.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency record of a wallet top-up paid through the payment gateway.
+ * One row per gateway order; the wallet is credited only by the transition
+ * PENDING -> CREDITED, so a verification retried by the client (or delivered
+ * twice) credits once. FAILED rows may be claimed again.
+ */
+@Entity
+@Table(name = "payment_topups", indexes = {
+        @Index(name = "uk_payment_topups_payment_id", columnList = "payment_id", unique = true),
+        @Index(name = "idx_payment_topups_status", columnList = "status, updated_at")
+})
+public class PaymentTopup {
+
+    public static final String PENDING = "PENDING";
+    public static final String CREDITED = "CREDITED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @Column(name = "order_id", length = 64)
+    private String orderId;
+
+    @Column(name = "payment_id", nullable = false, length = 64)
+    private String paymentId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Rupees, as reported by the gateway
+    private BigDecimal amount;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "wallet_transaction_id")
+    private Long walletTransactionId;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getWalletTransactionId() {
+        return walletTransactionId;
+    }
+
+    public void setWalletTransactionId(Long walletTransactionId) {
+        this.walletTransactionId = walletTransactionId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -6,7 +6,10 @@ import java.time.LocalDateTime;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "receipts")
+@Table(name = "receipts", indexes = {
+		@Index(name = "idx_receipts_charger_status_created_at", columnList = "charger_id, status, created_at"),
+		@Index(name = "idx_receipts_session_id", columnList = "session_id")
+})
 public class Receipt {
 
 	@Id
@@ -5,7 +5,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "revenue")
+@Table(name = "revenue", indexes = {
+        @Index(name = "idx_revenue_created_at", columnList = "created_at")
+})
 public class Revenue {
 
     @Id
@@ -0,0 +1,130 @@
+package com.bentork.ev_system.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revenue totals of one time bucket (hour or day) for one charger and
+ * payment status. Rows are upserted by RevenueRollupService whenever a
+ * revenue row is recorded or deleted, so range reports read a few hundred
+ * rows instead of the whole revenue table.
+ */
+@Entity
+@Table(name = "revenue_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_revenue_rollup_bucket",
+                columnNames = { "granularity", "bucket_start", "station_id", "charger_id", "payment_status" })
+}, indexes = {
+        @Index(name = "idx_revenue_rollup_station", columnList = "granularity, station_id, bucket_start")
+})
+public class RevenueRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // HOUR or DAY
+    @Column(nullable = false, length = 8)
+    private String granularity;
+
+    // Start of the hour / day, server local time (same as revenue.created_at)
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    // stations.id / chargers.id; plain columns so upserts need no entity lookup
+    @Column(name = "station_id", nullable = false)
+    private Long stationId;
+
+    @Column(name = "charger_id", nullable = false)
+    private Long chargerId;
+
+    // Upper-cased revenue.payment_status
+    @Column(name = "payment_status", nullable = false, length = 32)
+    private String paymentStatus;
+
+    @Column(name = "txn_count", nullable = false)
+    private long txnCount;
+
+    @Column(nullable = false)
+    private double amount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getStationId() {
+        return stationId;
+    }
+
+    public void setStationId(Long stationId) {
+        this.stationId = stationId;
+    }
+
+    public Long getChargerId() {
+        return chargerId;
+    }
+
+    public void setChargerId(Long chargerId) {
+        this.chargerId = chargerId;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    public long getTxnCount() {
+        return txnCount;
+    }
+
+    public void setTxnCount(long txnCount) {
+        this.txnCount = txnCount;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
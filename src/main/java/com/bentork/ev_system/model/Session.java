@@ -5,7 +5,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "sessions")
+@Table(name = "sessions", indexes = {
+        @Index(name = "idx_sessions_status_created_at", columnList = "status, created_at"),
+        @Index(name = "idx_sessions_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_sessions_auto_stop_at", columnList = "auto_stop_at"),
+        @Index(name = "idx_sessions_charger_status_created_at", columnList = "charger_id, status, created_at")
+})
 public class Session {
 
     @Id
@@ -37,6 +42,14 @@ public class Session {
     @Column(name = "last_meter_reading")
     private Double lastMeterReading;
 
+    // Auto-stop deadline and claim token; written only by AutoStopScheduler
+    // (never by JPA saves, which could otherwise reset a claim)
+    @Column(name = "auto_stop_at", insertable = false, updatable = false)
+    private LocalDateTime autoStopAt;
+
+    @Column(name = "auto_stop_owner", length = 64, insertable = false, updatable = false)
+    private String autoStopOwner;
+
     // Getters and Setters
 
     public Long getId() {
@@ -142,4 +155,12 @@ public class Session {
     public void setLastMeterReading(Double lastMeterReading) {
         this.lastMeterReading = lastMeterReading;
     }
+
+    public LocalDateTime getAutoStopAt() {
+        return autoStopAt;
+    }
+
+    public String getAutoStopOwner() {
+        return autoStopOwner;
+    }
 }
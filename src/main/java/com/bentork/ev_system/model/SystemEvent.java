@@ -4,33 +4,33 @@ import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
 
+/**
+ * One admin-facing event (session started, user registered, ...). Written
+ * once for all admins; whether an admin has read it follows from their
+ * AdminNotificationCursor.
+ */
 @Entity
-@Table(name = "admin_notifications")
-public class AdminNotification {
+@Table(name = "system_events")
+public class SystemEvent {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "admin_id", nullable = false)
-    private Admin admin;
-
     @Column(columnDefinition = "TEXT", nullable = false)
     private String message;
 
     @Column(nullable = false)
     private String type;
 
-    @Column(name = "is_read", nullable = false)
-    private boolean isRead;
-
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     @PrePersist
     protected void onCreate() {
-        this.createdAt = LocalDateTime.now();
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
     }
 
     // Getters and Setters
@@ -43,14 +43,6 @@ public class AdminNotification {
         this.id = id;
     }
 
-    public Admin getAdmin() {
-        return admin;
-    }
-
-    public void setAdmin(Admin admin) {
-        this.admin = admin;
-    }
-
     public String getMessage() {
         return message;
     }
@@ -67,14 +59,6 @@ public class AdminNotification {
         this.type = type;
     }
 
-    public boolean isRead() {
-        return isRead;
-    }
-
-    public void setRead(boolean read) {
-        isRead = read;
-    }
-
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
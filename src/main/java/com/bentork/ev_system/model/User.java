@@ -26,6 +26,7 @@ public class User {
     private BigDecimal walletBalance = BigDecimal.ZERO;
     private LocalDateTime createdAt = LocalDateTime.now();
     private String imageUrl;
+    private LocalDateTime passwordChangedAt; // tokens issued before this are rejected
 
     // === Getters and Setters ===
 
@@ -85,6 +86,14 @@ public class User {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getPasswordChangedAt() {
+        return passwordChangedAt;
+    }
+
+    public void setPasswordChangedAt(LocalDateTime passwordChangedAt) {
+        this.passwordChangedAt = passwordChangedAt;
+    }
+
     public String getImageUrl() {
         return imageUrl;
     }
@@ -0,0 +1,89 @@
+package com.bentork.ev_system.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Wallet balance of a user as of wallet_transactions.id = last_tx_id (see
+ * WalletLedgerService). The current balance is this balance plus the
+ * successful transactions after last_tx_id.
+ *
+ * opening_balance and opening_tx_id record where the ledger started for the
+ * user (the legacy user.wallet_balance at migration, or zero) and never
+ * change; reconciliation replays the ledger from there.
+ */
+@Entity
+@Table(name = "wallet_balance_snapshots")
+public class WalletBalanceSnapshot {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "last_tx_id", nullable = false)
+    private long lastTxId;
+
+    @Column(name = "opening_balance", nullable = false)
+    private BigDecimal openingBalance;
+
+    @Column(name = "opening_tx_id", nullable = false)
+    private long openingTxId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public long getLastTxId() {
+        return lastTxId;
+    }
+
+    public void setLastTxId(long lastTxId) {
+        this.lastTxId = lastTxId;
+    }
+
+    public BigDecimal getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public void setOpeningBalance(BigDecimal openingBalance) {
+        this.openingBalance = openingBalance;
+    }
+
+    public long getOpeningTxId() {
+        return openingTxId;
+    }
+
+    public void setOpeningTxId(long openingTxId) {
+        this.openingTxId = openingTxId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bentork.ev_system.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-authorization hold placed on a user's wallet for one RFID charging
+ * session (see WalletHoldService). amount_paise has already been taken from
+ * the wallet when the hold is placed; captured_paise is the part billed so
+ * far, checkpointed in batches. When the session stops, the captured part is
+ * kept, the rest is released back to the wallet and the row is marked
+ * CAPTURED. HELD rows found at startup are restored or captured, so held
+ * money is never lost.
+ */
+@Entity
+@Table(name = "wallet_holds", indexes = {
+        @Index(name = "idx_wallet_holds_status", columnList = "status")
+})
+public class WalletHold {
+
+    public static final String HELD = "HELD";
+    public static final String CAPTURED = "CAPTURED";
+
+    // sessions.id; one hold per session
+    @Id
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "amount_paise", nullable = false)
+    private long amountPaise;
+
+    @Column(name = "captured_paise", nullable = false)
+    private long capturedPaise;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getAmountPaise() {
+        return amountPaise;
+    }
+
+    public void setAmountPaise(long amountPaise) {
+        this.amountPaise = amountPaise;
+    }
+
+    public long getCapturedPaise() {
+        return capturedPaise;
+    }
+
+    public void setCapturedPaise(long capturedPaise) {
+        this.capturedPaise = capturedPaise;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
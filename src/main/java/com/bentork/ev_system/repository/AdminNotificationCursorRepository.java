@@ -0,0 +1,25 @@
+package com.bentork.ev_system.repository;
+
+import com.bentork.ev_system.model.AdminNotificationCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface AdminNotificationCursorRepository extends JpaRepository<AdminNotificationCursor, Long> {
+
+    @Query("SELECT c.lastReadId FROM AdminNotificationCursor c WHERE c.adminId = :adminId")
+    Optional<Long> findLastReadId(@Param("adminId") Long adminId);
+
+    // Only ever moves forward, so concurrent mark-read calls cannot un-read events
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO admin_notification_cursors (admin_id, last_read_id, updated_at) "
+            + "VALUES (:adminId, :lastReadId, NOW()) "
+            + "ON DUPLICATE KEY UPDATE last_read_id = GREATEST(last_read_id, VALUES(last_read_id)), "
+            + "updated_at = NOW()", nativeQuery = true)
+    int advance(@Param("adminId") Long adminId, @Param("lastReadId") long lastReadId);
+}
@@ -3,6 +3,8 @@ package com.bentork.ev_system.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.bentork.ev_system.model.Admin;
@@ -13,6 +15,9 @@ public interface AdminRepository extends JpaRepository<Admin, Long> {
     boolean existsByEmail(String email);
     Optional<Admin> findByEmail(String email);
 
+    @Query("SELECT a.id FROM Admin a WHERE a.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
     long countAdminByRole(String role);
 }
 
@@ -4,6 +4,10 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.bentork.ev_system.model.Charger;
 
@@ -12,4 +16,22 @@ public interface ChargerRepository extends JpaRepository<Charger, Long> {
     List<Charger> findByStationId(Long stationId);
 
     Optional<Charger> findByOcppId(String ocppId);
+
+    long countByChargerTypeIgnoreCase(String chargerType);
+
+    @Query("SELECT COUNT(c) FROM Charger c WHERE c.availability = true AND c.isOccupied = false")
+    long countAvailable();
+
+    /**
+     * Targeted write of the live state columns; used by ChargerStateCache
+     * instead of saving the whole entity.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Charger c SET c.availability = :availability, c.isOccupied = :occupied, c.status = :status "
+            + "WHERE c.id = :id")
+    int updateState(@Param("id") Long id,
+            @Param("availability") boolean availability,
+            @Param("occupied") boolean occupied,
+            @Param("status") String status);
 }
@@ -0,0 +1,23 @@
+package com.bentork.ev_system.repository;
+
+import com.bentork.ev_system.model.MeterSampleChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface MeterSampleChunkRepository extends JpaRepository<MeterSampleChunk, Long> {
+
+    /**
+     * Chunks of a session that overlap [fromTs, toTs] (epoch millis).
+     */
+    @Query("SELECT c FROM MeterSampleChunk c WHERE c.sessionId = :sessionId "
+            + "AND c.lastTs >= :fromTs AND c.firstTs <= :toTs ORDER BY c.chunkSeq")
+    List<MeterSampleChunk> findOverlapping(@Param("sessionId") Long sessionId,
+            @Param("fromTs") long fromTs,
+            @Param("toTs") long toTs);
+
+    @Query("SELECT MAX(c.chunkSeq) FROM MeterSampleChunk c WHERE c.sessionId = :sessionId")
+    Integer findMaxChunkSeq(@Param("sessionId") Long sessionId);
+}
@@ -0,0 +1,53 @@
+package com.bentork.ev_system.repository;
+
+import com.bentork.ev_system.model.PaymentTopup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface PaymentTopupRepository extends JpaRepository<PaymentTopup, String> {
+
+    Optional<PaymentTopup> findByPaymentId(String paymentId);
+
+    // Returns 0 when the order (or the payment) was already claimed
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO payment_topups "
+            + "(order_id, payment_id, user_id, status, created_at, updated_at) "
+            + "VALUES (:orderId, :paymentId, :userId, 'PENDING', NOW(), NOW())", nativeQuery = true)
+    int claim(@Param("orderId") String orderId, @Param("paymentId") String paymentId,
+            @Param("userId") Long userId);
+
+    // Failed top-ups, and pending ones abandoned by a node that went down
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTopup t SET t.status = 'PENDING', t.error = NULL, t.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE t.orderId = :orderId "
+            + "AND (t.status = 'FAILED' OR (t.status = 'PENDING' AND t.updatedAt < :staleBefore))")
+    int reclaim(@Param("orderId") String orderId, @Param("staleBefore") LocalDateTime staleBefore);
+
+    // The only way to CREDITED; the caller credits the wallet in the same transaction
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTopup t SET t.status = 'CREDITED', t.amount = :amount, "
+            + "t.updatedAt = CURRENT_TIMESTAMP WHERE t.orderId = :orderId AND t.status = 'PENDING'")
+    int markCredited(@Param("orderId") String orderId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTopup t SET t.walletTransactionId = :walletTransactionId WHERE t.orderId = :orderId")
+    int setWalletTransactionId(@Param("orderId") String orderId,
+            @Param("walletTransactionId") Long walletTransactionId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTopup t SET t.status = 'FAILED', t.error = :error, t.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE t.orderId = :orderId AND t.status = 'PENDING'")
+    int markFailed(@Param("orderId") String orderId, @Param("error") String error);
+}
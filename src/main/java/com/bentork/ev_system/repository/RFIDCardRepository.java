@@ -1,8 +1,12 @@
 package com.bentork.ev_system.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.bentork.ev_system.model.RFIDCard;
@@ -10,4 +14,13 @@ import com.bentork.ev_system.model.RFIDCard;
 @Repository
 public interface RFIDCardRepository extends JpaRepository<RFIDCard, Long> {
     Optional<RFIDCard> findByCardNumber(String cardNumber);
+
+    // [active, userId] without loading the user; empty for an unknown card
+    @Query("SELECT c.isActive, u.id FROM RFIDCard c LEFT JOIN c.user u WHERE c.cardNumber = :cardNumber")
+    List<Object[]> findAuthByCardNumber(@Param("cardNumber") String cardNumber);
+
+    // [cardNumber, active, userId], active cards first
+    @Query("SELECT c.cardNumber, c.isActive, u.id FROM RFIDCard c LEFT JOIN c.user u "
+            + "ORDER BY c.isActive DESC, c.id")
+    List<Object[]> findAuthEntries(Pageable page);
 }
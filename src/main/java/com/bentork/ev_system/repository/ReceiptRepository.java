@@ -9,6 +9,7 @@ import com.bentork.ev_system.model.Receipt;
 import com.bentork.ev_system.model.Session;
 
 public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
+	// Served by idx_receipts_charger_status_created_at
 	Optional<Receipt> findFirstByChargerAndStatusOrderByCreatedAtDesc(Charger charger, String status);
 
 	Optional<Receipt> findBySession(Session session);
@@ -1,14 +1,42 @@
 package com.bentork.ev_system.repository;
 
 
+import com.bentork.ev_system.dto.request.RevenueDTO;
 import com.bentork.ev_system.model.Revenue;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface RevenueRepository extends JpaRepository<Revenue, Long> {
     List<Revenue> findBySessionId(Long sessionId);
     List<Revenue> findByUserId(Long userId);
     List<Revenue> findByChargerId(Long chargerId);
     List<Revenue> findByStationId(Long stationId);
-}
\ No newline at end of file
+
+    /**
+     * Per payment status (upper-cased): [status, count, sum(amount)].
+     */
+    @Query("SELECT UPPER(r.paymentStatus), COUNT(r), COALESCE(SUM(r.amount), 0) FROM Revenue r "
+            + "GROUP BY UPPER(r.paymentStatus)")
+    List<Object[]> summarizeByPaymentStatus();
+
+    /**
+     * Revenue rows created in [from, to) for export, oldest first. The
+     * MIN_VALUE fetch size makes the MySQL driver stream rows instead of
+     * buffering the whole result; must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new com.bentork.ev_system.dto.request.RevenueDTO(r.id, r.session.id, r.user.id, "
+            + "r.charger.id, r.station.id, r.amount, r.paymentMethod, r.transactionId, r.paymentStatus, "
+            + "r.createdAt) FROM Revenue r WHERE r.createdAt >= :from AND r.createdAt < :to "
+            + "ORDER BY r.createdAt, r.id")
+    Stream<RevenueDTO> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
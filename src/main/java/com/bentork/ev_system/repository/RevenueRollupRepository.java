@@ -0,0 +1,39 @@
+package com.bentork.ev_system.repository;
+
+import com.bentork.ev_system.model.RevenueRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, Long> {
+
+    /**
+     * Per bucket in [from, to): [bucketStart, txnCount, amount], oldest first.
+     * stationId / paymentStatus may be null for all.
+     */
+    @Query("SELECT r.bucketStart, SUM(r.txnCount), SUM(r.amount) FROM RevenueRollup r "
+            + "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to "
+            + "AND (:stationId IS NULL OR r.stationId = :stationId) "
+            + "AND (:paymentStatus IS NULL OR r.paymentStatus = :paymentStatus) "
+            + "GROUP BY r.bucketStart ORDER BY r.bucketStart")
+    List<Object[]> sumByBucket(@Param("granularity") String granularity,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("stationId") Long stationId,
+            @Param("paymentStatus") String paymentStatus);
+
+    /**
+     * Per station in [from, to): [stationId, txnCount, amount], highest amount first.
+     */
+    @Query("SELECT r.stationId, SUM(r.txnCount), SUM(r.amount) FROM RevenueRollup r "
+            + "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to "
+            + "AND (:paymentStatus IS NULL OR r.paymentStatus = :paymentStatus) "
+            + "GROUP BY r.stationId ORDER BY SUM(r.amount) DESC")
+    List<Object[]> sumByStation(@Param("granularity") String granularity,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("paymentStatus") String paymentStatus);
+}
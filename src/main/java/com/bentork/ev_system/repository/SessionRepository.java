@@ -1,11 +1,21 @@
 package com.bentork.ev_system.repository;
 
+import com.bentork.ev_system.dto.request.SessionRecordDTO;
 import com.bentork.ev_system.model.Charger;
 import com.bentork.ev_system.model.Session;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface SessionRepository extends JpaRepository<Session, Long> {
     Optional<Session> findFirstByStatusOrderByStartTimeDesc(String status);
@@ -16,4 +26,69 @@ public interface SessionRepository extends JpaRepository<Session, Long> {
 
     Optional<Session> findFirstByChargerAndStatusInOrderByCreatedAtDesc(
             Charger charger, List<String> statuses);
+
+    /**
+     * Newest session of a charger in one of the statuses, paired with its
+     * receipt (null for RFID sessions). Served by
+     * idx_sessions_charger_status_created_at; pass a one-row page.
+     */
+    @Query("SELECT s, r FROM Session s LEFT JOIN Receipt r ON r.session = s "
+            + "WHERE s.charger = :charger AND s.status IN :statuses ORDER BY s.createdAt DESC")
+    List<Object[]> findLatestWithReceipt(@Param("charger") Charger charger,
+            @Param("statuses") List<String> statuses, Pageable page);
+
+    // Dashboard aggregates, served by idx_sessions_status_created_at
+
+    long countByStatus(String status);
+
+    @Query("SELECT COALESCE(SUM(s.energyKwh), 0) FROM Session s WHERE s.status = :status")
+    double sumEnergyKwhByStatus(@Param("status") String status);
+
+    @Query("SELECT COUNT(s) FROM Session s WHERE s.status = :status "
+            + "AND s.createdAt >= :from AND s.createdAt < :to")
+    long countByStatusCreatedBetween(@Param("status") String status,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Session records newest first, as flat DTOs. Keyset pagination: pass the
+     * (createdAt, id) of the last record of the previous page, or nulls for
+     * the first page; the page size comes from the Pageable. Any filter may
+     * be null.
+     */
+    @Query("SELECT new com.bentork.ev_system.dto.request.SessionRecordDTO("
+            + "s.id, u.id, u.name, c.id, c.ocppId, st.id, st.name, s.boxId, s.status, s.sourceType, "
+            + "s.startTime, s.endTime, s.energyKwh, s.cost, s.createdAt) "
+            + "FROM Session s LEFT JOIN s.user u JOIN s.charger c JOIN c.station st "
+            + "WHERE (:status IS NULL OR s.status = :status) "
+            + "AND (:chargerId IS NULL OR c.id = :chargerId) "
+            + "AND (:stationId IS NULL OR st.id = :stationId) "
+            + "AND (:userId IS NULL OR u.id = :userId) "
+            + "AND (:from IS NULL OR s.createdAt >= :from) "
+            + "AND (:to IS NULL OR s.createdAt < :to) "
+            + "AND (:afterCreatedAt IS NULL OR s.createdAt < :afterCreatedAt "
+            + "OR (s.createdAt = :afterCreatedAt AND s.id < :afterId)) "
+            + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SessionRecordDTO> findRecords(@Param("status") String status,
+            @Param("chargerId") Long chargerId,
+            @Param("stationId") Long stationId,
+            @Param("userId") Long userId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            Pageable page);
+
+    /**
+     * Sessions created in [from, to) for export, oldest first, streamed from
+     * the driver (see RevenueRepository.streamForExport).
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new com.bentork.ev_system.dto.request.SessionRecordDTO("
+            + "s.id, u.id, u.name, c.id, c.ocppId, st.id, st.name, s.boxId, s.status, s.sourceType, "
+            + "s.startTime, s.endTime, s.energyKwh, s.cost, s.createdAt) "
+            + "FROM Session s LEFT JOIN s.user u JOIN s.charger c JOIN c.station st "
+            + "WHERE s.createdAt >= :from AND s.createdAt < :to "
+            + "ORDER BY s.createdAt, s.id")
+    Stream<SessionRecordDTO> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
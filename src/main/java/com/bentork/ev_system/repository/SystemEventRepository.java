@@ -0,0 +1,21 @@
+package com.bentork.ev_system.repository;
+
+import com.bentork.ev_system.model.SystemEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface SystemEventRepository extends JpaRepository<SystemEvent, Long> {
+
+    // Newest first; beforeId is the last id of the previous page (null for the first page)
+    @Query("SELECT e FROM SystemEvent e WHERE (:beforeId IS NULL OR e.id < :beforeId) ORDER BY e.id DESC")
+    List<SystemEvent> findPage(@Param("beforeId") Long beforeId, Pageable pageable);
+
+    long countByIdGreaterThan(long id);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM SystemEvent e")
+    long findMaxId();
+}
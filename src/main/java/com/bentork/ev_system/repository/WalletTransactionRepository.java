@@ -1,14 +1,24 @@
 package com.bentork.ev_system.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import com.bentork.ev_system.model.WalletTransaction;
 
+import jakarta.persistence.QueryHint;
+
 public interface WalletTransactionRepository extends JpaRepository<WalletTransaction, Long> {
     List<WalletTransaction> findByUserId(Long userId);
 
@@ -21,4 +31,16 @@ public interface WalletTransactionRepository extends JpaRepository<WalletTransac
 
     // Fetch specific type (credit/debit) for a user
     Page<WalletTransaction> findByUserIdAndType(Long userId, String type, Pageable pageable);
+
+    // All types but the given ones (history without internal hold/release rows)
+    Page<WalletTransaction> findByUserIdAndTypeNotIn(Long userId, Collection<String> types, Pageable pageable);
+
+    /**
+     * Transactions created in [from, to) for export, oldest first, streamed
+     * from the driver. The caller detaches each entity once written.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT t FROM WalletTransaction t WHERE t.createdAt >= :from AND t.createdAt < :to "
+            + "ORDER BY t.createdAt, t.id")
+    Stream<WalletTransaction> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -2,70 +2,117 @@ package com.bentork.ev_system.service;
 
 import com.bentork.ev_system.dto.request.AdminNotificationDTO;
 import com.bentork.ev_system.mapper.AdminNotificationMapper;
-import com.bentork.ev_system.model.Admin;
-import com.bentork.ev_system.model.AdminNotification;
-import com.bentork.ev_system.repository.AdminNotificationRepository;
-import com.bentork.ev_system.repository.AdminRepository;
+import com.bentork.ev_system.repository.AdminNotificationCursorRepository;
+import com.bentork.ev_system.repository.SystemEventRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Admin notifications are fanned out on read: each event is stored once in
+ * system_events and every admin keeps a read cursor (last read event id).
+ *
+ * History from the old per-admin admin_notifications table is copied into
+ * system_events on the first start with an empty system_events: one event
+ * per message, and each admin's cursor at the newest event they had read.
+ */
+@Slf4j
 @Service
 public class AdminNotificationService {
 
+    private static final String LEGACY_TABLE_SQL = "SELECT COUNT(*) FROM information_schema.tables "
+            + "WHERE table_schema = DATABASE() AND table_name = 'admin_notifications'";
+
+    private static final String EVENTS_EXIST_SQL = "SELECT COUNT(*) FROM (SELECT 1 FROM system_events LIMIT 1) e";
+
+    // The old dispatcher wrote one row per admin with the same message, type and time
+    private static final String MIGRATE_EVENTS_SQL = "INSERT INTO system_events (message, type, created_at) "
+            + "SELECT message, type, created_at FROM admin_notifications "
+            + "GROUP BY message, type, created_at ORDER BY MIN(id)";
+
+    private static final String MIGRATE_CURSORS_SQL = "INSERT INTO admin_notification_cursors "
+            + "(admin_id, last_read_id, updated_at) "
+            + "SELECT n.admin_id, MAX(e.id), NOW() FROM admin_notifications n JOIN system_events e "
+            + "ON e.message = n.message AND e.type = n.type AND e.created_at = n.created_at "
+            + "WHERE n.is_read = 1 GROUP BY n.admin_id "
+            + "ON DUPLICATE KEY UPDATE last_read_id = GREATEST(last_read_id, VALUES(last_read_id))";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
-    private AdminNotificationRepository notificationRepository;
+    private SystemEventRepository systemEventRepository;
 
     @Autowired
-    private AdminRepository adminRepository;
+    private AdminNotificationCursorRepository cursorRepository;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        try {
+            migrateLegacyNotifications();
+        } catch (Exception e) {
+            log.error("Failed to migrate admin_notifications into system_events: {}", e.getMessage(), e);
+        }
+    }
 
     // 🔔 CREATE notification for new user registration
     public void notifyNewUserRegistration(String userName) {
-        // You can improve this by looping through all admins (if multiple)
-        List<Admin> admins = adminRepository.findAll();
-
-        for (Admin admin : admins) {
-            AdminNotification notification = new AdminNotification();
-            notification.setAdmin(admin);
-            notification.setType("NEW_USER");
-            notification.setMessage("New user registered: " + userName);
-            notification.setRead(false);
-            notificationRepository.save(notification);
-        }
+        notificationDispatcher.publishAdmin("New user registered: " + userName, "NEW_USER");
     }
 
-    // 📥 Get notifications by adminId
-    public List<AdminNotificationDTO> getNotificationsByAdminId(Long adminId) {
-        return notificationRepository.findByAdminId(adminId)
+    // 📥 Get one page of notifications for an admin, newest first
+    public List<AdminNotificationDTO> getNotificationsByAdminId(Long adminId, Long beforeId, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        long lastReadId = lastReadId(adminId);
+        return systemEventRepository.findPage(beforeId, PageRequest.of(0, size))
                 .stream()
-                .map(AdminNotificationMapper::toDTO)
+                .map(event -> AdminNotificationMapper.toDTO(event, adminId, lastReadId))
                 .collect(Collectors.toList());
     }
 
-    // ✅ Mark notification as read
-    public void markAsRead(Long notificationId) {
-        AdminNotification notification = notificationRepository.findById(notificationId).orElse(null);
-        if (notification != null) {
-            notification.setRead(true);
-            notificationRepository.save(notification);
-        }
+    public long getUnreadCount(Long adminId) {
+        return systemEventRepository.countByIdGreaterThan(lastReadId(adminId));
+    }
+
+    // ✅ Mark notification as read (and, with a cursor, everything older than it)
+    public void markAsRead(Long adminId, Long notificationId) {
+        // A cursor past the newest event would mark future events read
+        cursorRepository.advance(adminId, Math.min(notificationId, systemEventRepository.findMaxId()));
     }
 
+    public void markAllAsRead(Long adminId) {
+        cursorRepository.advance(adminId, systemEventRepository.findMaxId());
+    }
+
+    // Written asynchronously, once for all admins
     public void createSystemNotification(String message, String type) {
-        List<Admin> admins = adminRepository.findAll();
-
-        for (Admin admin : admins) {
-            AdminNotification notification = new AdminNotification();
-            notification.setAdmin(admin);
-            notification.setMessage(message);
-            notification.setType(type);
-            notification.setCreatedAt(LocalDateTime.now());
-            notification.setRead(false);
-            notificationRepository.save(notification);
+        notificationDispatcher.publishAdmin(message, type);
+    }
+
+    private void migrateLegacyNotifications() {
+        Integer legacy = jdbcTemplate.queryForObject(LEGACY_TABLE_SQL, Integer.class);
+        Integer events = jdbcTemplate.queryForObject(EVENTS_EXIST_SQL, Integer.class);
+        if (legacy == null || legacy == 0 || (events != null && events > 0)) {
+            return;
         }
+        int migrated = jdbcTemplate.update(MIGRATE_EVENTS_SQL);
+        int cursors = migrated > 0 ? jdbcTemplate.update(MIGRATE_CURSORS_SQL) : 0;
+        log.info("Migrated admin_notifications: events={}, cursors={}", migrated, cursors);
     }
 
+    private long lastReadId(Long adminId) {
+        return cursorRepository.findLastReadId(adminId).orElse(0L);
+    }
 }
@@ -0,0 +1,265 @@
+package com.bentork.ev_system.service;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.enums.SessionStatus;
+import com.bentork.ev_system.util.HashedTimingWheel;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable auto-stop deadlines (plan time-outs and the kWh safety fallback).
+ *
+ * The deadline is stored in sessions.auto_stop_at, so it survives restarts.
+ * Each node periodically loads the deadlines falling within the next poll
+ * window into a hashed timing wheel; the wheel hands due sessions over in
+ * batches.
+ *
+ * Before firing, a node claims the batch with one conditional UPDATE that
+ * stamps its owner token and pushes auto_stop_at out by a lease, then reads
+ * back the rows carrying that token. Only those are stopped, so a session
+ * is fired by exactly one node; if that node dies mid-way, the lease expires
+ * and another node picks the session up.
+ */
+@Slf4j
+@Service
+public class AutoStopScheduler {
+
+    private static final String SCHEDULE_SQL = "UPDATE sessions SET auto_stop_at = ?, auto_stop_owner = NULL "
+            + "WHERE id = ?";
+
+    private static final String CLEAR_SQL = "UPDATE sessions SET auto_stop_at = NULL, auto_stop_owner = NULL "
+            + "WHERE id = ?";
+
+    private static final String LOAD_SQL = "SELECT id, auto_stop_at FROM sessions "
+            + "WHERE auto_stop_at IS NOT NULL AND auto_stop_at <= ? AND status IN (?, ?)";
+
+    private static final String CLAIM_SQL = "UPDATE sessions "
+            + "SET auto_stop_owner = :owner, auto_stop_at = :leaseUntil "
+            + "WHERE id IN (:ids) AND auto_stop_at <= :now";
+
+    private static final String CLAIMED_SQL = "SELECT id FROM sessions "
+            + "WHERE id IN (:ids) AND auto_stop_owner = :owner";
+
+    private static final String RELEASE_SQL = "UPDATE sessions SET auto_stop_at = ?, auto_stop_owner = NULL "
+            + "WHERE id = ? AND auto_stop_owner = ?";
+
+    private static final int CLAIM_BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    @Lazy // SessionService schedules through this service
+    private SessionService sessionService;
+
+    @Value("${auto-stop.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${auto-stop.wheel-size:512}")
+    private int wheelSize;
+
+    // Deadlines up to two poll intervals ahead are kept in memory
+    @Value("${auto-stop.poll-interval-ms:60000}")
+    private long pollIntervalMs;
+
+    // A claimed session becomes claimable again after this long
+    @Value("${auto-stop.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${auto-stop.fire-threads:4}")
+    private int fireThreads;
+
+    @Value("${auto-stop.node-id:}")
+    private String configuredNodeId;
+
+    private String nodeId;
+    private final AtomicLong claimSeq = new AtomicLong();
+
+    private HashedTimingWheel<Long> wheel;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    private ExecutorService firePool;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank() ? configuredNodeId : defaultNodeId();
+        wheel = new HashedTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        firePool = Executors.newFixedThreadPool(fireThreads);
+
+        // Rebuild the wheel from the DB, including deadlines missed while down
+        try {
+            loadUpcoming();
+        } catch (Exception e) {
+            log.error("Failed to load auto-stop deadlines: {}", e.getMessage(), e);
+        }
+
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(() -> {
+            try {
+                loadUpcoming();
+            } catch (Exception e) {
+                log.error("Failed to load auto-stop deadlines: {}", e.getMessage(), e);
+            }
+        }, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+
+        log.info("Auto-stop scheduler started: nodeId={}, tickMs={}, pending={}", nodeId, tickMs, pendingCount());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        firePool.shutdown();
+        try {
+            firePool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Persist the auto-stop deadline of a session (replacing any previous one).
+     */
+    public void schedule(Long sessionId, LocalDateTime deadline) {
+        jdbcTemplate.update(SCHEDULE_SQL, Timestamp.valueOf(deadline), sessionId);
+        long deadlineMs = toMillis(deadline);
+        synchronized (this) {
+            if (deadlineMs <= System.currentTimeMillis() + 2 * pollIntervalMs) {
+                wheel.add(sessionId, deadlineMs);
+            } else {
+                // Loaded by a later poll
+                wheel.cancel(sessionId);
+            }
+        }
+        log.debug("Auto-stop scheduled: sessionId={}, at={}", sessionId, deadline);
+    }
+
+    /**
+     * Drop the deadline of a session that ended by other means.
+     */
+    public void cancel(Long sessionId) {
+        synchronized (this) {
+            wheel.cancel(sessionId);
+        }
+        jdbcTemplate.update(CLEAR_SQL, sessionId);
+    }
+
+    public synchronized int pendingCount() {
+        return wheel.size();
+    }
+
+    private void loadUpcoming() {
+        LocalDateTime horizon = LocalDateTime.now().plus(2 * pollIntervalMs, ChronoUnit.MILLIS);
+        List<long[]> rows = jdbcTemplate.query(LOAD_SQL,
+                (rs, rowNum) -> new long[] { rs.getLong("id"), rs.getTimestamp("auto_stop_at").getTime() },
+                Timestamp.valueOf(horizon), SessionStatus.INITIATED.getValue(), SessionStatus.ACTIVE.getValue());
+        int added = 0;
+        synchronized (this) {
+            for (long[] row : rows) {
+                if (!wheel.contains(row[0])) {
+                    wheel.add(row[0], row[1]);
+                    added++;
+                }
+            }
+        }
+        if (added > 0) {
+            log.debug("Loaded {} upcoming auto-stop deadlines", added);
+        }
+    }
+
+    private void tick() {
+        try {
+            List<Long> due;
+            synchronized (this) {
+                due = wheel.advance(System.currentTimeMillis());
+            }
+            for (int from = 0; from < due.size(); from += CLAIM_BATCH_SIZE) {
+                List<Long> batch = new ArrayList<>(due.subList(from, Math.min(from + CLAIM_BATCH_SIZE, due.size())));
+                firePool.execute(() -> claimAndFire(batch));
+            }
+        } catch (Exception e) {
+            log.error("Auto-stop tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void claimAndFire(List<Long> sessionIds) {
+        String owner = nodeId + ":" + claimSeq.incrementAndGet();
+        List<Long> claimed;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("owner", owner)
+                    .addValue("leaseUntil", Timestamp.valueOf(now.plus(leaseMs, ChronoUnit.MILLIS)))
+                    .addValue("ids", sessionIds)
+                    .addValue("now", Timestamp.valueOf(now));
+            int updated = namedParameterJdbcTemplate.update(CLAIM_SQL, params);
+            if (updated == 0) {
+                // Claimed elsewhere, cancelled or moved
+                return;
+            }
+            claimed = namedParameterJdbcTemplate.queryForList(CLAIMED_SQL, params, Long.class);
+        } catch (Exception e) {
+            log.error("Failed to claim {} auto-stop sessions: {}", sessionIds.size(), e.getMessage(), e);
+            return;
+        }
+
+        log.info("Auto-stop firing {} of {} due sessions (owner={})", claimed.size(), sessionIds.size(), owner);
+        for (Long sessionId : claimed) {
+            try {
+                sessionService.stopSessionBySystem(sessionId);
+                jdbcTemplate.update(CLEAR_SQL, sessionId);
+            } catch (Exception e) {
+                // Leave it for a retry once the lease ran out
+                log.error("Auto-stop failed: sessionId={}: {}", sessionId, e.getMessage(), e);
+                try {
+                    jdbcTemplate.update(RELEASE_SQL,
+                            Timestamp.valueOf(LocalDateTime.now().plus(leaseMs, ChronoUnit.MILLIS)), sessionId, owner);
+                } catch (Exception releaseEx) {
+                    log.error("Failed to release auto-stop claim: sessionId={}: {}",
+                            sessionId, releaseEx.getMessage());
+                }
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        // Random suffix so a restarted node never matches its old claims
+        String id = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 40 ? id.substring(id.length() - 40) : id;
+    }
+}
@@ -26,6 +26,12 @@ public class ChargerService {
     @Autowired
     private StationRepository stationRepository;
 
+    @Autowired
+    private ChargerStateCache chargerStateCache;
+
+    @Autowired
+    private DashboardAggregateService dashboardAggregateService;
+
     public String createCharger(ChargerDTO dto) {
         try {
             Station station = stationRepository.findById(dto.getStationId())
@@ -34,6 +40,7 @@ public class ChargerService {
         Charger charger = ChargerMapper.toEntity(dto);
         charger.setStation(station);
         chargerRepository.save(charger);
+        chargerStateCache.refresh(charger);
 
         log.info("Charger created: id={}, ocppId={}", charger.getId(), charger.getOcppId(), station.getId());
         return "Charger Created";
@@ -86,6 +93,7 @@ public class ChargerService {
                 .orElseThrow(() -> new EntityNotFoundException("Station not found with ID: " + dto.getStationId()));
 
             String oldType = charger.getChargerType();
+            String oldOcppId = charger.getOcppId();
             charger.setStation(station);
             charger.setOcppId(dto.getOcppId());
             charger.setConnectorType(dto.getConnectorType());
@@ -96,6 +104,8 @@ public class ChargerService {
             
 
             chargerRepository.save(charger);
+            chargerStateCache.evict(oldOcppId);
+            chargerStateCache.refresh(charger);
 
             log.info("Charger updated: id={}, ocppId={}, type changed from {} to {}", id, charger.getOcppId(), oldType, charger.getChargerType());
             return "Charger Updated";
@@ -110,10 +120,10 @@ public class ChargerService {
 
     public String deleteCharger(Long id) {
        try {
-            if (!chargerRepository.existsById(id)) {
-                throw new EntityNotFoundException("Charger not found with ID: " + id);
-            }
+            Charger charger = chargerRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Charger not found with ID: " + id));
             chargerRepository.deleteById(id);
+            chargerStateCache.evict(charger.getOcppId());
             log.info("Charger deleted: id={}", id);
             return "Charger Deleted";
         } catch (EntityNotFoundException e) {
@@ -128,7 +138,7 @@ public class ChargerService {
     // Total Chargers
     public Long getTotalChargers() {
        try {
-            Long total = chargerRepository.count();
+            Long total = dashboardAggregateService.getTotalChargers();
             log.debug("Total chargers: {}", total);
             return total;
         } catch (Exception e) {
@@ -138,10 +148,7 @@ public class ChargerService {
     }
     public Long getAvailableChargers() {
         try {
-            Long available = chargerRepository.findAll().stream()
-                    .filter(charger -> Boolean.TRUE.equals(charger.isAvailability())
-                            && Boolean.FALSE.equals(charger.isOccupied()))
-                    .count();
+            Long available = dashboardAggregateService.getAvailableChargers();
             log.debug("Available chargers: {}", available);
             return available;
         } catch (Exception e) {
@@ -153,9 +160,7 @@ public class ChargerService {
     // AC Chargers
     public Long getACChargers() {
         try {
-            Long acCount = chargerRepository.findAll().stream()
-                .filter(charger -> "AC".equalsIgnoreCase(charger.getChargerType()))
-                .count();
+            Long acCount = dashboardAggregateService.getAcChargers();
             log.debug("Total AC chargers: {}", acCount);
             return acCount;
         } catch (Exception e) {
@@ -167,9 +172,7 @@ public class ChargerService {
     // DC Chargers
     public Long getDCChargers() {
         try {
-            Long dcCount = chargerRepository.findAll().stream()
-                .filter(charger -> "DC".equalsIgnoreCase(charger.getChargerType()))
-                .count();
+            Long dcCount = dashboardAggregateService.getDcChargers();
             log.debug("Total DC chargers: {}", dcCount);
             return dcCount;
         } catch (Exception e) {
@@ -0,0 +1,201 @@
+package com.bentork.ev_system.service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.model.Charger;
+import com.bentork.ev_system.repository.ChargerRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory availability / occupancy / status of every charger, keyed by
+ * ocppId.
+ *
+ * OCPP events change state here first; the database is only written when a
+ * value actually changes, with a targeted UPDATE of the three state columns.
+ * The whole fleet is loaded once at startup, and a charger's entry is
+ * reloaded when it connects. Free / occupied transitions and admin changes
+ * are reported to the dashboard totals.
+ */
+@Slf4j
+@Service
+public class ChargerStateCache {
+
+    @Autowired
+    private ChargerRepository chargerRepository;
+
+    @Autowired
+    private DashboardAggregateService dashboardAggregateService;
+
+    private final Map<String, ChargerState> states = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        try {
+            warmUp();
+        } catch (Exception e) {
+            // Retried on first use
+            log.error("Failed to load charger state cache: {}", e.getMessage(), e);
+        }
+    }
+
+    private void warmUp() {
+        for (Charger charger : chargerRepository.findAll()) {
+            states.put(charger.getOcppId(), new ChargerState(charger));
+        }
+        log.info("Charger state cache loaded: {} chargers", states.size());
+    }
+
+    /**
+     * Reload one charger from the database (e.g. when it connects). Returns
+     * null if no charger has this ocppId.
+     */
+    public ChargerState load(String ocppId) {
+        Charger charger = chargerRepository.findByOcppId(ocppId).orElse(null);
+        if (charger == null) {
+            states.remove(ocppId);
+            return null;
+        }
+        ChargerState state = new ChargerState(charger);
+        ChargerState previous = states.put(ocppId, state);
+        // A first load is already counted by the dashboard reconciliation
+        if (previous != null) {
+            dashboardAggregateService.onChargerStateChanged(previous.isFree(), state.isFree());
+        }
+        return state;
+    }
+
+    /**
+     * Cached state of a charger, loading it on a miss. Returns null for
+     * unknown chargers.
+     */
+    public ChargerState get(String ocppId) {
+        ChargerState state = states.get(ocppId);
+        return state != null ? state : load(ocppId);
+    }
+
+    /**
+     * Apply a state change; persists only if something changed.
+     *
+     * @return true if the state changed
+     */
+    public boolean update(String ocppId, boolean availability, boolean occupied, String status) {
+        ChargerState state = get(ocppId);
+        if (state == null) {
+            log.warn("State change for unknown charger {}", ocppId);
+            return false;
+        }
+        return state.apply(availability, occupied, status != null ? status : state.getStatus());
+    }
+
+    /**
+     * Same as update() but leaves status as it is.
+     */
+    public boolean updateAvailability(String ocppId, boolean availability, boolean occupied) {
+        return update(ocppId, availability, occupied, null);
+    }
+
+    /**
+     * Replace the cached entry after the charger was saved through JPA
+     * (admin create/update).
+     */
+    public void refresh(Charger charger) {
+        ChargerState state = new ChargerState(charger);
+        ChargerState previous = states.put(charger.getOcppId(), state);
+        if (previous != null) {
+            dashboardAggregateService.onChargerRemoved(previous.getChargerType(), previous.isFree());
+        }
+        dashboardAggregateService.onChargerAdded(state.getChargerType(), state.isFree());
+    }
+
+    /**
+     * Drop a charger that was deleted or renamed.
+     */
+    public void evict(String ocppId) {
+        if (ocppId == null) {
+            return;
+        }
+        ChargerState removed = states.remove(ocppId);
+        if (removed != null) {
+            dashboardAggregateService.onChargerRemoved(removed.getChargerType(), removed.isFree());
+        }
+    }
+
+    /**
+     * Cached state of one charger. Changes are serialized per charger.
+     */
+    public class ChargerState {
+
+        private final Long id;
+        private final String ocppId;
+        private final String chargerType;
+
+        private boolean availability;
+        private boolean occupied;
+        private String status;
+
+        private ChargerState(Charger charger) {
+            this.id = charger.getId();
+            this.ocppId = charger.getOcppId();
+            this.chargerType = charger.getChargerType();
+            this.availability = charger.isAvailability();
+            this.occupied = charger.isOccupied();
+            this.status = charger.getStatus();
+        }
+
+        private synchronized boolean apply(boolean availability, boolean occupied, String status) {
+            if (this.availability == availability && this.occupied == occupied
+                    && Objects.equals(this.status, status)) {
+                return false;
+            }
+
+            chargerRepository.updateState(id, availability, occupied, status);
+            dashboardAggregateService.onChargerStateChanged(this.availability && !this.occupied,
+                    availability && !occupied);
+            log.debug("Charger {} state: available={}->{}, occupied={}->{}, status={}->{}",
+                    ocppId, this.availability, availability, this.occupied, occupied, this.status, status);
+
+            this.availability = availability;
+            this.occupied = occupied;
+            this.status = status;
+            return true;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getOcppId() {
+            return ocppId;
+        }
+
+        public String getChargerType() {
+            return chargerType;
+        }
+
+        public synchronized boolean isAvailability() {
+            return availability;
+        }
+
+        public synchronized boolean isOccupied() {
+            return occupied;
+        }
+
+        public synchronized String getStatus() {
+            return status;
+        }
+
+        /**
+         * Available and not occupied.
+         */
+        public synchronized boolean isFree() {
+            return availability && !occupied;
+        }
+    }
+}
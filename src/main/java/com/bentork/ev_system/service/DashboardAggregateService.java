@@ -0,0 +1,308 @@
+package com.bentork.ev_system.service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.enums.SessionStatus;
+import com.bentork.ev_system.repository.ChargerRepository;
+import com.bentork.ev_system.repository.RevenueRepository;
+import com.bentork.ev_system.repository.SessionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Running totals behind the admin dashboard counters.
+ *
+ * Services report session, revenue and charger state changes as they
+ * happen, so every dashboard read is O(1). The totals are rebuilt from the
+ * database at startup and on a fixed interval to correct any drift (e.g.
+ * changes made directly in the database or an update racing with a
+ * reconciliation).
+ */
+@Slf4j
+@Service
+public class DashboardAggregateService {
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private RevenueRepository revenueRepository;
+
+    @Autowired
+    private ChargerRepository chargerRepository;
+
+    @Autowired
+    private Clock clock;
+
+    @Value("${dashboard.reconcile-interval-ms:300000}")
+    private long reconcileIntervalMs;
+
+    // Sessions
+    private final AtomicLong totalSessions = new AtomicLong();
+    private final AtomicLong completedSessions = new AtomicLong();
+    private final AtomicLong activeSessions = new AtomicLong();
+    private final DoubleAdder completedEnergyKwh = new DoubleAdder();
+    private final AtomicLong failedToday = new AtomicLong();
+    private volatile LocalDate failedTodayDate;
+
+    // Revenue, keyed by upper-cased payment status
+    private final Map<String, RevenueTotals> revenueByStatus = new ConcurrentHashMap<>();
+
+    // Chargers
+    private final AtomicLong totalChargers = new AtomicLong();
+    private final AtomicLong availableChargers = new AtomicLong();
+    private final AtomicLong acChargers = new AtomicLong();
+    private final AtomicLong dcChargers = new AtomicLong();
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor();
+
+    @PostConstruct
+    public void init() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Initial dashboard reconciliation failed: {}", e.getMessage(), e);
+        }
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.error("Dashboard reconciliation failed: {}", e.getMessage(), e);
+            }
+        }, reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    // ---- Session events ----
+
+    public void onSessionCreated() {
+        totalSessions.incrementAndGet();
+    }
+
+    public void onSessionActivated() {
+        activeSessions.incrementAndGet();
+    }
+
+    /**
+     * @param wasActive whether the session was counted as active
+     */
+    public void onSessionCompleted(boolean wasActive, double energyKwh) {
+        if (wasActive) {
+            decrementActive();
+        }
+        completedSessions.incrementAndGet();
+        completedEnergyKwh.add(energyKwh);
+    }
+
+    /**
+     * @param wasActive whether the session was counted as active
+     * @param createdAt creation time, to decide if it counts as failed today
+     */
+    public void onSessionFailed(boolean wasActive, LocalDateTime createdAt) {
+        if (wasActive) {
+            decrementActive();
+        }
+        LocalDate today = rollFailedToday();
+        if (createdAt != null && createdAt.toLocalDate().equals(today)) {
+            failedToday.incrementAndGet();
+        }
+    }
+
+    private void decrementActive() {
+        activeSessions.getAndUpdate(count -> count > 0 ? count - 1 : 0);
+    }
+
+    // ---- Revenue events ----
+
+    public void onRevenueRecorded(String paymentStatus, double amount) {
+        revenueTotals(paymentStatus).add(1, amount);
+    }
+
+    public void onRevenueDeleted(String paymentStatus, double amount) {
+        revenueTotals(paymentStatus).add(-1, -amount);
+    }
+
+    private RevenueTotals revenueTotals(String paymentStatus) {
+        String key = paymentStatus != null ? paymentStatus.toUpperCase() : "UNKNOWN";
+        return revenueByStatus.computeIfAbsent(key, k -> new RevenueTotals());
+    }
+
+    // ---- Charger events ----
+
+    public void onChargerAdded(String chargerType, boolean free) {
+        totalChargers.incrementAndGet();
+        typeCounter(chargerType, 1);
+        if (free) {
+            availableChargers.incrementAndGet();
+        }
+    }
+
+    public void onChargerRemoved(String chargerType, boolean free) {
+        totalChargers.decrementAndGet();
+        typeCounter(chargerType, -1);
+        if (free) {
+            availableChargers.decrementAndGet();
+        }
+    }
+
+    /**
+     * A charger is free when it is available and not occupied.
+     */
+    public void onChargerStateChanged(boolean wasFree, boolean isFree) {
+        if (wasFree != isFree) {
+            availableChargers.addAndGet(isFree ? 1 : -1);
+        }
+    }
+
+    private void typeCounter(String chargerType, int delta) {
+        if ("AC".equalsIgnoreCase(chargerType)) {
+            acChargers.addAndGet(delta);
+        } else if ("DC".equalsIgnoreCase(chargerType)) {
+            dcChargers.addAndGet(delta);
+        }
+    }
+
+    // ---- Reads ----
+
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    public long getCompletedSessions() {
+        return completedSessions.get();
+    }
+
+    public long getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public double getCompletedEnergyKwh() {
+        return completedEnergyKwh.sum();
+    }
+
+    public long getFailedToday() {
+        rollFailedToday();
+        return failedToday.get();
+    }
+
+    public double getRevenueAmount(String paymentStatus) {
+        RevenueTotals totals = revenueByStatus.get(paymentStatus.toUpperCase());
+        return totals != null ? totals.amount.sum() : 0.0;
+    }
+
+    public long getRevenueCount(String paymentStatus) {
+        RevenueTotals totals = revenueByStatus.get(paymentStatus.toUpperCase());
+        return totals != null ? totals.count.get() : 0L;
+    }
+
+    public long getRevenueTransactionCount() {
+        return revenueByStatus.values().stream().mapToLong(totals -> totals.count.get()).sum();
+    }
+
+    public long getTotalChargers() {
+        return totalChargers.get();
+    }
+
+    public long getAvailableChargers() {
+        return availableChargers.get();
+    }
+
+    public long getAcChargers() {
+        return acChargers.get();
+    }
+
+    public long getDcChargers() {
+        return dcChargers.get();
+    }
+
+    // ---- Reconciliation ----
+
+    /**
+     * Rebuild all totals from the database.
+     */
+    public synchronized void reconcile() {
+        long started = System.currentTimeMillis();
+
+        LocalDate today = LocalDate.now(clock);
+        long completed = sessionRepository.countByStatus(SessionStatus.COMPLETED.getValue());
+        long active = sessionRepository.countByStatus(SessionStatus.ACTIVE.getValue());
+        long failed = sessionRepository.countByStatusCreatedBetween(SessionStatus.FAILED.getValue(),
+                today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+        double energy = sessionRepository.sumEnergyKwhByStatus(SessionStatus.COMPLETED.getValue());
+
+        logDrift("completedSessions", completedSessions.get(), completed);
+        logDrift("activeSessions", activeSessions.get(), active);
+
+        totalSessions.set(sessionRepository.count());
+        completedSessions.set(completed);
+        activeSessions.set(active);
+        completedEnergyKwh.reset();
+        completedEnergyKwh.add(energy);
+        failedTodayDate = today;
+        failedToday.set(failed);
+
+        List<Object[]> revenueRows = revenueRepository.summarizeByPaymentStatus();
+        revenueByStatus.clear();
+        for (Object[] row : revenueRows) {
+            RevenueTotals totals = revenueTotals((String) row[0]);
+            totals.add(((Number) row[1]).longValue(), ((Number) row[2]).doubleValue());
+        }
+
+        totalChargers.set(chargerRepository.count());
+        availableChargers.set(chargerRepository.countAvailable());
+        acChargers.set(chargerRepository.countByChargerTypeIgnoreCase("AC"));
+        dcChargers.set(chargerRepository.countByChargerTypeIgnoreCase("DC"));
+
+        log.debug("Dashboard totals reconciled in {} ms", System.currentTimeMillis() - started);
+    }
+
+    private void logDrift(String name, long inMemory, long fromDb) {
+        if (inMemory != fromDb) {
+            log.info("Dashboard counter {} corrected: {} -> {}", name, inMemory, fromDb);
+        }
+    }
+
+    // Reset the failed-today counter when the day changes
+    private LocalDate rollFailedToday() {
+        LocalDate today = LocalDate.now(clock);
+        if (!today.equals(failedTodayDate)) {
+            synchronized (this) {
+                if (!today.equals(failedTodayDate)) {
+                    failedTodayDate = today;
+                    failedToday.set(0);
+                }
+            }
+        }
+        return today;
+    }
+
+    private static final class RevenueTotals {
+        private final AtomicLong count = new AtomicLong();
+        private final DoubleAdder amount = new DoubleAdder();
+
+        private void add(long countDelta, double amountDelta) {
+            count.addAndGet(countDelta);
+            amount.add(amountDelta);
+        }
+    }
+}
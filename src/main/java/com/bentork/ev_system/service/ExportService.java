@@ -0,0 +1,274 @@
+package com.bentork.ev_system.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bentork.ev_system.dto.request.RevenueDTO;
+import com.bentork.ev_system.dto.request.SessionRecordDTO;
+import com.bentork.ev_system.model.WalletTransaction;
+import com.bentork.ev_system.repository.RevenueRepository;
+import com.bentork.ev_system.repository.SessionRepository;
+import com.bentork.ev_system.repository.WalletTransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes sessions, revenue and wallet transactions of a date range as CSV or
+ * NDJSON.
+ *
+ * Rows are read through a streaming result set inside one read-only
+ * transaction and written out one at a time, so memory use does not depend
+ * on the number of rows. A plain InnoDB SELECT takes no row locks.
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Invalid format: " + value + " (expected csv or ndjson)");
+            }
+        }
+    }
+
+    private static final List<Column<SessionRecordDTO>> SESSION_COLUMNS = List.of(
+            new Column<>("id", SessionRecordDTO::getId),
+            new Column<>("user_id", SessionRecordDTO::getUserId),
+            new Column<>("user_name", SessionRecordDTO::getUserName),
+            new Column<>("charger_id", SessionRecordDTO::getChargerId),
+            new Column<>("charger_ocpp_id", SessionRecordDTO::getChargerOcppId),
+            new Column<>("station_id", SessionRecordDTO::getStationId),
+            new Column<>("station_name", SessionRecordDTO::getStationName),
+            new Column<>("box_id", SessionRecordDTO::getBoxId),
+            new Column<>("status", SessionRecordDTO::getStatus),
+            new Column<>("source_type", SessionRecordDTO::getSourceType),
+            new Column<>("start_time", SessionRecordDTO::getStartTime),
+            new Column<>("end_time", SessionRecordDTO::getEndTime),
+            new Column<>("energy_kwh", SessionRecordDTO::getEnergyKwh),
+            new Column<>("cost", SessionRecordDTO::getCost),
+            new Column<>("created_at", SessionRecordDTO::getCreatedAt));
+
+    private static final List<Column<RevenueDTO>> REVENUE_COLUMNS = List.of(
+            new Column<>("id", RevenueDTO::getId),
+            new Column<>("session_id", RevenueDTO::getSessionId),
+            new Column<>("user_id", RevenueDTO::getUserId),
+            new Column<>("charger_id", RevenueDTO::getChargerId),
+            new Column<>("station_id", RevenueDTO::getStationId),
+            new Column<>("amount", RevenueDTO::getAmount),
+            new Column<>("payment_method", RevenueDTO::getPaymentMethod),
+            new Column<>("transaction_id", RevenueDTO::getTransactionId),
+            new Column<>("payment_status", RevenueDTO::getPaymentStatus),
+            new Column<>("created_at", RevenueDTO::getCreatedAt));
+
+    private static final List<Column<WalletTransaction>> WALLET_COLUMNS = List.of(
+            new Column<>("id", WalletTransaction::getId),
+            new Column<>("user_id", WalletTransaction::getUserId),
+            new Column<>("session_id", WalletTransaction::getSessionId),
+            new Column<>("type", WalletTransaction::getType),
+            new Column<>("method", WalletTransaction::getMethod),
+            new Column<>("status", WalletTransaction::getStatus),
+            new Column<>("amount", WalletTransaction::getAmount),
+            new Column<>("gross_amount", WalletTransaction::getGrossAmount),
+            new Column<>("gst_amount", WalletTransaction::getGstAmount),
+            new Column<>("pst_amount", WalletTransaction::getPstAmount),
+            new Column<>("transaction_ref", WalletTransaction::getTransactionRef),
+            new Column<>("created_at", WalletTransaction::getCreatedAt));
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private RevenueRepository revenueRepository;
+
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public long exportSessions(LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        return export("sessions", format, out, SESSION_COLUMNS,
+                () -> sessionRepository.streamForExport(from, to), null);
+    }
+
+    public long exportRevenue(LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        return export("revenue", format, out, REVENUE_COLUMNS,
+                () -> revenueRepository.streamForExport(from, to), null);
+    }
+
+    public long exportWalletTransactions(LocalDateTime from, LocalDateTime to, Format format, OutputStream out)
+            throws IOException {
+        // Entities, not projections: detach each one so the persistence context stays empty
+        return export("wallet transactions", format, out, WALLET_COLUMNS,
+                () -> walletTransactionRepository.streamForExport(from, to), entityManager::detach);
+    }
+
+    private <T> long export(String name, Format format, OutputStream out, List<Column<T>> columns,
+            StreamSource<T> source, Consumer<T> afterWrite) throws IOException {
+        long started = System.currentTimeMillis();
+        RowWriter<T> writer = format == Format.CSV ? new CsvRowWriter<>(out, columns) : new NdjsonRowWriter<>(out);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+
+        Long count;
+        try {
+            count = tx.execute(status -> {
+                long rows = 0;
+                try (Stream<T> stream = source.open()) {
+                    for (T row : (Iterable<T>) stream::iterator) {
+                        writer.write(row);
+                        if (afterWrite != null) {
+                            afterWrite.accept(row);
+                        }
+                        rows++;
+                    }
+                }
+                return rows;
+            });
+        } catch (UncheckedIOException e) {
+            // Typically the client went away
+            log.warn("Export of {} aborted: {}", name, e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.finish();
+
+        log.info("Exported {} {} rows as {} in {} ms", count, name, format, System.currentTimeMillis() - started);
+        return count != null ? count : 0;
+    }
+
+    @FunctionalInterface
+    private interface StreamSource<T> {
+        Stream<T> open();
+    }
+
+    private record Column<T>(String name, Function<T, Object> value) {
+    }
+
+    private interface RowWriter<T> {
+        // Throws UncheckedIOException so it can be used inside the transaction callback
+        void write(T row);
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter<T> implements RowWriter<T> {
+        private final Writer out;
+        private final List<Column<T>> columns;
+
+        private CsvRowWriter(OutputStream out, List<Column<T>> columns) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.columns = columns;
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    this.out.write(',');
+                }
+                this.out.write(columns.get(i).name());
+            }
+            this.out.write('\n');
+        }
+
+        @Override
+        public void write(T row) {
+            try {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    Object value = columns.get(i).value().apply(row);
+                    if (value != null) {
+                        writeField(value.toString());
+                    }
+                }
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // RFC 4180: quote fields containing a separator, quote or line break
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    private final class NdjsonRowWriter<T> implements RowWriter<T> {
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+
+        private NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+            // Let the generator buffer; flushing per row would defeat gzip
+            this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        public void write(T row) {
+            try {
+                writer.writeValue(generator, row);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+}
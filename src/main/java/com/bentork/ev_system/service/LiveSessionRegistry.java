@@ -0,0 +1,388 @@
+package com.bentork.ev_system.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.enums.SessionStatus;
+import com.bentork.ev_system.model.Receipt;
+import com.bentork.ev_system.model.Session;
+import com.bentork.ev_system.repository.ReceiptRepository;
+import com.bentork.ev_system.repository.SessionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory state of sessions that are currently charging, keyed by OCPP
+ * transactionId.
+ *
+ * State is loaded once at StartTransaction so MeterValues can be handled
+ * without touching the database. Readings are written back write-behind:
+ * samples of one session coalesce into a single dirty row, and dirty rows are
+ * flushed as one JDBC batch every flush interval or as soon as flush-batch-size
+ * sessions are pending, whichever comes first. Stopping a session and shutdown
+ * always flush.
+ */
+@Slf4j
+@Service
+public class LiveSessionRegistry {
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Only rows that are still ACTIVE are written, so a late flush can never
+    // overwrite a finalized session
+    private static final String UPDATE_METER_PROGRESS_SQL = "UPDATE sessions SET energy_kwh = ?, last_meter_reading = ? "
+            + "WHERE id = ? AND status = ?";
+
+    // RFID sessions also carry the cost billed so far
+    private static final String UPDATE_RFID_PROGRESS_SQL = "UPDATE sessions SET energy_kwh = ?, cost = ?, last_meter_reading = ? "
+            + "WHERE id = ? AND status = ?";
+
+    @Value("${ocpp.live-session.flush-interval-ms:30000}")
+    private long flushIntervalMs;
+
+    @Value("${ocpp.live-session.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private final Map<Integer, LiveSession> sessions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+
+    // Sessions that became dirty since the last flush
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean earlyFlushQueued = new AtomicBoolean();
+
+    // Serializes batch writes so an older snapshot never lands after a newer one
+    private final Object writeLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        flusher.scheduleWithFixedDelay(this::flushDirty, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Live session registry started: flushIntervalMs={}, flushBatchSize={}",
+                flushIntervalMs, flushBatchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Final flush so no reading is lost on shutdown
+        flushDirty();
+        log.info("Live session registry stopped ({} sessions tracked)", sessions.size());
+    }
+
+    /**
+     * Start tracking a session. The session must already carry its start meter
+     * reading.
+     */
+    public LiveSession register(int transactionId, Session session, Receipt receipt) {
+        LiveSession live = new LiveSession(this, transactionId, session, receipt);
+        sessions.put(transactionId, live);
+        log.debug("Live session registered: txId={}, sessionId={}, source={}, selectedKwh={}",
+                transactionId, live.getSessionId(), live.getSourceType(), live.getSelectedKwh());
+        return live;
+    }
+
+    public LiveSession get(int transactionId) {
+        return sessions.get(transactionId);
+    }
+
+    /**
+     * Return the tracked session, rebuilding it from the database if it is not
+     * in memory (e.g. after a restart). Returns null when no active session
+     * matches the transaction.
+     */
+    public LiveSession getOrLoad(int transactionId) {
+        LiveSession live = sessions.get(transactionId);
+        if (live != null) {
+            return live;
+        }
+
+        // transactionId is issued from the session id in handleStartTransaction
+        Session session = sessionRepository.findById((long) transactionId).orElse(null);
+        if (session == null || !SessionStatus.ACTIVE.matches(session.getStatus())) {
+            return null;
+        }
+
+        Receipt receipt = receiptRepository.findBySession(session).orElse(null);
+        LiveSession loaded = new LiveSession(this, transactionId, session, receipt);
+        LiveSession existing = sessions.putIfAbsent(transactionId, loaded);
+
+        log.info("Live session rebuilt from DB: txId={}, sessionId={}", transactionId, session.getId());
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Flush pending readings and stop tracking the transaction.
+     */
+    public LiveSession remove(int transactionId) {
+        LiveSession live = sessions.remove(transactionId);
+        if (live != null) {
+            write(List.of(live));
+        }
+        return live;
+    }
+
+    /**
+     * Stop tracking a session that is being finalized and copy its latest
+     * readings onto the entity, so the caller's save carries the final values.
+     */
+    public void detach(Session session) {
+        if (session.getId() == null) {
+            return;
+        }
+        LiveSession live = sessions.remove(session.getId().intValue());
+        if (live != null) {
+            live.applyTo(session);
+        }
+    }
+
+    /**
+     * Write all sessions with unflushed readings as one JDBC batch.
+     */
+    void flushDirty() {
+        earlyFlushQueued.set(false);
+        write(sessions.values());
+    }
+
+    private void write(Collection<LiveSession> candidates) {
+        synchronized (writeLock) {
+            List<LiveSession> flushed = new ArrayList<>();
+            List<Object[]> meterRows = new ArrayList<>();
+            List<Object[]> rfidRows = new ArrayList<>();
+            String active = SessionStatus.ACTIVE.getValue();
+
+            for (LiveSession live : candidates) {
+                synchronized (live) {
+                    if (!live.dirty) {
+                        continue;
+                    }
+                    live.dirty = false;
+                    pendingCount.decrementAndGet();
+                    flushed.add(live);
+                    if (live.isRfid()) {
+                        rfidRows.add(new Object[] { live.billedKwh, live.cost, live.lastMeterKwh,
+                                live.sessionId, active });
+                    } else {
+                        meterRows.add(new Object[] { live.energyKwh, live.lastMeterKwh, live.sessionId, active });
+                    }
+                }
+            }
+
+            if (flushed.isEmpty()) {
+                return;
+            }
+
+            try {
+                if (!meterRows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_METER_PROGRESS_SQL, meterRows);
+                }
+                if (!rfidRows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_RFID_PROGRESS_SQL, rfidRows);
+                }
+                log.debug("Flushed live sessions: meter={}, rfid={}", meterRows.size(), rfidRows.size());
+            } catch (Exception e) {
+                // Put the rows back so the next flush retries them
+                for (LiveSession live : flushed) {
+                    live.markDirty();
+                }
+                log.error("Failed to flush {} live sessions: {}", flushed.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void onDirty() {
+        if (pendingCount.incrementAndGet() >= flushBatchSize && earlyFlushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushDirty);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the final flush picks these rows up
+                earlyFlushQueued.set(false);
+            }
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Snapshot of one charging session. Readings are only mutated from the
+     * charger's OCPP mailbox; the flusher reads them under the instance lock.
+     */
+    public static class LiveSession {
+
+        private final LiveSessionRegistry owner;
+        private final int transactionId;
+        private final Long sessionId;
+        private final Long userId;
+        private final String ocppId;
+        private final String sourceType;
+        private final double startMeterKwh;
+        private final Double selectedKwh;
+        private final double rate;
+
+        private Double lastMeterKwh;
+        private double energyKwh;
+        private boolean hasReading;
+        private boolean dirty;
+
+        // RFID billing progress: energy already charged to the wallet and its cost
+        private double billedKwh;
+        private double cost;
+
+        private LiveSession(LiveSessionRegistry owner, int transactionId, Session session, Receipt receipt) {
+            this.owner = owner;
+            this.transactionId = transactionId;
+            this.sessionId = session.getId();
+            this.userId = session.getUser() != null ? session.getUser().getId() : null;
+            this.ocppId = session.getCharger().getOcppId();
+            this.sourceType = session.getSourceType();
+            this.startMeterKwh = session.getStartMeterReading() != null ? session.getStartMeterReading() : 0.0;
+            this.selectedKwh = receipt != null && receipt.getSelectedKwh() != null
+                    ? receipt.getSelectedKwh().doubleValue()
+                    : null;
+            this.rate = session.getCharger().getRate() != null ? session.getCharger().getRate() : 0.0;
+            this.lastMeterKwh = session.getLastMeterReading();
+            this.energyKwh = session.getEnergyKwh();
+            this.billedKwh = session.getEnergyKwh();
+            this.cost = session.getCost();
+        }
+
+        /**
+         * Record an absolute meter reading (kWh) and return the energy consumed
+         * in this session, rounded to 3 decimals.
+         */
+        public synchronized double recordReading(double absoluteKwh) {
+            double consumedKwh = Math.round((absoluteKwh - startMeterKwh) * 1000.0) / 1000.0;
+
+            // Safety: handle cases where meter might reset or glitch
+            if (consumedKwh < 0) {
+                log.warn("Negative consumption detected (Meter reset?): sessionId={}, Current={}, Start={}. Treating as 0.",
+                        sessionId, absoluteKwh, startMeterKwh);
+                consumedKwh = 0;
+            }
+
+            lastMeterKwh = absoluteKwh;
+            energyKwh = consumedKwh;
+            hasReading = true;
+            markDirty();
+            return consumedKwh;
+        }
+
+        /**
+         * Record that energy up to billedKwh has been charged, adding
+         * additionalCost to the session cost.
+         */
+        public synchronized void recordBilling(double billedKwh, double additionalCost) {
+            this.billedKwh = billedKwh;
+            this.cost += additionalCost;
+            markDirty();
+        }
+
+        private synchronized void markDirty() {
+            if (!dirty) {
+                dirty = true;
+                owner.onDirty();
+            }
+        }
+
+        public synchronized boolean hasReachedTarget() {
+            return selectedKwh != null && energyKwh >= selectedKwh;
+        }
+
+        private synchronized void applyTo(Session session) {
+            if (lastMeterKwh != null) {
+                session.setLastMeterReading(lastMeterKwh);
+            }
+            if (isRfid()) {
+                session.setEnergyKwh(billedKwh);
+                session.setCost(cost);
+            } else if (hasReading) {
+                session.setEnergyKwh(energyKwh);
+            }
+            if (dirty) {
+                dirty = false;
+                owner.pendingCount.decrementAndGet();
+            }
+        }
+
+        public boolean isRfid() {
+            return "RFID".equals(sourceType);
+        }
+
+        public int getTransactionId() {
+            return transactionId;
+        }
+
+        public Long getSessionId() {
+            return sessionId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getOcppId() {
+            return ocppId;
+        }
+
+        public String getSourceType() {
+            return sourceType;
+        }
+
+        public double getStartMeterKwh() {
+            return startMeterKwh;
+        }
+
+        public Double getSelectedKwh() {
+            return selectedKwh;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public synchronized Double getLastMeterKwh() {
+            return lastMeterKwh;
+        }
+
+        public synchronized double getEnergyKwh() {
+            return energyKwh;
+        }
+
+        public synchronized double getBilledKwh() {
+            return billedKwh;
+        }
+
+        public synchronized double getCost() {
+            return cost;
+        }
+    }
+}
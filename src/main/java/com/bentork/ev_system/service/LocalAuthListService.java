@@ -0,0 +1,157 @@
+package com.bentork.ev_system.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the chargers' OCPP 1.6 Local Authorization List in step with the
+ * RFID cards, so chargers can authorize taps while offline.
+ *
+ * A charger gets the full list (active cards first, up to max-length) after
+ * its BootNotification. Changes reported by RFIDAuthCache are collected and
+ * sent to every connected charger as one Differential SendLocalList per
+ * push interval. Inactive cards are listed as Blocked; deleted cards are
+ * removed. The wallet balance is not part of the list, so holds placed and
+ * released by sessions do not cause pushes; it is checked when the charger
+ * reports StartTransaction. List versions are epoch seconds at startup plus
+ * one per push, so they keep increasing across restarts.
+ */
+@Slf4j
+@Service
+public class LocalAuthListService {
+
+    @Autowired
+    private RFIDAuthCache authCache;
+
+    @Autowired
+    @Lazy
+    private OcppWebSocketServer ocppWebSocketServer;
+
+    @Value("${ocpp.local-list.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ocpp.local-list.max-length:1000}")
+    private int maxLength;
+
+    @Value("${ocpp.local-list.push-interval-ms:5000}")
+    private long pushIntervalMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger listVersion = new AtomicInteger((int) (System.currentTimeMillis() / 1000));
+
+    // idTags changed since the last push
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService pusher = Executors.newSingleThreadScheduledExecutor();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Local authorization list push disabled");
+            return;
+        }
+        authCache.addChangeListener(changed::add);
+        pusher.scheduleWithFixedDelay(this::pushChanges, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Local authorization list push started: maxLength={}, pushIntervalMs={}",
+                maxLength, pushIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pusher.shutdownNow();
+    }
+
+    /**
+     * Send the full list to a charger, off the caller's thread.
+     */
+    public void sendFullList(String ocppId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            pusher.execute(() -> {
+                try {
+                    ArrayNode list = objectMapper.createArrayNode();
+                    for (RFIDAuthCache.Authorization auth : authCache.loadAll(maxLength)) {
+                        list.add(entry(auth));
+                    }
+                    int version = listVersion.incrementAndGet();
+                    if (ocppWebSocketServer.sendRemoteCommand(ocppId, "SendLocalList",
+                            payload(version, "Full", list))) {
+                        log.info("Sent full local list to {}: version={}, entries={}", ocppId, version, list.size());
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to send local list to {}: {}", ocppId, e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Local list push stopped, not sending to {}", ocppId);
+        }
+    }
+
+    private void pushChanges() {
+        try {
+            if (changed.isEmpty()) {
+                return;
+            }
+            List<String> tags = new ArrayList<>(changed);
+            changed.removeAll(tags);
+
+            ArrayNode list = objectMapper.createArrayNode();
+            for (String tag : tags) {
+                list.add(entry(authCache.authorize(tag)));
+            }
+            int version = listVersion.incrementAndGet();
+            ObjectNode payload = payload(version, "Differential", list);
+
+            int sent = 0;
+            for (String ocppId : ocppWebSocketServer.getConnectedChargers().keySet()) {
+                if (ocppWebSocketServer.sendRemoteCommand(ocppId, "SendLocalList", payload)) {
+                    sent++;
+                }
+            }
+            log.info("Pushed local list changes: version={}, entries={}, chargers={}", version, list.size(), sent);
+        } catch (Exception e) {
+            log.error("Local list push failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private ObjectNode entry(RFIDAuthCache.Authorization auth) {
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("idTag", auth.idTag());
+        // Without idTagInfo a Differential update removes the idTag
+        if (auth.known()) {
+            entry.putObject("idTagInfo").put("status", auth.active() ? "Accepted" : "Blocked");
+        }
+        return entry;
+    }
+
+    private ObjectNode payload(int version, String updateType, ArrayNode list) {
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("listVersion", version);
+        payload.set("localAuthorizationList", list);
+        payload.put("updateType", updateType);
+        return payload;
+    }
+}
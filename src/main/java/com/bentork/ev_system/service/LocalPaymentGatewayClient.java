@@ -0,0 +1,59 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory gateway for tests and load benchmarks: orders registered with
+ * register() are reported as given (every one of them is listed by
+ * listOrders, and paid ones have a captured payment); any other order
+ * reports payment.gateway.local.default-amount. Never makes a network call.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "payment.gateway.client", havingValue = "local")
+public class LocalPaymentGatewayClient implements PaymentGatewayClient {
+
+    @Value("${payment.gateway.local.default-amount:100.00}")
+    private BigDecimal defaultAmount;
+
+    private final Map<String, GatewayOrder> orders = new ConcurrentSkipListMap<>();
+
+    public void register(String orderId, BigDecimal amount) {
+        register(new GatewayOrder(orderId, "paid", amount, null));
+    }
+
+    public void register(GatewayOrder order) {
+        orders.put(order.orderId(), order);
+    }
+
+    @Override
+    public GatewayOrder fetchOrder(String orderId) {
+        GatewayOrder order = orders.getOrDefault(orderId, new GatewayOrder(orderId, "paid", defaultAmount, null));
+        log.debug("Local gateway order {}: amount={}", orderId, order.amount());
+        return order;
+    }
+
+    @Override
+    public List<GatewayOrder> listOrders(long from, long to, int skip, int count) {
+        List<GatewayOrder> all = new ArrayList<>(orders.values());
+        if (skip >= all.size()) {
+            return List.of();
+        }
+        return all.subList(skip, Math.min(skip + count, all.size()));
+    }
+
+    @Override
+    public String fetchCapturedPaymentId(String orderId) {
+        return fetchOrder(orderId).isPaid() ? "pay_local_" + orderId : null;
+    }
+}
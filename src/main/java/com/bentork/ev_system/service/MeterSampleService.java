@@ -0,0 +1,359 @@
+package com.bentork.ev_system.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.dto.request.MeterSampleDTO;
+import com.bentork.ev_system.model.MeterSampleChunk;
+import com.bentork.ev_system.repository.MeterSampleChunkRepository;
+import com.bentork.ev_system.util.MeterSampleCodec;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only store for per-session meter samples (charge curves).
+ *
+ * Samples are buffered per session and sealed into an encoded chunk every
+ * chunk-size samples or when the session stops. Sealed chunks are inserted in
+ * JDBC batches by a background writer, so MeterValues handling never waits on
+ * the database. A session's buffer, and with it the chunk numbering, lives
+ * until the session is closed; the database is asked for the last chunk_seq
+ * only when a node sees a session for the first time.
+ *
+ * At most max-pending-chunks sealed chunks wait for the writer; beyond that
+ * new chunks are dropped. A failed batch is retried row by row, and a chunk
+ * that fails max-attempts times on its own is dropped, so one bad row cannot
+ * hold back the others.
+ */
+@Slf4j
+@Service
+public class MeterSampleService {
+
+    private static final String INSERT_CHUNK_SQL = "INSERT INTO meter_samples "
+            + "(session_id, chunk_seq, sample_count, first_ts, last_ts, data, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterSampleChunkRepository chunkRepository;
+
+    @Value("${ocpp.meter-samples.chunk-size:120}")
+    private int chunkSize;
+
+    @Value("${ocpp.meter-samples.flush-interval-ms:10000}")
+    private long flushIntervalMs;
+
+    // Buffers untouched for this long are sealed (e.g. session stopped from the API),
+    // and dropped once they stay empty for as long again
+    @Value("${ocpp.meter-samples.idle-seal-ms:600000}")
+    private long idleSealMs;
+
+    @Value("${ocpp.meter-samples.max-pending-chunks:10000}")
+    private int maxPendingChunks;
+
+    @Value("${ocpp.meter-samples.write-batch-size:500}")
+    private int writeBatchSize;
+
+    @Value("${ocpp.meter-samples.max-attempts:5}")
+    private int maxAttempts;
+
+    private final Map<Long, SampleBuffer> buffers = new ConcurrentHashMap<>();
+
+    // Sealed chunks waiting to be inserted
+    private final Queue<PendingChunk> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+
+    @PostConstruct
+    public void init() {
+        writer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Meter sample store started: chunkSize={}, flushIntervalMs={}", chunkSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Seal whatever is buffered so no sample is lost on shutdown
+        for (Long sessionId : new ArrayList<>(buffers.keySet())) {
+            close(sessionId);
+        }
+        int written;
+        do {
+            written = writePending();
+        } while (written > 0);
+    }
+
+    /**
+     * Append samples of a charging session.
+     */
+    public void append(Long sessionId, List<MeterSampleDTO> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        while (true) {
+            SampleBuffer buffer = buffers.computeIfAbsent(sessionId, this::openBuffer);
+            synchronized (buffer) {
+                // Closed or evicted since we looked it up: its samples would be lost
+                if (buffers.get(sessionId) != buffer) {
+                    continue;
+                }
+                buffer.samples.addAll(samples);
+                buffer.lastAppend = System.currentTimeMillis();
+                if (buffer.samples.size() >= chunkSize) {
+                    seal(buffer);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Seal the session's remaining samples; called when the session stops.
+     */
+    public void close(Long sessionId) {
+        SampleBuffer buffer = buffers.remove(sessionId);
+        if (buffer != null) {
+            synchronized (buffer) {
+                seal(buffer);
+            }
+        }
+    }
+
+    /**
+     * Samples of a session within [from, to], oldest first. Includes samples
+     * that are not yet written to the database.
+     */
+    public List<MeterSampleDTO> getCurve(Long sessionId, Instant from, Instant to) {
+        long fromTs = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+        long toTs = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+
+        // Read newest first (buffer, pending, DB): a chunk moving between
+        // stages while we read is then seen twice, never missed
+        List<MeterSampleDTO> curve = new ArrayList<>();
+        SampleBuffer buffer = buffers.get(sessionId);
+        if (buffer != null) {
+            synchronized (buffer) {
+                addInRange(curve, buffer.samples, fromTs, toTs);
+            }
+        }
+        for (PendingChunk entry : pending) {
+            if (entry.chunk.getSessionId().equals(sessionId)) {
+                addInRange(curve, MeterSampleCodec.decode(entry.chunk.getData()), fromTs, toTs);
+            }
+        }
+        for (MeterSampleChunk chunk : chunkRepository.findOverlapping(sessionId, fromTs, toTs)) {
+            addInRange(curve, MeterSampleCodec.decode(chunk.getData()), fromTs, toTs);
+        }
+
+        // Drop samples seen twice
+        curve.sort(Comparator.comparing(MeterSampleDTO::getTimestamp));
+        List<MeterSampleDTO> result = new ArrayList<>(curve.size());
+        Instant last = null;
+        for (MeterSampleDTO sample : curve) {
+            if (!sample.getTimestamp().equals(last)) {
+                result.add(sample);
+                last = sample.getTimestamp();
+            }
+        }
+        return result;
+    }
+
+    void flush() {
+        try {
+            sealIdleBuffers();
+            int written;
+            do {
+                written = writePending();
+            } while (written >= writeBatchSize);
+        } catch (Exception e) {
+            log.error("Meter sample flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void sealIdleBuffers() {
+        long cutoff = System.currentTimeMillis() - idleSealMs;
+        Iterator<Map.Entry<Long, SampleBuffer>> it = buffers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, SampleBuffer> entry = it.next();
+            SampleBuffer buffer = entry.getValue();
+            synchronized (buffer) {
+                if (buffer.lastAppend >= cutoff) {
+                    continue;
+                }
+                if (!buffer.samples.isEmpty()) {
+                    // Keep the buffer: the session may still be charging
+                    seal(buffer);
+                    buffer.lastAppend = System.currentTimeMillis();
+                } else if (!hasPending(entry.getKey())) {
+                    // Written out, so chunk_seq can be read back from the DB
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert up to write-batch-size pending chunks. Returns how many were
+     * written.
+     */
+    private int writePending() {
+        List<PendingChunk> batch = new ArrayList<>();
+        PendingChunk next;
+        while (batch.size() < writeBatchSize && (next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            List<Object[]> rows = new ArrayList<>(batch.size());
+            for (PendingChunk entry : batch) {
+                rows.add(row(entry.chunk));
+            }
+            jdbcTemplate.batchUpdate(INSERT_CHUNK_SQL, rows);
+            pendingCount.addAndGet(-batch.size());
+            log.debug("Wrote {} meter sample chunks", batch.size());
+        } catch (Exception e) {
+            // One bad chunk must not hold back the batch
+            log.warn("Batch insert of {} meter sample chunks failed, retrying row by row: {}",
+                    batch.size(), e.getMessage());
+            List<PendingChunk> failed = new ArrayList<>();
+            for (PendingChunk entry : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_CHUNK_SQL, row(entry.chunk));
+                    pendingCount.decrementAndGet();
+                } catch (Exception rowEx) {
+                    entry.lastError = rowEx.getMessage();
+                    failed.add(entry);
+                }
+            }
+            // Nothing of several went in: the database is down, not the rows
+            boolean outage = failed.size() == batch.size() && batch.size() > 1;
+            for (PendingChunk entry : failed) {
+                retryOrDrop(entry, outage);
+            }
+            return batch.size() - failed.size();
+        }
+        return batch.size();
+    }
+
+    private void retryOrDrop(PendingChunk entry, boolean outage) {
+        if (!outage && ++entry.attempts >= maxAttempts) {
+            pendingCount.decrementAndGet();
+            log.error("Dropping meter sample chunk after {} attempts: sessionId={}, chunkSeq={}: {}",
+                    entry.attempts, entry.chunk.getSessionId(), entry.chunk.getChunkSeq(), entry.lastError);
+            return;
+        }
+        // Back of the queue, behind chunks that may still succeed
+        pending.add(entry);
+    }
+
+    private boolean hasPending(Long sessionId) {
+        for (PendingChunk entry : pending) {
+            if (entry.chunk.getSessionId().equals(sessionId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object[] row(MeterSampleChunk chunk) {
+        return new Object[] { chunk.getSessionId(), chunk.getChunkSeq(), chunk.getSampleCount(),
+                chunk.getFirstTs(), chunk.getLastTs(), chunk.getData(),
+                Timestamp.valueOf(chunk.getCreatedAt()) };
+    }
+
+    private SampleBuffer openBuffer(Long sessionId) {
+        // Continue numbering after chunks written before a restart
+        Integer maxSeq = chunkRepository.findMaxChunkSeq(sessionId);
+        return new SampleBuffer(sessionId, maxSeq != null ? maxSeq + 1 : 0);
+    }
+
+    // Caller holds the buffer lock
+    private void seal(SampleBuffer buffer) {
+        if (buffer.samples.isEmpty()) {
+            return;
+        }
+        List<MeterSampleDTO> samples = buffer.samples;
+        samples.sort(Comparator.comparing(MeterSampleDTO::getTimestamp));
+
+        MeterSampleChunk chunk = new MeterSampleChunk();
+        chunk.setSessionId(buffer.sessionId);
+        chunk.setChunkSeq(buffer.nextSeq++);
+        chunk.setSampleCount(samples.size());
+        chunk.setFirstTs(samples.get(0).getTimestamp().toEpochMilli());
+        chunk.setLastTs(samples.get(samples.size() - 1).getTimestamp().toEpochMilli());
+        chunk.setData(MeterSampleCodec.encode(samples));
+        chunk.setCreatedAt(LocalDateTime.now());
+        buffer.samples = new ArrayList<>(chunkSize);
+
+        if (pendingCount.incrementAndGet() > maxPendingChunks) {
+            pendingCount.decrementAndGet();
+            log.error("Meter sample queue full ({} chunks), dropping chunk: sessionId={}, chunkSeq={}, samples={}",
+                    maxPendingChunks, chunk.getSessionId(), chunk.getChunkSeq(), chunk.getSampleCount());
+            return;
+        }
+        pending.add(new PendingChunk(chunk));
+    }
+
+    private static void addInRange(List<MeterSampleDTO> target, List<MeterSampleDTO> samples, long fromTs,
+            long toTs) {
+        for (MeterSampleDTO sample : samples) {
+            long ts = sample.getTimestamp().toEpochMilli();
+            if (ts >= fromTs && ts <= toTs) {
+                target.add(sample);
+            }
+        }
+    }
+
+    private static final class PendingChunk {
+        private final MeterSampleChunk chunk;
+        private int attempts;
+        private String lastError;
+
+        private PendingChunk(MeterSampleChunk chunk) {
+            this.chunk = chunk;
+        }
+    }
+
+    private static final class SampleBuffer {
+        private final Long sessionId;
+        private int nextSeq;
+        private List<MeterSampleDTO> samples = new ArrayList<>();
+        private long lastAppend = System.currentTimeMillis();
+
+        private SampleBuffer(Long sessionId, int nextSeq) {
+            this.sessionId = sessionId;
+            this.nextSeq = nextSeq;
+        }
+    }
+}
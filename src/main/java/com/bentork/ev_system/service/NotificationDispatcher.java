@@ -0,0 +1,222 @@
+package com.bentork.ev_system.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asynchronous writer for admin and user notifications.
+ *
+ * Callers only enqueue; a single consumer thread drains the queue and
+ * inserts the rows with JDBC batches (admin events go to system_events once,
+ * for all admins). The queue is bounded: when it is full,
+ * events are coalesced per audience and type into one "(+N similar)"
+ * notification instead of blocking the caller.
+ */
+@Slf4j
+@Service
+public class NotificationDispatcher {
+
+    private static final String INSERT_ADMIN_SQL = "INSERT INTO system_events "
+            + "(message, type, created_at) VALUES (?, ?, ?)";
+
+    private static final String INSERT_USER_SQL = "INSERT INTO user_notifications "
+            + "(user_id, title, message, type, is_read, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${notifications.batch-size:500}")
+    private int batchSize;
+
+    private BlockingQueue<Event> queue;
+
+    // Events that did not fit in the queue, merged per coalesce key
+    private final Map<String, Coalesced> overflow = new ConcurrentHashMap<>();
+
+    private Thread consumer;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        consumer = new Thread(this::consume, "notification-dispatcher");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        consumer.interrupt();
+        try {
+            consumer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Write whatever is left
+        writeBatch(drain());
+    }
+
+    /**
+     * Notify every admin.
+     */
+    public void publishAdmin(String message, String type) {
+        publish(new Event(null, null, message, type, LocalDateTime.now()));
+    }
+
+    /**
+     * Notify one user.
+     */
+    public void publishUser(Long userId, String title, String message, String type) {
+        publish(new Event(userId, title, message, type, LocalDateTime.now()));
+    }
+
+    private void publish(Event event) {
+        if (queue.offer(event)) {
+            return;
+        }
+        overflow.compute(event.coalesceKey(), (key, existing) -> {
+            if (existing == null) {
+                return new Coalesced(event);
+            }
+            existing.latest = event;
+            existing.count++;
+            return existing;
+        });
+        if (log.isDebugEnabled()) {
+            log.debug("Notification queue full, coalesced event: {}", event.coalesceKey());
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                Event first = queue.poll(1, TimeUnit.SECONDS);
+                List<Event> batch = new ArrayList<>();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                batch.addAll(drainOverflow());
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Notification dispatcher error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private List<Event> drain() {
+        List<Event> events = new ArrayList<>();
+        queue.drainTo(events);
+        events.addAll(drainOverflow());
+        return events;
+    }
+
+    private List<Event> drainOverflow() {
+        if (overflow.isEmpty()) {
+            return List.of();
+        }
+        List<Event> events = new ArrayList<>();
+        Iterator<String> it = overflow.keySet().iterator();
+        while (it.hasNext()) {
+            Coalesced coalesced = overflow.remove(it.next());
+            if (coalesced != null) {
+                events.add(coalesced.toEvent());
+            }
+        }
+        return events;
+    }
+
+    private void writeBatch(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> adminRows = new ArrayList<>();
+        List<Object[]> userRows = new ArrayList<>();
+        for (Event event : events) {
+            Timestamp createdAt = Timestamp.valueOf(event.createdAt());
+            if (event.userId() == null) {
+                adminRows.add(new Object[] { event.message(), event.type(), createdAt });
+            } else {
+                userRows.add(new Object[] { event.userId(), event.title(), event.message(), event.type(), false,
+                        createdAt });
+            }
+        }
+
+        insert(INSERT_ADMIN_SQL, adminRows, "admin");
+        insert(INSERT_USER_SQL, userRows, "user");
+    }
+
+    private void insert(String sql, List<Object[]> rows, String audience) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, rows);
+            log.debug("Inserted {} {} notifications", rows.size(), audience);
+        } catch (Exception e) {
+            // One bad row (e.g. a deleted user) must not drop the whole batch
+            log.warn("Batch insert of {} {} notifications failed, retrying row by row: {}",
+                    rows.size(), audience, e.getMessage());
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(sql, row);
+                } catch (Exception rowEx) {
+                    log.error("Dropping {} notification: {}", audience, rowEx.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * userId is null for admin events.
+     */
+    private record Event(Long userId, String title, String message, String type, LocalDateTime createdAt) {
+
+        String coalesceKey() {
+            return (userId == null ? "admin" : "user:" + userId) + ":" + type;
+        }
+    }
+
+    private static final class Coalesced {
+        private Event latest;
+        private int count = 1;
+
+        private Coalesced(Event event) {
+            this.latest = event;
+        }
+
+        private Event toEvent() {
+            if (count == 1) {
+                return latest;
+            }
+            return new Event(latest.userId(), latest.title(),
+                    latest.message() + " (+" + (count - 1) + " similar)", latest.type(), latest.createdAt());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.bentork.ev_system.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-charger mailboxes for OCPP message handling.
+ *
+ * Every charger (ocppId) gets its own FIFO mailbox. A mailbox is drained by at
+ * most one worker at a time, so messages from one charger are always handled
+ * in the order they arrived, while different chargers run in parallel on a
+ * bounded worker pool. WebSocket threads only enqueue and return.
+ */
+@Slf4j
+@Service
+public class OcppMessageDispatcher {
+
+    @Value("${ocpp.dispatcher.threads:32}")
+    private int workerThreads;
+
+    @Value("${ocpp.dispatcher.mailbox-capacity:256}")
+    private int mailboxCapacity;
+
+    // Max messages handled per turn before the worker is given to another charger
+    @Value("${ocpp.dispatcher.batch-size:32}")
+    private int batchSize;
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ocpp-worker-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("OCPP message dispatcher started: threads={}, mailboxCapacity={}, batchSize={}",
+                workerThreads, mailboxCapacity, batchSize);
+    }
+
+    /**
+     * Queue a task on the charger's mailbox.
+     *
+     * @return false if the mailbox is full and the task was not accepted
+     */
+    public boolean dispatch(String ocppId, Runnable task) {
+        boolean[] accepted = new boolean[1];
+        // compute() serializes with release() so a task never lands in a
+        // mailbox that has just been discarded
+        mailboxes.compute(ocppId, (id, mailbox) -> {
+            Mailbox target = mailbox != null ? mailbox : new Mailbox(id);
+            target.releaseRequested = false;
+            accepted[0] = target.offer(task);
+            return target;
+        });
+
+        if (!accepted[0]) {
+            log.warn("Mailbox full for charger {}: capacity={}", ocppId, mailboxCapacity);
+        }
+        return accepted[0];
+    }
+
+    /**
+     * Drop the charger's mailbox once it has no pending work. Safe to call from
+     * inside a task running on that mailbox; removal then happens after the
+     * task completes.
+     */
+    public void release(String ocppId) {
+        Mailbox mailbox = mailboxes.get(ocppId);
+        if (mailbox != null) {
+            mailbox.releaseRequested = true;
+            removeIfIdle(ocppId);
+        }
+    }
+
+    private void removeIfIdle(String ocppId) {
+        mailboxes.computeIfPresent(ocppId,
+                (id, mailbox) -> mailbox.releaseRequested && mailbox.isIdle() ? null : mailbox);
+    }
+
+    public int getPendingCount(String ocppId) {
+        Mailbox mailbox = mailboxes.get(ocppId);
+        return mailbox != null ? mailbox.size.get() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down OCPP message dispatcher ({} mailboxes)", mailboxes.size());
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("OCPP workers did not finish in time, forcing shutdown");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Mailbox {
+
+        private final String ocppId;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean releaseRequested;
+
+        private Mailbox(String ocppId) {
+            this.ocppId = ocppId;
+        }
+
+        private boolean offer(Runnable task) {
+            if (size.incrementAndGet() > mailboxCapacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            queue.offer(task);
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    log.error("OCPP worker pool rejected mailbox for charger {}: {}", ocppId, e.getMessage());
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int i = 0; i < batchSize; i++) {
+                    Runnable task = queue.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    size.decrementAndGet();
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        log.error("Error processing message for charger {}: {}", ocppId, e.getMessage(), e);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // Re-arm if more work arrived (or the batch limit was hit)
+                if (!queue.isEmpty()) {
+                    schedule();
+                } else if (releaseRequested) {
+                    removeIfIdle(ocppId);
+                }
+            }
+        }
+
+        private boolean isIdle() {
+            return size.get() == 0 && !scheduled.get();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.bentork.ev_system.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -20,11 +19,11 @@ import com.bentork.ev_system.enums.ChargerStatus;
 import com.bentork.ev_system.repository.ChargerRepository;
 import com.bentork.ev_system.repository.ReceiptRepository;
 import com.bentork.ev_system.repository.SessionRepository;
+import com.bentork.ev_system.util.OcppFrameDecoder;
+import com.bentork.ev_system.util.OcppResponseEncoder;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode; // Import RoundingMode
 import java.net.InetSocketAddress;
-import java.time.OffsetDateTime;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -33,8 +32,6 @@ public class OcppWebSocketServer extends WebSocketServer {
 
     private static final Logger log = LoggerFactory.getLogger(OcppWebSocketServer.class);
     private static final int OCPP_CALL = 2;
-    private static final int OCPP_CALL_RESULT = 3;
-    private static final int OCPP_CALL_ERROR = 4;
 
     @Autowired
     private SessionService sessionService;
@@ -51,6 +48,33 @@ public class OcppWebSocketServer extends WebSocketServer {
     @Autowired
     private SessionRepository sessionRepository;
 
+    @Autowired
+    private PendingStartResolver pendingStartResolver;
+
+    @Autowired
+    private RFIDAuthCache rfidAuthCache;
+
+    @Autowired
+    private LocalAuthListService localAuthListService;
+
+    @Autowired
+    private OcppMessageDispatcher messageDispatcher;
+
+    @Autowired
+    private LiveSessionRegistry liveSessionRegistry;
+
+    @Autowired
+    private ChargerStateCache chargerStateCache;
+
+    @Autowired
+    private MeterSampleService meterSampleService;
+
+    @Autowired
+    private DashboardAggregateService dashboardAggregateService;
+
+    @Autowired
+    private SessionTelemetryHub sessionTelemetryHub;
+
     @Value("${ocpp.server.port:8887}")
     private int serverPort;
 
@@ -59,12 +83,12 @@ public class OcppWebSocketServer extends WebSocketServer {
     private int heartbeatInterval;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OcppFrameDecoder frameDecoder = new OcppFrameDecoder(objectMapper.getFactory());
+    private final OcppResponseEncoder responseEncoder = new OcppResponseEncoder();
 
-    // Thread-safe maps
-    private final Map<Integer, Long> transactionToSessionMap = new ConcurrentHashMap<>();
+    // Thread-safe maps (transaction -> session state lives in LiveSessionRegistry)
     private final Map<WebSocket, String> connectionToOcppIdMap = new ConcurrentHashMap<>();
     private final Map<String, WebSocket> ocppIdToConnectionMap = new ConcurrentHashMap<>();
-    private final Map<Long, Double> sessionToMeterStartMap = new ConcurrentHashMap<>();
 
     public OcppWebSocketServer(@Value("${ocpp.server.port:8887}") int port) {
         super(new InetSocketAddress(port));
@@ -77,6 +101,9 @@ public class OcppWebSocketServer extends WebSocketServer {
         connectionToOcppIdMap.put(conn, ocppId);
         ocppIdToConnectionMap.put(ocppId, conn);
         log.info("Charger connected: {} (OCPP ID: {})", conn.getRemoteSocketAddress(), ocppId);
+
+        // Refresh the cached charger state before its first message is handled
+        messageDispatcher.dispatch(ocppId, () -> chargerStateCache.load(ocppId));
     }
 
     @Override
@@ -84,17 +111,25 @@ public class OcppWebSocketServer extends WebSocketServer {
         log.debug("Message from charger: {}", message);
 
         try {
-            JsonNode messageArray = objectMapper.readTree(message);
+            // Streaming decode straight into typed payloads (no JsonNode tree)
+            OcppFrameDecoder.Frame frame = frameDecoder.decode(message);
 
-            if (!messageArray.isArray() || messageArray.size() < 3) {
+            if (frame == null) {
                 log.warn("Invalid OCPP message format: {}", message);
                 return;
             }
 
-            int messageType = messageArray.get(0).asInt();
+            int messageType = frame.messageType();
 
             if (messageType == OCPP_CALL) {
-                handleCall(conn, messageArray);
+                // Hand off to the charger's mailbox; the socket thread never touches the DB
+                String ocppId = connectionToOcppIdMap.getOrDefault(conn, "UNKNOWN");
+                boolean accepted = messageDispatcher.dispatch(ocppId,
+                        () -> handleCall(conn, ocppId, frame));
+                if (!accepted) {
+                    sendErrorResponse(conn, frame.messageId(), "GenericError",
+                            "Charger message queue is full, please retry");
+                }
             } else {
                 log.debug("Received message type: {}", messageType);
             }
@@ -108,35 +143,35 @@ public class OcppWebSocketServer extends WebSocketServer {
     /**
      * Handle OCPP Call messages (type 2)
      */
-    private void handleCall(WebSocket conn, JsonNode messageArray) {
+    private void handleCall(WebSocket conn, String ocppId, OcppFrameDecoder.Frame frame) {
         try {
-            String messageId = messageArray.get(1).asText();
-            String action = messageArray.get(2).asText();
-            JsonNode payload = messageArray.size() > 3 ? messageArray.get(3) : objectMapper.createObjectNode();
+            String messageId = frame.messageId();
+            String action = frame.action();
+            Object payload = frame.payload(); // typed record matching the action
 
             log.info("OCPP Call - Action: {}, MessageId: {}", action, messageId);
 
             switch (action) {
                 case "BootNotification":
-                    handleBootNotification(conn, messageId, payload);
+                    handleBootNotification(conn, ocppId, messageId, (OcppFrameDecoder.BootNotification) payload);
                     break;
                 case "Heartbeat":
-                    handleHeartbeat(conn, messageId);
+                    handleHeartbeat(conn, ocppId, messageId);
                     break;
                 case "Authorize":
-                    handleAuthorize(conn, messageId, payload);
+                    handleAuthorize(conn, messageId, (OcppFrameDecoder.Authorize) payload);
                     break;
                 case "StartTransaction":
-                    handleStartTransaction(conn, messageId, payload);
+                    handleStartTransaction(conn, ocppId, messageId, (OcppFrameDecoder.StartTransaction) payload);
                     break;
                 case "StopTransaction":
-                    handleStopTransaction(conn, messageId, payload);
+                    handleStopTransaction(conn, messageId, (OcppFrameDecoder.StopTransaction) payload);
                     break;
                 case "StatusNotification":
-                    handleStatusNotification(conn, messageId, payload);
+                    handleStatusNotification(conn, ocppId, messageId, (OcppFrameDecoder.StatusNotification) payload);
                     break;
                 case "MeterValues":
-                    handleMeterValues(conn, messageId, payload);
+                    handleMeterValues(conn, ocppId, messageId, (OcppFrameDecoder.MeterValues) payload);
                     break;
                 default:
                     sendErrorResponse(conn, messageId, "NotSupported",
@@ -153,48 +188,42 @@ public class OcppWebSocketServer extends WebSocketServer {
     /**
      * Handle BootNotification
      */
-    private void handleBootNotification(WebSocket conn, String messageId, JsonNode payload) {
-        String ocppId = connectionToOcppIdMap.get(conn);
+    private void handleBootNotification(WebSocket conn, String ocppId, String messageId,
+            OcppFrameDecoder.BootNotification payload) {
         log.info("BootNotification received from {}: {}", ocppId, payload);
 
         // Set charger status to AVAILABLE when it boots
         try {
-            Charger charger = chargerRepository.findByOcppId(ocppId).orElse(null);
-            if (charger != null) {
-                charger.setStatus(ChargerStatus.AVAILABLE.getValue());
-                charger.setAvailability(true);
-                chargerRepository.save(charger);
+            ChargerStateCache.ChargerState state = chargerStateCache.get(ocppId);
+            if (state != null && chargerStateCache.update(ocppId, true, state.isOccupied(),
+                    ChargerStatus.AVAILABLE.getValue())) {
                 log.info("Charger {} status set to AVAILABLE", ocppId);
             }
         } catch (Exception e) {
             log.error("Error updating charger status on boot: {}", e.getMessage());
         }
 
-        ObjectNode response = objectMapper.createObjectNode();
-        response.put("status", "Accepted");
-        response.put("currentTime", OffsetDateTime.now().toString());
-        response.put("interval", heartbeatInterval);
+        sendFrame(conn, responseEncoder.bootNotificationResult(messageId, "Accepted", heartbeatInterval));
 
-        sendCallResult(conn, messageId, response);
+        // Offline authorization: give the charger the current RFID list
+        localAuthListService.sendFullList(ocppId);
     }
 
     /**
      * Handle Heartbeat
      */
-    private void handleHeartbeat(WebSocket conn, String messageId) {
-        log.debug("Heartbeat received from {}", connectionToOcppIdMap.get(conn));
+    private void handleHeartbeat(WebSocket conn, String ocppId, String messageId) {
+        log.debug("Heartbeat received from {}", ocppId);
 
-        ObjectNode response = objectMapper.createObjectNode();
-        response.put("currentTime", OffsetDateTime.now().toString());
-
-        sendCallResult(conn, messageId, response);
+        // Pre-encoded template with a per-second cached currentTime
+        sendFrame(conn, responseEncoder.heartbeatResult(messageId));
     }
 
     /**
      * Handle Authorize - Validate RFID card
      */
-    private void handleAuthorize(WebSocket conn, String messageId, JsonNode payload) {
-        String idTag = payload.has("idTag") ? payload.get("idTag").asText() : null;
+    private void handleAuthorize(WebSocket conn, String messageId, OcppFrameDecoder.Authorize payload) {
+        String idTag = payload.idTag();
         log.info("Authorize request for idTag: {}", idTag);
 
         // Validate RFID card exists and is active
@@ -205,13 +234,7 @@ public class OcppWebSocketServer extends WebSocketServer {
             log.warn("RFID validation failed: {}", e.getMessage());
         }
 
-        ObjectNode idTagInfo = objectMapper.createObjectNode();
-        idTagInfo.put("status", isValid ? "Accepted" : "Invalid");
-
-        ObjectNode response = objectMapper.createObjectNode();
-        response.set("idTagInfo", idTagInfo);
-
-        sendCallResult(conn, messageId, response);
+        sendFrame(conn, responseEncoder.idTagInfoResult(messageId, isValid ? "Accepted" : "Invalid"));
     }
 
     /**
@@ -222,25 +245,45 @@ public class OcppWebSocketServer extends WebSocketServer {
      * exists)
      * 3. Guest Flow - Create new session (fallback)
      */
-    private void handleStartTransaction(WebSocket conn, String messageId, JsonNode payload) {
+    private void handleStartTransaction(WebSocket conn, String ocppId, String messageId,
+            OcppFrameDecoder.StartTransaction payload) {
         try {
-            String idTag = payload.has("idTag") ? payload.get("idTag").asText() : null;
-            int connectorId = payload.has("connectorId") ? payload.get("connectorId").asInt() : 1;
-            String ocppId = connectionToOcppIdMap.getOrDefault(conn, "UNKNOWN");
-            double meterStart = payload.has("meterStart") ? payload.get("meterStart").asDouble() : 0.0;
+            String idTag = payload.idTag();
+            int connectorId = payload.connectorId() != null ? payload.connectorId() : 1;
+            double meterStart = payload.meterStart() != null ? payload.meterStart() : 0.0;
 
             log.info("StartTransaction - OCPP_ID: {}, IdTag: {}, ConnectorId: {}, MeterStart: {}",
                     ocppId, idTag, connectorId, meterStart);
 
-            // Find charger by OCPP ID
-            Charger charger = chargerRepository.findByOcppId(ocppId)
-                    .orElseThrow(() -> new RuntimeException("Charger not found for OCPP ID: " + ocppId));
+            // Find charger by OCPP ID (cached; the entity reference needs no query)
+            ChargerStateCache.ChargerState chargerState = chargerStateCache.get(ocppId);
+            if (chargerState == null) {
+                throw new RuntimeException("Charger not found for OCPP ID: " + ocppId);
+            }
+            Charger charger = chargerRepository.getReferenceById(chargerState.getId());
 
             Session session = null;
+            Receipt linkedReceipt = null;
             String sessionType = "UNKNOWN";
 
-            // Strategy 1: RFID Card Flow
-            if (idTag != null && !idTag.isEmpty()) {
+            // Strategy 1: RFID Card Flow (SESSION_<id> tags come from app starts)
+            boolean cardTag = idTag != null && !idTag.isEmpty() && !PendingStartResolver.isSessionIdTag(idTag);
+
+            // A remote start (POST /api/rfid/start) already created the card's session
+            if (cardTag) {
+                try {
+                    session = pendingStartResolver.pendingRfid(charger, rfidAuthCache.authorize(idTag).userId())
+                            .orElse(null);
+                    if (session != null) {
+                        sessionType = "RFID";
+                        log.info("Remote RFID session picked up (sessionId: {})", session.getId());
+                    }
+                } catch (Exception ex) {
+                    log.debug("No remote RFID session found: {}", ex.getMessage());
+                }
+            }
+
+            if (session == null && cardTag) {
                 try {
                     session = rfidChargingService.startCharging(idTag, charger.getId(), ocppId);
                     sessionType = "RFID";
@@ -251,53 +294,44 @@ public class OcppWebSocketServer extends WebSocketServer {
             }
 
             // Strategy 2: Prepaid Flow (Plan/kWh Package)
-            // Check for session that's already been paid (status=INITIATED or active)
+            // A session waiting for OCPP (INITIATED, created by /api/sessions/start)
+            // or already active; otherwise a PAID receipt without a session
             if (session == null) {
                 try {
-                    // Option A: Look for INITIATED session (created by /api/sessions/start but
-                    // waiting for OCPP)
-                    session = sessionRepository
-                            .findFirstByChargerAndStatusInOrderByCreatedAtDesc(
-                                    charger,
-                                    java.util.Arrays.asList(SessionStatus.INITIATED.getValue(),
-                                            SessionStatus.ACTIVE.getValue()))
+                    PendingStartResolver.PendingStart pending = pendingStartResolver.resolve(charger, idTag)
                             .orElse(null);
 
-                    if (session != null) {
+                    if (pending != null && pending.session() != null) {
+                        session = pending.session();
                         // Activate the session if it's INITIATED
                         if (SessionStatus.INITIATED.matches(session.getStatus())) {
                             session.setStatus(SessionStatus.ACTIVE.getValue());
                             session.setStartTime(java.time.LocalDateTime.now());
                             sessionRepository.save(session);
+                            dashboardAggregateService.onSessionActivated();
+                            sessionTelemetryHub.publishStatus(session);
                         }
 
-                        Receipt linkedReceipt = receiptRepository.findBySession(session).orElse(null);
-                        sessionType = linkedReceipt != null && linkedReceipt.getPlan() != null
-                                ? "PLAN"
-                                : "KWH_PACKAGE";
+                        linkedReceipt = pending.receipt();
+                        if ("RFID".equalsIgnoreCase(session.getSourceType())) {
+                            sessionType = "RFID";
+                        } else {
+                            sessionType = linkedReceipt != null && linkedReceipt.getPlan() != null
+                                    ? "PLAN"
+                                    : "KWH_PACKAGE";
+                        }
                         log.info("{} session activated (sessionId: {})", sessionType, session.getId());
-                    }
-                } catch (Exception ex) {
-                    log.debug("No active/initiated session found: {}", ex.getMessage());
-                }
-            }
-
-            // Strategy 3: Look for PAID receipt without session (fallback)
-            if (session == null) {
-                try {
-                    Receipt receipt = receiptRepository
-                            .findFirstByChargerAndStatusOrderByCreatedAtDesc(charger, "PAID")
-                            .orElse(null);
-
-                    if (receipt != null && receipt.getSession() == null) {
-                        // Start session from this paid receipt
+                    } else if (pending != null) {
+                        // Strategy 3: PAID receipt without session (fallback)
+                        Receipt receipt = pending.receipt();
                         session = sessionService.startSessionFromReceipt(receipt, ocppId);
+                        linkedReceipt = receipt;
                         sessionType = receipt.getPlan() != null ? "PLAN" : "KWH_PACKAGE";
                         log.info("{} session started from receipt (sessionId: {})",
                                 sessionType, session.getId());
                     }
                 } catch (Exception ex) {
-                    log.debug("No prepaid receipt found: {}", ex.getMessage());
+                    log.debug("No pending session or prepaid receipt found: {}", ex.getMessage());
                 }
             }
 
@@ -313,31 +347,21 @@ public class OcppWebSocketServer extends WebSocketServer {
             session.setLastMeterReading(startKwh);
             sessionRepository.save(session);
 
-            // Keep map for fallback/legacy but DB is primary
-            sessionToMeterStartMap.put(session.getId(), meterStart);
+            // Started: nothing is pending on this charger any more
+            pendingStartResolver.clear(charger.getId(), session.getId());
 
-            // Map transaction to session
+            // Map transaction to session and keep its state in memory for MeterValues
             int transactionId = session.getId().intValue();
-            transactionToSessionMap.put(transactionId, session.getId());
+            liveSessionRegistry.register(transactionId, session, linkedReceipt);
 
             log.info("Transaction mapping: TxId {} -> SessionId {} (Type: {})",
                     transactionId, session.getId(), sessionType);
 
             // Update charger status
-            charger.setOccupied(true);
-            charger.setAvailability(false);
-            charger.setStatus(ChargerStatus.BUSY.getValue());
-            chargerRepository.save(charger);
+            chargerStateCache.update(ocppId, false, true, ChargerStatus.BUSY.getValue());
 
             // Send success response
-            ObjectNode idTagInfo = objectMapper.createObjectNode();
-            idTagInfo.put("status", "Accepted");
-
-            ObjectNode response = objectMapper.createObjectNode();
-            response.put("transactionId", transactionId);
-            response.set("idTagInfo", idTagInfo);
-
-            sendCallResult(conn, messageId, response);
+            sendFrame(conn, responseEncoder.startTransactionResult(messageId, transactionId, "Accepted"));
 
         } catch (Exception e) {
             log.error("Error starting transaction: {}", e.getMessage(), e);
@@ -351,15 +375,15 @@ public class OcppWebSocketServer extends WebSocketServer {
      * This integrates with your existing wallet refund/extra debit logic in
      * SessionService
      */
-    private void handleStopTransaction(WebSocket conn, String messageId, JsonNode payload) {
+    private void handleStopTransaction(WebSocket conn, String messageId, OcppFrameDecoder.StopTransaction payload) {
         Session session = null;
         int transactionId = -1;
         Long sessionId = null;
 
         try {
-            transactionId = payload.has("transactionId") ? payload.get("transactionId").asInt() : -1;
-            double meterStop = payload.has("meterStop") ? payload.get("meterStop").asDouble() : 0.0;
-            String reason = payload.has("reason") ? payload.get("reason").asText() : "Local";
+            transactionId = payload.transactionId() != null ? payload.transactionId() : -1;
+            double meterStop = payload.meterStop() != null ? payload.meterStop() : 0.0;
+            String reason = payload.reason() != null ? payload.reason() : "Local";
 
             log.info("StopTransaction - TransactionId: {}, MeterStop: {}, Reason: {}",
                     transactionId, meterStop, reason);
@@ -369,11 +393,12 @@ public class OcppWebSocketServer extends WebSocketServer {
                 return;
             }
 
-            // Look up session from transaction map
-            sessionId = transactionToSessionMap.get(transactionId);
-
-            if (sessionId == null) {
-                log.warn("No mapping found for TxId: {}, assuming TxId == SessionId", transactionId);
+            // Look up session from live state
+            LiveSessionRegistry.LiveSession live = liveSessionRegistry.getOrLoad(transactionId);
+            if (live != null) {
+                sessionId = live.getSessionId();
+            } else {
+                log.warn("No live state found for TxId: {}, assuming TxId == SessionId", transactionId);
                 sessionId = (long) transactionId;
             }
 
@@ -390,9 +415,8 @@ public class OcppWebSocketServer extends WebSocketServer {
             // Use DB stored start meter reading for robustness
             Double startKwh = session.getStartMeterReading();
             if (startKwh == null) {
-                // Fallback to in-memory if DB is null (legacy sessions)
-                Double meterStartWh = sessionToMeterStartMap.getOrDefault(sessionId, 0.0);
-                startKwh = meterStartWh / 1000.0;
+                // Fallback to live state if DB is null (legacy sessions)
+                startKwh = live != null ? live.getStartMeterKwh() : 0.0;
             }
 
             double stopKwh = meterStop / 1000.0;
@@ -401,12 +425,26 @@ public class OcppWebSocketServer extends WebSocketServer {
             log.info("Energy calculation: MeterStart (kWh)={}, MeterStop (kWh)={}, Energy={} kWh",
                     startKwh, stopKwh, energyKwh);
 
-            // Update session energy before stopping
+            // Update session energy before stopping; the final reading is carried
+            // into the finalized row by LiveSessionRegistry.detach()
             session.setEnergyKwh(energyKwh);
+            if (live != null && energyKwh >= 0) {
+                double consumedKwh = live.recordReading(stopKwh);
+                // Bill the tail of an RFID session since the last MeterValues
+                if (live.isRfid()) {
+                    rfidChargingService.billEnergy(live, BigDecimal.valueOf(consumedKwh));
+                }
+            }
 
             // Check if this is selectedKwh session and limit reached
-            Receipt receipt = receiptRepository.findBySession(session).orElse(null);
-            if (receipt != null && receipt.getSelectedKwh() != null) {
+            boolean hasSelectedKwh;
+            if (live != null) {
+                hasSelectedKwh = live.getSelectedKwh() != null;
+            } else {
+                Receipt receipt = receiptRepository.findBySession(session).orElse(null);
+                hasSelectedKwh = receipt != null && receipt.getSelectedKwh() != null;
+            }
+            if (hasSelectedKwh) {
                 sessionService.checkAndStopIfReachedKwh(sessionId, energyKwh);
             }
 
@@ -423,13 +461,7 @@ public class OcppWebSocketServer extends WebSocketServer {
                     session.getId(), energyKwh, session.getSourceType());
 
             // Send success response
-            ObjectNode idTagInfo = objectMapper.createObjectNode();
-            idTagInfo.put("status", "Accepted");
-
-            ObjectNode response = objectMapper.createObjectNode();
-            response.set("idTagInfo", idTagInfo);
-
-            sendCallResult(conn, messageId, response);
+            sendFrame(conn, responseEncoder.idTagInfoResult(messageId, "Accepted"));
 
         } catch (Exception e) {
             log.error("Error stopping transaction: {}", e.getMessage(), e);
@@ -440,23 +472,21 @@ public class OcppWebSocketServer extends WebSocketServer {
             // finalization fails
             // This prevents chargers from getting stuck in 'busy' status
 
-            // Clean up transaction maps
+            // Clean up live session state
             if (transactionId != -1) {
-                transactionToSessionMap.remove(transactionId);
+                liveSessionRegistry.remove(transactionId);
             }
             if (sessionId != null) {
-                sessionToMeterStartMap.remove(sessionId);
+                meterSampleService.close(sessionId);
             }
 
             // Reset charger status to available
             if (session != null && session.getCharger() != null) {
                 try {
-                    Charger charger = session.getCharger();
-                    charger.setOccupied(false);
-                    charger.setAvailability(true);
-                    charger.setStatus(ChargerStatus.AVAILABLE.getValue());
-                    chargerRepository.save(charger);
-                    log.info("Charger {} status reset to AVAILABLE", charger.getOcppId());
+                    String chargerOcppId = session.getCharger().getOcppId();
+                    if (chargerStateCache.update(chargerOcppId, true, false, ChargerStatus.AVAILABLE.getValue())) {
+                        log.info("Charger {} status reset to AVAILABLE", chargerOcppId);
+                    }
                 } catch (Exception chargerEx) {
                     log.error("Failed to reset charger {} status: {}",
                             session.getCharger().getOcppId(), chargerEx.getMessage());
@@ -468,189 +498,107 @@ public class OcppWebSocketServer extends WebSocketServer {
     /**
      * Handle StatusNotification - Update charger availability
      */
-    private void handleStatusNotification(WebSocket conn, String messageId, JsonNode payload) {
-        String ocppId = connectionToOcppIdMap.get(conn);
-        int connectorId = payload.has("connectorId") ? payload.get("connectorId").asInt() : 0;
-        String status = payload.has("status") ? payload.get("status").asText() : "Unknown";
+    private void handleStatusNotification(WebSocket conn, String ocppId, String messageId,
+            OcppFrameDecoder.StatusNotification payload) {
+        int connectorId = payload.connectorId() != null ? payload.connectorId() : 0;
+        String status = payload.status() != null ? payload.status() : "Unknown";
 
         log.info("StatusNotification - OCPP_ID: {}, Connector: {}, Status: {}",
                 ocppId, connectorId, status);
 
-        // Update charger availability in database
+        // Update charger availability (written to the database only on a change)
         try {
-            Charger charger = chargerRepository.findByOcppId(ocppId).orElse(null);
-            if (charger != null) {
-                boolean isAvailable = "Available".equalsIgnoreCase(status);
-                boolean isOccupied = "Occupied".equalsIgnoreCase(status) ||
-                        "Charging".equalsIgnoreCase(status);
-
-                charger.setAvailability(isAvailable);
-                charger.setOccupied(isOccupied);
-                chargerRepository.save(charger);
+            boolean isAvailable = "Available".equalsIgnoreCase(status);
+            boolean isOccupied = "Occupied".equalsIgnoreCase(status) ||
+                    "Charging".equalsIgnoreCase(status);
 
+            if (chargerStateCache.updateAvailability(ocppId, isAvailable, isOccupied)) {
                 log.debug("Updated charger {}: available={}, occupied={}",
-                        charger.getId(), isAvailable, isOccupied);
+                        ocppId, isAvailable, isOccupied);
             }
         } catch (Exception e) {
             log.error("Error updating charger status: {}", e.getMessage());
         }
 
-        sendCallResult(conn, messageId, objectMapper.createObjectNode());
+        sendFrame(conn, responseEncoder.emptyResult(messageId));
     }
 
-    // REPLACE YOUR EXISTING handleMeterValues METHOD WITH THIS ONE
-
     /**
      * Handle MeterValues - Update energy consumption during charging
      * For RFID sessions: incremental wallet deduction
      * For Plan/kWh sessions: check if limit reached
+     *
+     * Session state comes from LiveSessionRegistry, so the common case runs
+     * without any SQL; readings are written back by the registry.
      */
-    private void handleMeterValues(WebSocket conn, String messageId, JsonNode payload) {
+    private void handleMeterValues(WebSocket conn, String ocppId, String messageId,
+            OcppFrameDecoder.MeterValues payload) {
         try {
-            String ocppId = connectionToOcppIdMap.get(conn);
-            int transactionId = payload.has("transactionId") ? payload.get("transactionId").asInt() : -1;
+            int transactionId = payload.transactionId() != null ? payload.transactionId() : -1;
 
             if (transactionId == -1) {
                 log.debug("MeterValues without transactionId (heartbeat meter)");
-                sendCallResult(conn, messageId, objectMapper.createObjectNode());
+                sendFrame(conn, responseEncoder.emptyResult(messageId));
                 return;
             }
 
-            // Extract current energy value (This is the Absolute Meter Reading e.g.,
-            // 10500.5 kWh)
-            BigDecimal currentAbsKwh = extractEnergyFromMeterValues(payload);
-
-            if (currentAbsKwh == null) {
-                log.debug("MeterValues - no energy measurand found");
-                sendCallResult(conn, messageId, objectMapper.createObjectNode());
+            // Look up live session state
+            LiveSessionRegistry.LiveSession live = liveSessionRegistry.getOrLoad(transactionId);
+            if (live == null) {
+                log.warn("No active session for TxId {} on meter update", transactionId);
+                sendFrame(conn, responseEncoder.emptyResult(messageId));
                 return;
             }
 
-            // Look up session
-            Long sessionId = transactionToSessionMap.get(transactionId);
-            if (sessionId == null) {
-                sessionId = (long) transactionId;
-            }
+            Long sessionId = live.getSessionId();
 
-            Session session = sessionService.getSessionById(sessionId);
-            if (session == null) {
-                log.warn("Session {} not found for meter update", sessionId);
-                sendCallResult(conn, messageId, objectMapper.createObjectNode());
+            // Keep every sampled value for the session's charge curve
+            meterSampleService.append(sessionId, payload.samples());
+
+            // Current energy value, decoded while streaming the frame (This is the
+            // Absolute Meter Reading e.g., 10500.5 kWh)
+            Double currentAbsKwh = payload.energyKwh();
+
+            if (currentAbsKwh == null) {
+                log.debug("MeterValues - no energy measurand found");
+                sendFrame(conn, responseEncoder.emptyResult(messageId));
                 return;
             }
 
-            log.debug("MeterValues - SessionId: {}, CurrentAbsKwh: {}, Source: {}",
-                    sessionId, currentAbsKwh, session.getSourceType());
+            // Calculate actual consumption for THIS session (kWh, 3 decimals)
+            double consumedKwh = live.recordReading(currentAbsKwh);
+
+            log.debug("MeterValues - SessionId: {}, AbsoluteMeter: {}, StartMeter: {}, Consumed: {}, Source: {}",
+                    sessionId, currentAbsKwh, live.getStartMeterKwh(), consumedKwh, live.getSourceType());
 
             // Handle based on session type
-            if ("RFID".equals(session.getSourceType())) {
-                // RFID Flow: Incremental wallet deduction (RFID service handles deltas
-                // internally)
-                Session updated = rfidChargingService.updateEnergy(sessionId, currentAbsKwh);
+            if (live.isRfid()) {
+                // RFID Flow: Incremental wallet deduction on energy consumed in this
+                // session (RFID service handles deltas internally)
+                boolean charging = rfidChargingService.billEnergy(live, BigDecimal.valueOf(consumedKwh));
 
                 // If session was auto-stopped due to low balance, stop transaction
-                if (SessionStatus.COMPLETED.matches(updated.getStatus())) {
+                if (!charging) {
                     log.warn("RFID session {} auto-stopped due to low balance", sessionId);
-                    transactionToSessionMap.remove(transactionId);
+                    liveSessionRegistry.remove(transactionId);
                     sendRemoteStopTransaction(conn, transactionId);
                 }
-            } else {
-                // ✅ FIX STARTS HERE: Plan/kWh Package Flow
-
-                // 1. Get the meter reading from when the session started
-                Double startKwh = session.getStartMeterReading();
-                if (startKwh == null) {
-                    // Fallback using map
-                    Double startMeterWh = sessionToMeterStartMap.getOrDefault(sessionId, 0.0);
-                    startKwh = startMeterWh / 1000.0;
-                }
-
-                // 2. Calculate actual consumption for THIS session
-                // currentAbsKwh is already in kWh from helper method
-                double rawConsumed = currentAbsKwh.doubleValue() - startKwh;
-                // Round to 3 decimal places
-                double consumedKwh = Math.round(rawConsumed * 1000.0) / 1000.0;
-
-                // Safety: handle cases where meter might reset or glitch
-                if (consumedKwh < 0) {
-                    log.warn("Negative consumption detected (Meter reset?): Current={}, Start={}. Treating as 0.",
-                            currentAbsKwh, startKwh);
-                    consumedKwh = 0;
-                }
-
-                log.info("kWh Check: SessionId={}, AbsoluteMeter={}, StartMeter={}, Consumed={}",
-                        sessionId, currentAbsKwh, startKwh, consumedKwh);
-
-                // Update last known meter reading AND current energy usage to DB
-                session.setLastMeterReading(currentAbsKwh.doubleValue());
-                session.setEnergyKwh(consumedKwh); // ✅ SAVING ENERGY TO DB
-                sessionRepository.save(session);
-
-                // 3. Pass the CONSUMED value
+            } else if (live.hasReachedTarget()) {
+                // Plan/kWh Package Flow: only go to the DB once the selected kWh is reached
+                log.info("kWh target reached: SessionId={}, Consumed={}, Target={}",
+                        sessionId, consumedKwh, live.getSelectedKwh());
                 sessionService.checkAndStopIfReachedKwh(sessionId, consumedKwh);
             }
 
-            sendCallResult(conn, messageId, objectMapper.createObjectNode());
-
-        } catch (Exception e) {
-            log.error("Error handling MeterValues: {}", e.getMessage(), e);
-            sendCallResult(conn, messageId, objectMapper.createObjectNode());
-        }
-    }
-
-    /**
-     * Extract energy value from OCPP MeterValues payload
-     * * --- THIS IS THE UPDATED, MORE ROBUST METHOD ---
-     */
-    private BigDecimal extractEnergyFromMeterValues(JsonNode payload) {
-        try {
-            if (!payload.has("meterValue"))
-                return null;
-
-            JsonNode meterValues = payload.get("meterValue");
-            if (!meterValues.isArray())
-                return null;
-
-            for (JsonNode meterValue : meterValues) {
-                if (!meterValue.has("sampledValue"))
-                    continue;
-
-                JsonNode sampledValues = meterValue.get("sampledValue");
-                if (!sampledValues.isArray())
-                    continue;
-
-                for (JsonNode sample : sampledValues) {
-                    // SAFER: Only proceed if measurand is present
-                    if (!sample.has("measurand")) {
-                        continue;
-                    }
-
-                    String measurand = sample.get("measurand").asText();
+            // Coalesced and pushed to app subscribers on the next telemetry tick
+            sessionTelemetryHub.publishReading(live);
 
-                    if ("Energy.Active.Import.Register".equals(measurand)) {
-                        String valueStr = sample.get("value").asText();
-                        BigDecimal value = new BigDecimal(valueStr);
+            sendFrame(conn, responseEncoder.emptyResult(messageId));
 
-                        // ROBUSTNESS: Check the unit. Default to Wh if not specified.
-                        String unit = sample.has("unit") ? sample.get("unit").asText() : "Wh";
-
-                        if ("kWh".equalsIgnoreCase(unit)) {
-                            // Value is already in kWh
-                            log.debug("Meter value is already in kWh: {}", value);
-                            return value;
-                        } else {
-                            // Assume Wh, convert to kWh
-                            BigDecimal valueKwh = value.divide(BigDecimal.valueOf(1000), 4, RoundingMode.HALF_UP);
-                            log.debug("Converted Wh to kWh: {} Wh -> {} kWh", value, valueKwh);
-                            return valueKwh;
-                        }
-                    }
-                }
-            }
         } catch (Exception e) {
-            log.error("Error parsing meter values: {}", e.getMessage());
+            log.error("Error handling MeterValues: {}", e.getMessage(), e);
+            sendFrame(conn, responseEncoder.emptyResult(messageId));
         }
-        return null; // Return null if no valid energy value was found
     }
 
     /**
@@ -680,18 +628,12 @@ public class OcppWebSocketServer extends WebSocketServer {
     /**
      * Send OCPP CallResult (type 3)
      */
-    private void sendCallResult(WebSocket conn, String messageId, ObjectNode payload) {
+    private void sendFrame(WebSocket conn, String frame) {
         try {
-            ArrayNode response = objectMapper.createArrayNode();
-            response.add(OCPP_CALL_RESULT);
-            response.add(messageId);
-            response.add(payload);
-
-            String responseStr = objectMapper.writeValueAsString(response);
-            conn.send(responseStr);
-            log.debug("Sent CallResult: {}", responseStr);
+            conn.send(frame);
+            log.debug("Sent: {}", frame);
         } catch (Exception e) {
-            log.error("Error sending CallResult: {}", e.getMessage(), e);
+            log.error("Error sending OCPP frame: {}", e.getMessage(), e);
         }
     }
 
@@ -699,20 +641,7 @@ public class OcppWebSocketServer extends WebSocketServer {
      * Send OCPP CallError (type 4)
      */
     private void sendErrorResponse(WebSocket conn, String messageId, String errorCode, String errorDescription) {
-        try {
-            ArrayNode response = objectMapper.createArrayNode();
-            response.add(OCPP_CALL_ERROR);
-            response.add(messageId);
-            response.add(errorCode);
-            response.add(errorDescription);
-            response.add(objectMapper.createObjectNode());
-
-            String responseStr = objectMapper.writeValueAsString(response);
-            conn.send(responseStr);
-            log.debug("Sent CallError: {}", responseStr);
-        } catch (Exception e) {
-            log.error("Error sending CallError: {}", e.getMessage(), e);
-        }
+        sendFrame(conn, responseEncoder.callError(messageId, errorCode, errorDescription));
     }
 
     /**
@@ -765,42 +694,57 @@ public class OcppWebSocketServer extends WebSocketServer {
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
         String ocppId = connectionToOcppIdMap.remove(conn);
         if (ocppId != null) {
-            ocppIdToConnectionMap.remove(ocppId);
-
-            log.warn("Charger {} disconnected. Checking for active sessions to stop...", ocppId);
-            try {
-                Charger charger = chargerRepository.findByOcppId(ocppId).orElse(null);
-                if (charger != null) {
-                    charger.setAvailability(false);
-                    charger.setOccupied(false);
-                    charger.setStatus(ChargerStatus.OFFLINE.getValue());
-                    chargerRepository.save(charger);
-                    log.info("Charger {} status set to OFFLINE", ocppId);
-
-                    // Find active or initiated session
-                    Session session = sessionRepository.findFirstByChargerAndStatusInOrderByCreatedAtDesc(
-                            charger,
-                            java.util.Arrays.asList(SessionStatus.ACTIVE.getValue(),
-                                    SessionStatus.INITIATED.getValue()))
-                            .orElse(null);
+            // Only drop the mapping if a reconnect has not already replaced it
+            ocppIdToConnectionMap.remove(ocppId, conn);
 
-                    if (session != null) {
-                        log.info("Stopping active session {} due to charger disconnection", session.getId());
-                        if ("RFID".equalsIgnoreCase(session.getSourceType())) {
-                            rfidChargingService.stopCharging(session.getId());
-                        } else {
-                            sessionService.stopSessionBySystem(session.getId());
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("Error stopping session on close: {}", e.getMessage());
+            // Queue behind any messages still pending for this charger
+            boolean accepted = messageDispatcher.dispatch(ocppId, () -> handleDisconnect(ocppId));
+            if (!accepted) {
+                log.error("Could not queue disconnect handling for charger {}", ocppId);
             }
         }
         log.info("Charger disconnected: {} (OCPP ID: {}, Code: {}, Reason: {})",
                 conn.getRemoteSocketAddress(), ocppId, code, reason);
     }
 
+    /**
+     * Mark charger offline and stop any running session after a disconnect.
+     * Runs on the charger's mailbox so it is ordered after pending messages.
+     */
+    private void handleDisconnect(String ocppId) {
+        log.warn("Charger {} disconnected. Checking for active sessions to stop...", ocppId);
+        try {
+            ChargerStateCache.ChargerState state = chargerStateCache.get(ocppId);
+            if (state != null) {
+                chargerStateCache.update(ocppId, false, false, ChargerStatus.OFFLINE.getValue());
+                log.info("Charger {} status set to OFFLINE", ocppId);
+                Charger charger = chargerRepository.getReferenceById(state.getId());
+
+                // Find active or initiated session
+                Session session = sessionRepository.findFirstByChargerAndStatusInOrderByCreatedAtDesc(
+                        charger,
+                        java.util.Arrays.asList(SessionStatus.ACTIVE.getValue(),
+                                SessionStatus.INITIATED.getValue()))
+                        .orElse(null);
+
+                if (session != null) {
+                    log.info("Stopping active session {} due to charger disconnection", session.getId());
+                    liveSessionRegistry.remove(session.getId().intValue());
+                    meterSampleService.close(session.getId());
+                    if ("RFID".equalsIgnoreCase(session.getSourceType())) {
+                        rfidChargingService.stopCharging(session.getId());
+                    } else {
+                        sessionService.stopSessionBySystem(session.getId());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error stopping session on close: {}", e.getMessage());
+        } finally {
+            messageDispatcher.release(ocppId);
+        }
+    }
+
     @Override
     public void onError(WebSocket conn, Exception ex) {
         String ocppId = connectionToOcppIdMap.getOrDefault(conn, "UNKNOWN");
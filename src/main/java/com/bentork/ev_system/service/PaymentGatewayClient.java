@@ -0,0 +1,42 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Lookups against the payment gateway that wallet top-ups depend on.
+ * Selected with payment.gateway.client: "razorpay" (default) calls the
+ * Razorpay API, "local" answers from memory for tests and load benchmarks.
+ */
+public interface PaymentGatewayClient {
+
+    /**
+     * Amount of an order, in rupees.
+     */
+    default BigDecimal fetchOrderAmount(String orderId) throws Exception {
+        return fetchOrder(orderId).amount();
+    }
+
+    GatewayOrder fetchOrder(String orderId) throws Exception;
+
+    /**
+     * One page of the orders created in [from, to), epoch seconds.
+     */
+    List<GatewayOrder> listOrders(long from, long to, int skip, int count) throws Exception;
+
+    /**
+     * Id of the captured payment of an order, or null if it has none.
+     */
+    String fetchCapturedPaymentId(String orderId) throws Exception;
+
+    /**
+     * Amounts in rupees; userId comes from the order notes and is null for
+     * orders created without one.
+     */
+    record GatewayOrder(String orderId, String status, BigDecimal amount, Long userId) {
+
+        public boolean isPaid() {
+            return "paid".equalsIgnoreCase(status);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.bentork.ev_system.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.model.PaymentTopup;
+import com.bentork.ev_system.repository.PaymentTopupRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Nightly safety net for lost webhooks and abandoned verifications.
+ *
+ * Pages through the gateway's orders of the last lookback-hours and queues
+ * every paid order that has no CREDITED top-up into the webhook inbox
+ * (event id "reconcile:<orderId>"), where the regular worker credits it. A
+ * reconcile event that FAILED on an earlier night is given a fresh set of
+ * attempts. Top-ups are looked up per page, not per order.
+ */
+@Slf4j
+@Service
+public class PaymentReconciliationService {
+
+    @Autowired
+    private PaymentGatewayClient gatewayClient;
+
+    @Autowired
+    private PaymentTopupRepository topupRepository;
+
+    @Autowired
+    private PaymentWebhookService webhookService;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    // Local time of day, HH:mm
+    @Value("${payment.reconcile.time:02:30}")
+    private String runAt;
+
+    @Value("${payment.reconcile.lookback-hours:48}")
+    private long lookbackHours;
+
+    @Value("${payment.reconcile.page-size:100}")
+    private int pageSize;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @PostConstruct
+    public void init() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(LocalTime.parse(runAt));
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        long initialDelayMs = Duration.between(now, next).toMillis();
+        scheduler.scheduleAtFixedRate(this::reconcile, initialDelayMs, TimeUnit.DAYS.toMillis(1),
+                TimeUnit.MILLISECONDS);
+        log.info("Payment reconciliation scheduled daily at {}, first run {}", runAt, next);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Queue paid orders that were never credited. Returns the number queued.
+     */
+    public int reconcile() {
+        long to = Instant.now().getEpochSecond();
+        long from = to - TimeUnit.HOURS.toSeconds(lookbackHours);
+        int scanned = 0;
+        int queued = 0;
+        try {
+            for (int skip = 0;; skip += pageSize) {
+                List<PaymentGatewayClient.GatewayOrder> page = gatewayClient.listOrders(from, to, skip, pageSize);
+                scanned += page.size();
+
+                Set<String> paid = new HashSet<>();
+                for (PaymentGatewayClient.GatewayOrder order : page) {
+                    if (order.isPaid() && order.userId() != null) {
+                        paid.add(order.orderId());
+                    }
+                }
+                if (!paid.isEmpty()) {
+                    for (PaymentTopup topup : topupRepository.findAllById(paid)) {
+                        if (PaymentTopup.CREDITED.equals(topup.getStatus())) {
+                            paid.remove(topup.getOrderId());
+                        }
+                    }
+                }
+
+                for (PaymentGatewayClient.GatewayOrder order : page) {
+                    if (paid.contains(order.orderId()) && enqueue(order)) {
+                        queued++;
+                    }
+                }
+
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+
+            log.info("Payment reconciliation done: scanned={}, queued={}", scanned, queued);
+            if (queued > 0) {
+                notificationDispatcher.publishAdmin("Payment reconciliation found " + queued
+                        + " paid top-up(s) that were not credited; they have been queued", "Payment");
+            }
+        } catch (Exception e) {
+            log.error("Payment reconciliation failed after {} orders: {}", scanned, e.getMessage(), e);
+        }
+        return queued;
+    }
+
+    private boolean enqueue(PaymentGatewayClient.GatewayOrder order) {
+        try {
+            String paymentId = gatewayClient.fetchCapturedPaymentId(order.orderId());
+            if (paymentId == null) {
+                return false;
+            }
+            log.warn("Uncredited paid order found: orderId={}, userId={}, amount={}",
+                    order.orderId(), order.userId(), order.amount());
+            String eventId = "reconcile:" + order.orderId();
+            return webhookService.enqueue(eventId, PaymentWebhookService.ORDER_PAID, order.orderId(), paymentId,
+                    order.userId(), order.amount(), null) || webhookService.requeueFailed(eventId);
+        } catch (Exception e) {
+            log.error("Failed to queue uncredited order: orderId={}: {}", order.orderId(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bentork.ev_system.model.PaymentTopup;
+import com.bentork.ev_system.model.WalletTransaction;
+import com.bentork.ev_system.repository.PaymentTopupRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotent wallet top-ups for verified gateway payments.
+ *
+ * A verification first claims the order in payment_topups. Only the claim
+ * holder looks the amount up at the gateway and credits the wallet, on a
+ * bounded worker pool so request threads never wait on the gateway. The
+ * credit and the PENDING -> CREDITED transition share one transaction.
+ * Repeated verifications of an order get the recorded outcome (or join the
+ * lookup in flight on this node) instead of crediting again.
+ *
+ * At most payment.verify.max-outstanding lookups are queued; beyond that
+ * submit() rejects and the claim is released, so the client can retry.
+ */
+@Slf4j
+@Service
+public class PaymentTopupService {
+
+    @Autowired
+    private PaymentTopupRepository topupRepository;
+
+    @Autowired
+    private PaymentGatewayClient gatewayClient;
+
+    @Autowired
+    private WalletTransactionService walletTransactionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${payment.verify.threads:4}")
+    private int threads;
+
+    @Value("${payment.verify.max-outstanding:200}")
+    private int maxOutstanding;
+
+    // A PENDING claim older than this is considered abandoned
+    @Value("${payment.verify.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    private ThreadPoolExecutor workers;
+
+    private TransactionTemplate tx;
+
+    // Lookups running on this node, by order id
+    private final Map<String, CompletableFuture<PaymentTopup>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxOutstanding), new ThreadPoolExecutor.AbortPolicy());
+        log.info("Payment top-up workers started: threads={}, maxOutstanding={}", threads, maxOutstanding);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Credit a verified payment once. The future completes with the top-up
+     * record (CREDITED or FAILED; PENDING when another node is processing
+     * it).
+     *
+     * @throws IllegalStateException      if the order or payment belongs to
+     *                                    another user or order
+     * @throws RejectedExecutionException if too many top-ups are outstanding
+     */
+    public CompletableFuture<PaymentTopup> submit(String orderId, String paymentId, Long userId) {
+        if (topupRepository.claim(orderId, paymentId, userId) == 1) {
+            return dispatch(orderId, userId);
+        }
+
+        PaymentTopup existing = topupRepository.findById(orderId)
+                .orElseGet(() -> topupRepository.findByPaymentId(paymentId).orElse(null));
+        if (existing == null || !existing.getOrderId().equals(orderId)
+                || !existing.getPaymentId().equals(paymentId) || !existing.getUserId().equals(userId)) {
+            log.warn("Top-up claim conflict: orderId={}, paymentId={}, userId={}", orderId, paymentId, userId);
+            throw new IllegalStateException("Payment already recorded for another order or user");
+        }
+
+        CompletableFuture<PaymentTopup> running = inFlight.get(orderId);
+        if (running != null) {
+            return running;
+        }
+        if (PaymentTopup.CREDITED.equals(existing.getStatus())) {
+            log.info("Top-up already credited: orderId={}, userId={}", orderId, userId);
+            return CompletableFuture.completedFuture(existing);
+        }
+        LocalDateTime staleBefore = LocalDateTime.now().minus(staleAfterMs, ChronoUnit.MILLIS);
+        if (topupRepository.reclaim(orderId, staleBefore) == 1) {
+            log.info("Retrying top-up: orderId={}, previousStatus={}", orderId, existing.getStatus());
+            return dispatch(orderId, userId);
+        }
+        // Being processed elsewhere
+        return CompletableFuture.completedFuture(topupRepository.findById(orderId).orElse(existing));
+    }
+
+    /**
+     * Credit a payment reported by the gateway itself (webhook or
+     * reconciliation), in the caller's transaction. Returns false when the
+     * order was already credited.
+     *
+     * @throws IllegalStateException if the order or payment is recorded for
+     *                               another user or order
+     */
+    public boolean creditFromGateway(String orderId, String paymentId, Long userId, BigDecimal amount) {
+        if (topupRepository.claim(orderId, paymentId, userId) == 0) {
+            PaymentTopup existing = topupRepository.findById(orderId)
+                    .orElseGet(() -> topupRepository.findByPaymentId(paymentId).orElse(null));
+            if (existing == null || !existing.getOrderId().equals(orderId)
+                    || !existing.getUserId().equals(userId)) {
+                throw new IllegalStateException("Payment already recorded for another order or user");
+            }
+            if (PaymentTopup.CREDITED.equals(existing.getStatus())) {
+                return false;
+            }
+            // FAILED, or PENDING with a verification in flight: whoever marks it
+            // CREDITED first credits the wallet
+            topupRepository.reclaim(orderId, LocalDateTime.now());
+        }
+        if (topupRepository.markCredited(orderId, amount) == 0) {
+            return false;
+        }
+        WalletTransaction credit = walletTransactionService.credit(userId, null, amount, "TOPUP");
+        topupRepository.setWalletTransactionId(orderId, credit.getId());
+        log.info("Top-up credited from gateway: orderId={}, userId={}, amount={}", orderId, userId, amount);
+        return true;
+    }
+
+    public Optional<PaymentTopup> find(String orderId) {
+        return topupRepository.findById(orderId);
+    }
+
+    public int outstanding() {
+        return workers.getQueue().size() + workers.getActiveCount();
+    }
+
+    private CompletableFuture<PaymentTopup> dispatch(String orderId, Long userId) {
+        CompletableFuture<PaymentTopup> future = new CompletableFuture<>();
+        inFlight.put(orderId, future);
+        try {
+            workers.execute(() -> process(orderId, userId, future));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(orderId, future);
+            topupRepository.markFailed(orderId, "Too many top-ups in progress");
+            log.warn("Top-up rejected, {} outstanding: orderId={}", outstanding(), orderId);
+            throw e;
+        }
+        return future;
+    }
+
+    private void process(String orderId, Long userId, CompletableFuture<PaymentTopup> future) {
+        try {
+            BigDecimal amount = gatewayClient.fetchOrderAmount(orderId);
+
+            tx.executeWithoutResult(status -> {
+                if (topupRepository.markCredited(orderId, amount) == 0) {
+                    // Claim lost (e.g. reclaimed as stale)
+                    return;
+                }
+                // GST + PST are applied for TOPUP credits
+                WalletTransaction credit = walletTransactionService.credit(userId, null, amount, "TOPUP");
+                topupRepository.setWalletTransactionId(orderId, credit.getId());
+            });
+            log.info("Top-up credited: orderId={}, userId={}, amount={}", orderId, userId, amount);
+        } catch (Exception e) {
+            log.error("Top-up failed: orderId={}, userId={}: {}", orderId, userId, e.getMessage(), e);
+            try {
+                topupRepository.markFailed(orderId, truncate(e.getMessage()));
+            } catch (Exception markEx) {
+                log.error("Failed to mark top-up failed: orderId={}: {}", orderId, markEx.getMessage());
+            }
+        } finally {
+            inFlight.remove(orderId, future);
+            try {
+                future.complete(topupRepository.findById(orderId).orElse(null));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
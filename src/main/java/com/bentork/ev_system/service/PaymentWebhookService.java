@@ -0,0 +1,332 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bentork.ev_system.model.PaymentTopup;
+import com.bentork.ev_system.model.PaymentWebhookEvent;
+import com.bentork.ev_system.repository.PaymentTopupRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable inbox for payment gateway events and the worker that credits them.
+ *
+ * The webhook endpoint only verifies the signature and stores the event
+ * (INSERT IGNORE on the gateway's event id, so redeliveries are dropped).
+ * A worker takes NEW events in batches, fills in what the event lacks (user,
+ * payment id, amount) from payment_topups or the gateway, and credits the
+ * whole batch in one transaction through PaymentTopupService, which credits
+ * every order at most once whichever path (app verification, webhook,
+ * reconciliation) gets there first. If the batch fails, its events are
+ * retried one by one with backoff; after max-attempts an event is FAILED.
+ */
+@Slf4j
+@Service
+public class PaymentWebhookService {
+
+    public static final String PAYMENT_CAPTURED = "payment.captured";
+    public static final String ORDER_PAID = "order.paid";
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO payment_webhook_events "
+            + "(event_id, event_type, order_id, payment_id, user_id, amount, status, attempts, payload, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+
+    private static final String NEXT_BATCH_SQL = "SELECT id, order_id, payment_id, user_id, amount, "
+            + "attempts FROM payment_webhook_events WHERE status = ? "
+            + "AND (next_attempt_at IS NULL OR next_attempt_at <= ?) ORDER BY id LIMIT ?";
+
+    private static final String REQUEUE_SQL = "UPDATE payment_webhook_events SET status = ?, attempts = 0, "
+            + "error = NULL, next_attempt_at = NULL WHERE event_id = ? AND status = ?";
+
+    private static final String UPDATE_SQL = "UPDATE payment_webhook_events SET status = ?, attempts = ?, "
+            + "error = ?, user_id = ?, payment_id = ?, amount = ?, next_attempt_at = ?, processed_at = ? "
+            + "WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentTopupService topupService;
+
+    @Autowired
+    private PaymentTopupRepository topupRepository;
+
+    @Autowired
+    private PaymentGatewayClient gatewayClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${payment.webhook.poll-ms:1000}")
+    private long pollMs;
+
+    @Value("${payment.webhook.batch-size:100}")
+    private int batchSize;
+
+    @Value("${payment.webhook.max-attempts:10}")
+    private int maxAttempts;
+
+    // Backoff grows linearly with the attempt number
+    @Value("${payment.webhook.retry-delay-ms:60000}")
+    private long retryDelayMs;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        worker.scheduleWithFixedDelay(this::drain, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        log.info("Payment webhook worker started: pollMs={}, batchSize={}", pollMs, batchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unprocessed events stay in the inbox
+        worker.shutdownNow();
+    }
+
+    /**
+     * Store a verified webhook. Returns false for event types that do not
+     * credit wallets (nothing is stored).
+     */
+    public boolean ingest(String body, String eventId) {
+        JSONObject json = new JSONObject(body);
+        String type = json.optString("event");
+        if (!PAYMENT_CAPTURED.equals(type) && !ORDER_PAID.equals(type)) {
+            log.debug("Ignoring payment webhook: event={}", type);
+            return false;
+        }
+
+        JSONObject payload = json.optJSONObject("payload");
+        JSONObject payment = entity(payload, "payment");
+        JSONObject order = entity(payload, "order");
+
+        String orderId = payment != null ? payment.optString("order_id", null) : null;
+        if (orderId == null && order != null) {
+            orderId = order.optString("id", null);
+        }
+        String paymentId = payment != null ? payment.optString("id", null) : null;
+
+        // paise
+        BigDecimal amount = null;
+        if (payment != null && payment.has("amount")) {
+            amount = BigDecimal.valueOf(payment.getLong("amount")).movePointLeft(2);
+        } else if (order != null && order.has("amount_paid")) {
+            amount = BigDecimal.valueOf(order.getLong("amount_paid")).movePointLeft(2);
+        }
+
+        Long userId = userIdFromNotes(order);
+        if (userId == null) {
+            userId = userIdFromNotes(payment);
+        }
+
+        if (orderId == null) {
+            log.warn("Payment webhook without order id: event={}, paymentId={}", type, paymentId);
+            return false;
+        }
+        if (eventId == null || eventId.isBlank()) {
+            eventId = type + ":" + (paymentId != null ? paymentId : orderId);
+        }
+
+        enqueue(eventId, type, orderId, paymentId, userId, amount, body);
+        return true;
+    }
+
+    /**
+     * Add an event to the inbox; a second event with the same id is dropped.
+     */
+    public boolean enqueue(String eventId, String type, String orderId, String paymentId, Long userId,
+            BigDecimal amount, String payload) {
+        int inserted = jdbcTemplate.update(INSERT_SQL, eventId, type, orderId, paymentId, userId, amount,
+                PaymentWebhookEvent.NEW, payload, Timestamp.valueOf(LocalDateTime.now()));
+        if (inserted == 1) {
+            log.info("Payment event queued: eventId={}, type={}, orderId={}", eventId, type, orderId);
+        } else {
+            log.debug("Duplicate payment event dropped: eventId={}", eventId);
+        }
+        return inserted == 1;
+    }
+
+    /**
+     * Give a FAILED event a fresh set of attempts. Returns false when there is
+     * no FAILED event with that id.
+     */
+    public boolean requeueFailed(String eventId) {
+        int requeued = jdbcTemplate.update(REQUEUE_SQL, PaymentWebhookEvent.NEW, eventId, PaymentWebhookEvent.FAILED);
+        if (requeued == 1) {
+            log.info("Failed payment event requeued: eventId={}", eventId);
+        }
+        return requeued == 1;
+    }
+
+    private void drain() {
+        try {
+            int processed;
+            do {
+                processed = processBatch();
+            } while (processed >= batchSize);
+        } catch (Exception e) {
+            log.error("Payment webhook worker error: {}", e.getMessage(), e);
+        }
+    }
+
+    private int processBatch() {
+        List<Event> events = jdbcTemplate.query(NEXT_BATCH_SQL,
+                (rs, rowNum) -> new Event(rs.getLong("id"), rs.getString("order_id"), rs.getString("payment_id"),
+                        rs.getObject("user_id", Long.class),
+                        rs.getBigDecimal("amount"), rs.getInt("attempts")),
+                PaymentWebhookEvent.NEW, Timestamp.valueOf(LocalDateTime.now()), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Gateway lookups happen outside the credit transaction
+        List<Event> ready = new ArrayList<>();
+        for (Event event : events) {
+            try {
+                resolve(event);
+                if (event.userId == null) {
+                    finish(event, PaymentWebhookEvent.IGNORED, "No user for order");
+                } else {
+                    ready.add(event);
+                }
+            } catch (Exception e) {
+                retry(event, e);
+            }
+        }
+
+        try {
+            tx.executeWithoutResult(status -> {
+                for (Event event : ready) {
+                    credit(event);
+                }
+            });
+            log.debug("Credited payment batch: events={}", ready.size());
+        } catch (Exception e) {
+            log.warn("Payment batch of {} failed, retrying one by one: {}", ready.size(), e.getMessage());
+            for (Event event : ready) {
+                try {
+                    tx.executeWithoutResult(status -> credit(event));
+                } catch (IllegalStateException conflict) {
+                    finish(event, PaymentWebhookEvent.FAILED, conflict.getMessage());
+                } catch (Exception eventEx) {
+                    retry(event, eventEx);
+                }
+            }
+        }
+        return events.size();
+    }
+
+    private void credit(Event event) {
+        boolean credited = topupService.creditFromGateway(event.orderId, event.paymentId, event.userId,
+                event.amount);
+        finish(event, PaymentWebhookEvent.PROCESSED, credited ? null : "Already credited");
+    }
+
+    private void resolve(Event event) throws Exception {
+        if (event.userId == null) {
+            event.userId = topupRepository.findById(event.orderId).map(PaymentTopup::getUserId).orElse(null);
+        }
+        if (event.userId == null || event.amount == null) {
+            PaymentGatewayClient.GatewayOrder order = gatewayClient.fetchOrder(event.orderId);
+            if (event.userId == null) {
+                event.userId = order.userId();
+            }
+            if (event.amount == null) {
+                event.amount = order.amount();
+            }
+        }
+        if (event.paymentId == null && event.userId != null) {
+            event.paymentId = gatewayClient.fetchCapturedPaymentId(event.orderId);
+            if (event.paymentId == null) {
+                throw new IllegalStateException("Order has no captured payment yet");
+            }
+        }
+    }
+
+    private void finish(Event event, String status, String note) {
+        jdbcTemplate.update(UPDATE_SQL, status, event.attempts + 1, note, event.userId, event.paymentId,
+                event.amount, null, Timestamp.valueOf(LocalDateTime.now()), event.id);
+    }
+
+    private void retry(Event event, Exception e) {
+        int attempts = event.attempts + 1;
+        String status = attempts >= maxAttempts ? PaymentWebhookEvent.FAILED : PaymentWebhookEvent.NEW;
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(retryDelayMs * attempts, ChronoUnit.MILLIS);
+        log.error("Payment event failed: id={}, orderId={}, attempt={}, status={}: {}",
+                event.id, event.orderId, attempts, status, e.getMessage());
+        try {
+            jdbcTemplate.update(UPDATE_SQL, status, attempts, truncate(e.getMessage()), event.userId,
+                    event.paymentId, event.amount, Timestamp.valueOf(nextAttemptAt), null, event.id);
+        } catch (Exception updateEx) {
+            log.error("Failed to record payment event failure: id={}: {}", event.id, updateEx.getMessage());
+        }
+    }
+
+    private static JSONObject entity(JSONObject payload, String name) {
+        if (payload == null) {
+            return null;
+        }
+        JSONObject wrapper = payload.optJSONObject(name);
+        return wrapper != null ? wrapper.optJSONObject("entity") : null;
+    }
+
+    private static Long userIdFromNotes(JSONObject entity) {
+        // Razorpay sends notes as an empty array when there are none
+        JSONObject notes = entity != null ? entity.optJSONObject("notes") : null;
+        if (notes == null || !notes.has("user_id")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(notes.get("user_id").toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private static final class Event {
+        private final long id;
+        private final String orderId;
+        private String paymentId;
+        private Long userId;
+        private BigDecimal amount;
+        private final int attempts;
+
+        private Event(long id, String orderId, String paymentId, Long userId, BigDecimal amount,
+                int attempts) {
+            this.id = id;
+            this.orderId = orderId;
+            this.paymentId = paymentId;
+            this.userId = userId;
+            this.amount = amount;
+            this.attempts = attempts;
+        }
+    }
+}
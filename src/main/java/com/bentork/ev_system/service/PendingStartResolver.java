@@ -0,0 +1,157 @@
+package com.bentork.ev_system.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.enums.SessionStatus;
+import com.bentork.ev_system.model.Charger;
+import com.bentork.ev_system.model.Receipt;
+import com.bentork.ev_system.model.Session;
+import com.bentork.ev_system.repository.ReceiptRepository;
+import com.bentork.ev_system.repository.SessionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds what a StartTransaction without a usable RFID card is starting: a
+ * session created by the app (or a remote RFID start) that waits for the
+ * charger, or a paid receipt that has no session yet.
+ *
+ * Whoever creates such a session offers it to the charger's slot, so the
+ * common case is a primary-key load. The slot is only a hint: it is
+ * validated against the row, and on a miss (restart, or the session was
+ * created on another node) one indexed query answers instead of scanning
+ * the charger's history.
+ *
+ * An RFID session started remotely is also looked up before a card tap
+ * would start a new one (pendingRfid).
+ */
+@Slf4j
+@Service
+public class PendingStartResolver {
+
+    // RemoteStartTransaction idTag of app sessions: SESSION_<sessionId>
+    public static final String SESSION_ID_TAG_PREFIX = "SESSION_";
+
+    private static final List<String> PENDING_STATUSES = List.of(
+            SessionStatus.INITIATED.getValue(), SessionStatus.ACTIVE.getValue());
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    // chargerId -> session waiting for its StartTransaction
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Remember a session that will be started by the charger's next
+     * StartTransaction. receipt is null for RFID sessions.
+     */
+    public void offer(Session session, Receipt receipt) {
+        slots.put(session.getCharger().getId(),
+                new Slot(session.getId(), receipt != null ? receipt.getId() : null));
+    }
+
+    /**
+     * Drop the charger's slot once its session has been started.
+     */
+    public void clear(Long chargerId, Long sessionId) {
+        slots.computeIfPresent(chargerId, (id, slot) -> slot.sessionId().equals(sessionId) ? null : slot);
+    }
+
+    /**
+     * The RFID session a remote start created for this user on this charger,
+     * so the card's StartTransaction does not open a second one.
+     */
+    public Optional<Session> pendingRfid(Charger charger, Long userId) {
+        Slot slot = slots.get(charger.getId());
+        if (slot == null || slot.receiptId() != null || userId == null) {
+            return Optional.empty();
+        }
+        return sessionRepository.findById(slot.sessionId())
+                .filter(session -> session.getCharger().getId().equals(charger.getId())
+                        && "RFID".equalsIgnoreCase(session.getSourceType())
+                        && SessionStatus.isActiveStatus(session.getStatus())
+                        && session.getUser() != null && userId.equals(session.getUser().getId()));
+    }
+
+    public static boolean isSessionIdTag(String idTag) {
+        return idTag != null && idTag.startsWith(SESSION_ID_TAG_PREFIX);
+    }
+
+    /**
+     * The session (with its receipt) or the paid receipt a StartTransaction
+     * on this charger should start, if any.
+     */
+    public Optional<PendingStart> resolve(Charger charger, String idTag) {
+        Long chargerId = charger.getId();
+
+        // 1. Direct hit: idTag carries the session id, or the slot has one
+        Slot slot = slots.get(chargerId);
+        Long sessionId = sessionIdFromTag(idTag);
+        if (sessionId == null && slot != null) {
+            sessionId = slot.sessionId();
+        }
+        if (sessionId != null) {
+            Session session = sessionRepository.findById(sessionId).orElse(null);
+            if (session != null && session.getCharger().getId().equals(chargerId)
+                    && SessionStatus.isActiveStatus(session.getStatus())) {
+                Receipt receipt;
+                if (slot != null && sessionId.equals(slot.sessionId())) {
+                    receipt = slot.receiptId() != null
+                            ? receiptRepository.findById(slot.receiptId()).orElse(null)
+                            : null;
+                } else {
+                    receipt = receiptRepository.findBySession(session).orElse(null);
+                }
+                return Optional.of(new PendingStart(session, receipt));
+            }
+            log.debug("Stale pending start for charger {}: sessionId={}", chargerId, sessionId);
+            if (slot != null && sessionId.equals(slot.sessionId())) {
+                clear(chargerId, sessionId);
+            }
+        }
+
+        // 2. Newest initiated/active session with its receipt, one indexed query
+        List<Object[]> latest = sessionRepository.findLatestWithReceipt(charger, PENDING_STATUSES,
+                PageRequest.of(0, 1));
+        if (!latest.isEmpty()) {
+            Object[] row = latest.get(0);
+            return Optional.of(new PendingStart((Session) row[0], (Receipt) row[1]));
+        }
+
+        // 3. Paid receipt whose session was never created
+        return receiptRepository.findFirstByChargerAndStatusOrderByCreatedAtDesc(charger, "PAID")
+                .filter(receipt -> receipt.getSession() == null)
+                .map(receipt -> new PendingStart(null, receipt));
+    }
+
+    private static Long sessionIdFromTag(String idTag) {
+        if (!isSessionIdTag(idTag)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(idTag.substring(SESSION_ID_TAG_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * session is null when only a paid receipt was found; receipt is null
+     * for RFID sessions.
+     */
+    public record PendingStart(Session session, Receipt receipt) {
+    }
+
+    private record Slot(Long sessionId, Long receiptId) {
+    }
+}
@@ -0,0 +1,204 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.bentork.ev_system.repository.RFIDCardRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Authorization cache for RFID idTags (the server side of the OCPP
+ * Authorization Cache).
+ *
+ * An entry holds whether the card exists and is active, its user, and
+ * whether that user's wallet covers a start. Entries are reloaded after
+ * cache-ttl-ms. Card changes invalidate the entry (RFIDCardService), and
+ * wallet changes seen by WalletLedgerService update balance-ok in place,
+ * so an Authorize is normally answered without touching the database.
+ * Entries whose card status changes are reported to change listeners (the
+ * local authorization list push). Balance changes are not: a session's
+ * wallet hold flips balance-ok on every start and stop.
+ */
+@Slf4j
+@Service
+public class RFIDAuthCache {
+
+    // Same minimum as starting an RFID session
+    public static final BigDecimal MIN_BALANCE = BigDecimal.ONE;
+
+    @Autowired
+    private RFIDCardRepository cardRepo;
+
+    @Autowired
+    private WalletLedgerService ledger;
+
+    // Bounds staleness of changes made on other nodes
+    @Value("${rfid.auth.cache-ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${rfid.auth.cache-max-entries:100000}")
+    private int maxEntries;
+
+    private final Map<String, Authorization> entries = new ConcurrentHashMap<>();
+
+    // userId -> cached idTags of that user, for wallet changes
+    private final Map<Long, Set<String>> tagsByUser = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a load that raced one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        ledger.addBalanceListener(this::onBalanceChanged);
+        log.info("RFID auth cache started: ttlMs={}, maxEntries={}", ttlMs, maxEntries);
+    }
+
+    /**
+     * Authorization of an idTag, from the cache when it is recent enough.
+     */
+    public Authorization authorize(String idTag) {
+        Authorization cached = entries.get(idTag);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() <= ttlMs) {
+            return cached;
+        }
+        long loadedIn = generation.get();
+        List<Object[]> rows = cardRepo.findAuthByCardNumber(idTag);
+        Authorization loaded = rows.isEmpty()
+                ? Authorization.unknown(idTag)
+                : toAuthorization(idTag, (Boolean) rows.get(0)[0], (Long) rows.get(0)[1]);
+        if (generation.get() == loadedIn) {
+            put(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Load up to limit cards (active first) into the cache and return them.
+     */
+    public List<Authorization> loadAll(int limit) {
+        List<Authorization> all = new ArrayList<>();
+        long loadedIn = generation.get();
+        for (Object[] row : cardRepo.findAuthEntries(PageRequest.of(0, limit))) {
+            all.add(toAuthorization((String) row[0], (Boolean) row[1], (Long) row[2]));
+        }
+        if (generation.get() == loadedIn) {
+            all.forEach(this::put);
+        }
+        return all;
+    }
+
+    /**
+     * Forget an idTag after its card was registered, changed or deleted.
+     */
+    public void invalidate(String idTag) {
+        generation.incrementAndGet();
+        Authorization removed = entries.remove(idTag);
+        if (removed != null && removed.userId() != null) {
+            Set<String> tags = tagsByUser.get(removed.userId());
+            if (tags != null) {
+                tags.remove(idTag);
+            }
+        }
+        fireChanged(idTag);
+    }
+
+    /**
+     * Called with the idTag of every card that was registered, changed or
+     * deleted. Listeners must not block.
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Authorization toAuthorization(String idTag, boolean active, Long userId) {
+        boolean balanceOk = active && userId != null
+                && ledger.getBalance(userId).compareTo(MIN_BALANCE) >= 0;
+        return new Authorization(idTag, true, active, userId, balanceOk, System.currentTimeMillis());
+    }
+
+    private void put(Authorization auth) {
+        if (entries.size() >= maxEntries && !entries.containsKey(auth.idTag())) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                log.warn("RFID auth cache full ({} entries), not caching idTag {}", entries.size(), auth.idTag());
+                return;
+            }
+        }
+        entries.put(auth.idTag(), auth);
+        if (auth.userId() != null) {
+            tagsByUser.computeIfAbsent(auth.userId(), id -> ConcurrentHashMap.newKeySet()).add(auth.idTag());
+        }
+    }
+
+    private void purgeExpired() {
+        long expiredBefore = System.currentTimeMillis() - ttlMs;
+        entries.values().removeIf(auth -> auth.loadedAt() < expiredBefore);
+        tagsByUser.values().forEach(tags -> tags.removeIf(tag -> !entries.containsKey(tag)));
+        tagsByUser.values().removeIf(Set::isEmpty);
+    }
+
+    private void onBalanceChanged(Long userId, BigDecimal balance) {
+        Set<String> tags = tagsByUser.get(userId);
+        if (tags == null) {
+            return;
+        }
+        boolean balanceOk = balance.compareTo(MIN_BALANCE) >= 0;
+        for (String tag : tags) {
+            Authorization current = entries.get(tag);
+            if (current == null || !current.active() || current.balanceOk() == balanceOk) {
+                continue;
+            }
+            // In place only; see the class comment
+            entries.replace(tag, current, current.withBalanceOk(balanceOk));
+        }
+    }
+
+    private void fireChanged(String idTag) {
+        for (Consumer<String> listener : changeListeners) {
+            try {
+                listener.accept(idTag);
+            } catch (Exception e) {
+                log.warn("RFID auth change listener failed: idTag={}: {}", idTag, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * known is false for idTags that are not registered cards.
+     */
+    public record Authorization(String idTag, boolean known, boolean active, Long userId, boolean balanceOk,
+            long loadedAt) {
+
+        static Authorization unknown(String idTag) {
+            return new Authorization(idTag, false, false, null, false, System.currentTimeMillis());
+        }
+
+        public boolean isAccepted() {
+            return known && active && balanceOk;
+        }
+
+        Authorization withBalanceOk(boolean balanceOk) {
+            return new Authorization(idTag, known, active, userId, balanceOk, loadedAt);
+        }
+    }
+}
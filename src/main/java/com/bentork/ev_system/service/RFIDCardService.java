@@ -21,6 +21,8 @@ public class RFIDCardService {
     private RFIDCardRepository cardRepo;
     @Autowired
     private UserRepository userRepo;
+    @Autowired
+    private RFIDAuthCache authCache;
 
     // Register new RFID card
     public RFIDCard registerCard(RFIDCardRequest req) {
@@ -34,6 +36,7 @@ public class RFIDCardService {
             card.setActive(true);
 
             RFIDCard saved = cardRepo.save(card);
+            authCache.invalidate(saved.getCardNumber());
             log.info("RFID card registered: id={}, cardNumber={}, userId={}",
                     saved.getId(), saved.getCardNumber(), user.getId());
 
@@ -92,6 +95,7 @@ public class RFIDCardService {
             card.setActive(active);
 
             RFIDCard updated = cardRepo.save(card);
+            authCache.invalidate(updated.getCardNumber());
             log.info("RFID card status updated: id={}, cardNumber={}, status changed from {} to {}",
                     id, card.getCardNumber(), oldStatus, active);
 
@@ -106,7 +110,10 @@ public class RFIDCardService {
     // Delete card
     public void deleteCard(Long id) {
         try {
-            cardRepo.deleteById(id);
+            cardRepo.findById(id).ifPresent(card -> {
+                cardRepo.delete(card);
+                authCache.invalidate(card.getCardNumber());
+            });
             log.info("RFID card deleted: id={}", id);
         } catch (Exception e) {
             log.error("Failed to delete RFID card: id={}: {}", id, e.getMessage(), e);
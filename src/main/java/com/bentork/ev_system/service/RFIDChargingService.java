@@ -3,22 +3,22 @@ package com.bentork.ev_system.service;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.bentork.ev_system.model.Charger;
 import com.bentork.ev_system.model.RFIDCard;
-import com.bentork.ev_system.model.Revenue;
 import com.bentork.ev_system.model.Session;
 import com.bentork.ev_system.model.User;
 import com.bentork.ev_system.model.WalletTransaction;
 import com.bentork.ev_system.enums.SessionStatus;
 import com.bentork.ev_system.repository.ChargerRepository;
 import com.bentork.ev_system.repository.RFIDCardRepository;
-import com.bentork.ev_system.repository.RevenueRepository;
 import com.bentork.ev_system.repository.SessionRepository;
-import com.bentork.ev_system.repository.UserRepository;
 
 @Slf4j
 @Service
@@ -27,8 +27,6 @@ public class RFIDChargingService {
     @Autowired
     private RFIDCardRepository cardRepo;
     @Autowired
-    private UserRepository userRepo;
-    @Autowired
     private ChargerRepository chargerRepo;
     @Autowired
     private SessionRepository sessionRepo;
@@ -39,7 +37,33 @@ public class RFIDChargingService {
     @Autowired
     private WalletTransactionService walletTxService;
     @Autowired
-    private RevenueRepository revenueRepo;
+    private RevenueService revenueService;
+    @Autowired
+    private LiveSessionRegistry liveSessionRegistry;
+    @Autowired
+    private DashboardAggregateService dashboardAggregateService;
+
+    @Autowired
+    private SessionTelemetryHub sessionTelemetryHub;
+
+    @Autowired
+    private WalletHoldService walletHoldService;
+
+    @Autowired
+    private PendingStartResolver pendingStartResolver;
+
+    @Autowired
+    private RFIDAuthCache rfidAuthCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
 
     // Start charging
     public Session startCharging(String cardNumber, Long chargerId, String boxId) {
@@ -56,9 +80,10 @@ public class RFIDChargingService {
             }
 
             User user = card.getUser();
-            if (user.getWalletBalance().compareTo(BigDecimal.ONE) < 0) {
+            BigDecimal balance = walletTxService.getBalance(user.getId());
+            if (balance.compareTo(BigDecimal.ONE) < 0) {
                 log.warn("Insufficient balance for user: userId={}, balance={}",
-                        user.getId(), user.getWalletBalance());
+                        user.getId(), balance);
                 throw new RuntimeException("Insufficient balance");
             }
 
@@ -77,6 +102,16 @@ public class RFIDChargingService {
             session.setSourceType("RFID");
 
             Session saved = sessionRepo.save(session);
+            dashboardAggregateService.onSessionCreated();
+            dashboardAggregateService.onSessionActivated();
+
+            // A remote start (REST) is picked up by the charger's StartTransaction
+            pendingStartResolver.offer(saved, null);
+
+            // Pre-authorize: readings are billed against this hold
+            if (!walletHoldService.placeHold(user.getId(), saved.getId())) {
+                log.warn("Could not place wallet hold: sessionId={}, userId={}", saved.getId(), user.getId());
+            }
 
             log.info("RFID charging session started: sessionId={}, userId={}, chargerId={}, cardNumber={}",
                     saved.getId(), user.getId(), chargerId, cardNumber);
@@ -107,6 +142,20 @@ public class RFIDChargingService {
                         sessionId, currentKwh);
             }
 
+            // Session is charging on a connected charger: bill against the live
+            // state so a pending write-behind flush is never read back stale
+            LiveSessionRegistry.LiveSession live = liveSessionRegistry.get(sessionId.intValue());
+            if (live != null) {
+                billEnergy(live, currentKwh);
+                Session session = sessionRepo.findById(sessionId)
+                        .orElseThrow(() -> new RuntimeException("Session not found"));
+                if (SessionStatus.ACTIVE.matches(session.getStatus())) {
+                    session.setEnergyKwh(live.getBilledKwh());
+                    session.setCost(live.getCost());
+                }
+                return session;
+            }
+
             Session session = sessionRepo.findById(sessionId)
                     .orElseThrow(() -> new RuntimeException("Session not found"));
 
@@ -124,32 +173,29 @@ public class RFIDChargingService {
 
             User user = session.getUser();
 
-            if (user.getWalletBalance().compareTo(cost) < 0) {
+            double totalCost = session.getCost() + cost.doubleValue();
+            if (!walletHoldService.consumeUpTo(user.getId(), sessionId, WalletHoldService.toPaise(totalCost))) {
                 log.warn(
-                        "Insufficient balance during session - Auto-stopping: sessionId={}, userId={}, balance={}, requiredCost={}",
-                        sessionId, user.getId(), user.getWalletBalance(), cost);
+                        "Wallet hold used up during session - Auto-stopping: sessionId={}, userId={}, requiredCost={}",
+                        sessionId, user.getId(), cost);
 
                 // Notify user about insufficient balance
-                notificationService.createNotification(
+                notificationService.sendNotification(
                         user.getId(),
-                        "Charging Stopped - Low Balance",
-                        "Your charging session has been stopped due to insufficient wallet balance. Please top up to continue.",
+                        "Charging Stopped - Wallet Limit Reached",
+                        "Your charging session has been stopped because it used up the amount held from your wallet. Please top up or start a new session to continue.",
                         "WALLET");
                 return stopCharging(sessionId); // auto-stop
             }
 
-            // Deduct from wallet
-            user.setWalletBalance(user.getWalletBalance().subtract(cost));
-
             // Update session data
             session.setEnergyKwh(currentKwh.doubleValue());
-            session.setCost(session.getCost() + cost.doubleValue());
+            session.setCost(totalCost);
 
-            userRepo.save(user);
             Session updated = sessionRepo.save(session);
 
-            log.info("Energy updated for session: sessionId={}, energy={}, totalCost={}, walletBalance={}",
-                    sessionId, currentKwh, updated.getCost(), user.getWalletBalance());
+            log.info("Energy updated for session: sessionId={}, energy={}, totalCost={}",
+                    sessionId, currentKwh, updated.getCost());
 
             return updated;
         } catch (Exception e) {
@@ -159,6 +205,47 @@ public class RFIDChargingService {
         }
     }
 
+    /**
+     * Bill energy consumed in a live session (kWh since session start). The
+     * cost is checked against the session's wallet hold in memory; session
+     * energy and cost stay in the live state and are persisted by the
+     * registry's batched flush.
+     *
+     * @return false if the session was stopped due to insufficient balance
+     */
+    public boolean billEnergy(LiveSessionRegistry.LiveSession live, BigDecimal consumedKwh) {
+        BigDecimal delta = consumedKwh.subtract(BigDecimal.valueOf(live.getBilledKwh()));
+        if (delta.compareTo(BigDecimal.ZERO) <= 0) {
+            return true;
+        }
+
+        BigDecimal cost = delta.multiply(BigDecimal.valueOf(live.getRate()));
+
+        // In memory only; the wallet is settled when the session stops
+        long totalPaise = WalletHoldService.toPaise(live.getCost() + cost.doubleValue());
+        if (!walletHoldService.consumeUpTo(live.getUserId(), live.getSessionId(), totalPaise)) {
+            log.warn("Wallet hold used up during session - Auto-stopping: sessionId={}, userId={}, requiredCost={}",
+                    live.getSessionId(), live.getUserId(), cost);
+
+            // Notify user about insufficient balance
+            notificationService.sendNotification(
+                    live.getUserId(),
+                    "Charging Stopped - Wallet Limit Reached",
+                    "Your charging session has been stopped because it used up the amount held from your wallet. Please top up or start a new session to continue.",
+                    "WALLET");
+            stopCharging(live.getSessionId()); // auto-stop
+            return false;
+        }
+
+        live.recordBilling(consumedKwh.doubleValue(), cost.doubleValue());
+
+        if (log.isDebugEnabled()) {
+            log.debug("Energy billed for session: sessionId={}, energy={}, totalCost={}",
+                    live.getSessionId(), consumedKwh, live.getCost());
+        }
+        return true;
+    }
+
     // Stop charging
     public Session stopCharging(Long sessionId) {
         try {
@@ -173,41 +260,39 @@ public class RFIDChargingService {
                 return session;
             }
 
+            boolean wasActive = SessionStatus.ACTIVE.matches(session.getStatus());
+            liveSessionRegistry.detach(session);
             session.setStatus(SessionStatus.COMPLETED.getValue());
             session.setEndTime(LocalDateTime.now());
 
             System.out.println(" Relay OFF → Charger " + session.getCharger().getId());
 
-            Session saved = sessionRepo.save(session);
-
             // 🔹 Final cost
-            BigDecimal finalCost = BigDecimal.valueOf(saved.getCost());
-            if (finalCost.compareTo(BigDecimal.ZERO) > 0) {
-                log.info("Processing payment for session: sessionId={}, finalCost={}",
-                        sessionId, finalCost);
-
-                // 1. Wallet debit
-                WalletTransaction tx = walletTxService.debit(
-                        saved.getUser().getId(),
-                        saved.getId(),
-                        BigDecimal.valueOf(saved.getCost()),
-                        "Wallet");
-
-                // 2. Add to revenue
-                Revenue revenue = new Revenue();
-                revenue.setSession(saved);
-                revenue.setUser(saved.getUser());
-                revenue.setCharger(saved.getCharger());
-                revenue.setStation(saved.getCharger().getStation()); // assuming Charger → Station mapping
-                revenue.setAmount(saved.getCost());
-                revenue.setPaymentMethod("Wallet");
-                revenue.setTransactionId(tx.getTransactionRef()); // use WalletTransaction reference
-                revenue.setPaymentStatus("success");
-
-                revenueRepo.save(revenue);
-
+            BigDecimal finalCost = BigDecimal.valueOf(session.getCost());
+
+            // Complete the session, capture its hold (release it and debit the
+            // actual cost) and record revenue in one transaction, so a crash
+            // cannot leave a completed session with its hold still open
+            WalletTransaction[] debit = new WalletTransaction[1];
+            Session saved = tx.execute(status -> {
+                Session completed = sessionRepo.save(session);
+                debit[0] = walletHoldService.capture(sessionId, WalletHoldService.toPaise(finalCost));
+                if (debit[0] != null) {
+                    // Add to revenue, using the WalletTransaction reference
+                    revenueService.recordRevenueForSession(completed, debit[0].getAmount().doubleValue(),
+                            "Wallet", debit[0].getTransactionRef(), "success");
+                }
+                return completed;
+            });
+            dashboardAggregateService.onSessionCompleted(wasActive, saved.getEnergyKwh());
+            sessionTelemetryHub.publishStatus(saved);
+
+            if (debit[0] == null && finalCost.compareTo(BigDecimal.ZERO) > 0) {
+                log.warn("No wallet hold to capture for session: sessionId={}, finalCost={}", sessionId, finalCost);
+            }
+            if (debit[0] != null) {
                 log.info("Revenue recorded for session: sessionId={}, amount={}, transactionId={}",
-                        sessionId, finalCost, tx.getTransactionRef());
+                        sessionId, debit[0].getAmount(), debit[0].getTransactionRef());
             }
 
             log.info(
@@ -236,26 +321,25 @@ public class RFIDChargingService {
         }
 
         try {
-            RFIDCard card = cardRepo.findByCardNumber(cardNumber).orElse(null);
-            if (card == null) {
+            // Served from the authorization cache on repeated taps
+            RFIDAuthCache.Authorization auth = rfidAuthCache.authorize(cardNumber);
+            if (!auth.known()) {
                 log.warn("RFID card validation failed - Card not found: cardNumber={}", cardNumber);
                 return false;
             }
-            if (!card.isActive()) {
+            if (!auth.active()) {
                 log.warn("RFID card validation failed - Card not active: cardNumber={}", cardNumber);
                 return false;
             }
-
-            User user = card.getUser();
-            if (user.getWalletBalance().compareTo(BigDecimal.ONE) < 0) {
-                log.warn("RFID card validation failed - Insufficient balance: cardNumber={}, userId={}, balance={}",
-                        cardNumber, user.getId(), user.getWalletBalance());
+            if (!auth.balanceOk()) {
+                log.warn("RFID card validation failed - Insufficient balance: cardNumber={}, userId={}",
+                        cardNumber, auth.userId());
                 return false;
             }
 
             if (log.isDebugEnabled()) {
                 log.debug("RFID card validated successfully: cardNumber={}, userId={}",
-                        cardNumber, user.getId());
+                        cardNumber, auth.userId());
             }
             return true;
         } catch (Exception e) {
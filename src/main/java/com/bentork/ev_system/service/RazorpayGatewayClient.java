@@ -0,0 +1,61 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.razorpay.Order;
+import com.razorpay.Payment;
+
+@Service
+@ConditionalOnProperty(name = "payment.gateway.client", havingValue = "razorpay", matchIfMissing = true)
+public class RazorpayGatewayClient implements PaymentGatewayClient {
+
+    @Autowired
+    private RazorpayService razorpayService;
+
+    @Override
+    public BigDecimal fetchOrderAmount(String orderId) throws Exception {
+        return razorpayService.getOrderAmountFromRazorpay(orderId);
+    }
+
+    @Override
+    public GatewayOrder fetchOrder(String orderId) throws Exception {
+        return toGatewayOrder(razorpayService.fetchOrder(orderId));
+    }
+
+    @Override
+    public List<GatewayOrder> listOrders(long from, long to, int skip, int count) throws Exception {
+        List<GatewayOrder> orders = new ArrayList<>();
+        for (Order order : razorpayService.fetchOrders(from, to, skip, count)) {
+            orders.add(toGatewayOrder(order));
+        }
+        return orders;
+    }
+
+    @Override
+    public String fetchCapturedPaymentId(String orderId) throws Exception {
+        for (Payment payment : razorpayService.fetchOrderPayments(orderId)) {
+            if ("captured".equalsIgnoreCase(String.valueOf(payment.get("status")))) {
+                return payment.get("id");
+            }
+        }
+        return null;
+    }
+
+    private static GatewayOrder toGatewayOrder(Order order) {
+        // Razorpay sends notes as an empty array when there are none
+        Long userId = null;
+        Object notes = order.get("notes");
+        if (notes instanceof JSONObject json && json.has("user_id")) {
+            userId = Long.parseLong(json.get("user_id").toString());
+        }
+        return new GatewayOrder(order.get("id"), order.get("status"),
+                new BigDecimal(order.get("amount").toString()).movePointLeft(2), userId); // paise
+    }
+}
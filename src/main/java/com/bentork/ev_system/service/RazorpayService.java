@@ -6,12 +6,17 @@ import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.razorpay.Order;
+import com.razorpay.Payment;
 import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.List;
 
 @Service
 public class RazorpayService {
@@ -25,6 +30,15 @@ public class RazorpayService {
     @Value("${RAZORPAY_KEY_SECRET}")
     private String keySecret;
 
+    // Webhooks are rejected while this is not configured
+    @Value("${RAZORPAY_WEBHOOK_SECRET:}")
+    private String webhookSecret;
+
+    // Mac is not thread-safe; one keyed instance per thread avoids the provider
+    // lookup and key setup on every verification
+    private final ThreadLocal<Mac> hmac = ThreadLocal.withInitial(() -> newMac(keySecret));
+    private final ThreadLocal<Mac> webhookHmac = ThreadLocal.withInitial(() -> newMac(webhookSecret));
+
     @PostConstruct
     public void init() throws RazorpayException {
         // Initialize client using the injected values
@@ -33,39 +47,84 @@ public class RazorpayService {
 
     // Create Razorpay order
     public String createOrder(BigDecimal amountInRupees) throws RazorpayException {
+        return createOrder(amountInRupees, null);
+    }
+
+    // userId goes into the order notes so webhooks and reconciliation can credit the wallet
+    public String createOrder(BigDecimal amountInRupees, Long userId) throws RazorpayException {
         JSONObject request = new JSONObject();
         request.put("amount", amountInRupees.multiply(BigDecimal.valueOf(100))); // paise
         request.put("currency", "INR");
         request.put("receipt", "receipt#" + System.currentTimeMillis());
         request.put("payment_capture", 1);
+        if (userId != null) {
+            request.put("notes", new JSONObject().put("user_id", userId.toString()));
+        }
 
         Order order = razorpayClient.Orders.create(request);
         return order.toString();
     }
 
     // Verify Razorpay payment signature
-    public boolean verifySignature(String orderId, String paymentId, String razorpaySignature) throws Exception {
-        // Use the injected keySecret directly
+    public boolean verifySignature(String orderId, String paymentId, String razorpaySignature) {
+        if (orderId == null || paymentId == null || razorpaySignature == null) {
+            return false;
+        }
         String payload = orderId + "|" + paymentId;
 
-        Mac sha256_HMAC = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKey = new SecretKeySpec(keySecret.getBytes(), "HmacSHA256");
-        sha256_HMAC.init(secretKey);
+        return matches(hmac.get(), payload, razorpaySignature);
+    }
+
+    // Verify the X-Razorpay-Signature of a webhook against the raw request body
+    public boolean verifyWebhookSignature(String body, String signature) {
+        if (webhookSecret == null || webhookSecret.isBlank() || body == null || signature == null) {
+            return false;
+        }
+        return matches(webhookHmac.get(), body, signature);
+    }
 
-        byte[] hash = sha256_HMAC.doFinal(payload.getBytes());
+    private static boolean matches(Mac mac, String payload, String signature) {
+        // doFinal resets the Mac for the next call
+        byte[] hash = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
         String generatedSignature = Hex.encodeHexString(hash);
 
-        return generatedSignature.equals(razorpaySignature);
+        // Constant-time comparison
+        return MessageDigest.isEqual(generatedSignature.getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Mac newMac(String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
     }
 
     public Order fetchOrder(String orderId) throws RazorpayException {
         return razorpayClient.Orders.fetch(orderId);
     }
 
+    // Orders created in [from, to) (epoch seconds), one page
+    public List<Order> fetchOrders(long from, long to, int skip, int count) throws RazorpayException {
+        JSONObject request = new JSONObject();
+        request.put("from", from);
+        request.put("to", to);
+        request.put("skip", skip);
+        request.put("count", count);
+        return razorpayClient.Orders.fetchAll(request);
+    }
+
+    public List<Payment> fetchOrderPayments(String orderId) throws RazorpayException {
+        return razorpayClient.Orders.fetchPayments(orderId);
+    }
+
     // Fetch order amount directly from Razorpay using order ID
     public BigDecimal getOrderAmountFromRazorpay(String orderId) throws RazorpayException {
         Order order = razorpayClient.Orders.fetch(orderId);
-        int amountInPaise = order.get("amount"); // in paise
-        return BigDecimal.valueOf(amountInPaise).divide(BigDecimal.valueOf(100));
+        // in paise
+        return new BigDecimal(order.get("amount").toString()).movePointLeft(2);
     }
 }
\ No newline at end of file
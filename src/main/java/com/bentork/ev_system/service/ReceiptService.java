@@ -66,7 +66,7 @@ public class ReceiptService {
 
         // ✅ Wallet balance check
         if (!walletTransactionService.hasBalance(userId, amount)) {
-            userNotificationService.createNotification(
+            userNotificationService.sendNotification(
                     userId,
                     "Insufficient Wallet Balance",
                     "You need ₹" + amount + " but your wallet balance is too low. Please top-up.",
@@ -0,0 +1,189 @@
+package com.bentork.ev_system.service;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bentork.ev_system.dto.request.RevenueRollupDTO;
+import com.bentork.ev_system.model.Revenue;
+import com.bentork.ev_system.model.RevenueRollup;
+import com.bentork.ev_system.repository.RevenueRollupRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps hourly and daily revenue totals per charger and payment status in
+ * revenue_rollup, and answers range reports from it.
+ *
+ * Each recorded or deleted revenue row adjusts its two buckets with an
+ * upsert on the caller's connection, so the rollup commits or rolls back
+ * together with the revenue row.
+ */
+@Slf4j
+@Service
+public class RevenueRollupService {
+
+    private static final String UPSERT_SQL = "INSERT INTO revenue_rollup "
+            + "(granularity, bucket_start, station_id, charger_id, payment_status, txn_count, amount, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE txn_count = txn_count + VALUES(txn_count), "
+            + "amount = amount + VALUES(amount), updated_at = VALUES(updated_at)";
+
+    private static final String REBUILD_SQL = "INSERT INTO revenue_rollup "
+            + "(granularity, bucket_start, station_id, charger_id, payment_status, txn_count, amount, updated_at) "
+            + "SELECT ?, %s, station_id, charger_id, UPPER(payment_status), COUNT(*), SUM(amount), NOW() "
+            + "FROM revenue GROUP BY 2, station_id, charger_id, UPPER(payment_status)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RevenueRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        try {
+            // First start with this table: build it from the existing history
+            Long rollupRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revenue_rollup", Long.class);
+            Long revenueRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revenue", Long.class);
+            if (rollupRows != null && rollupRows == 0 && revenueRows != null && revenueRows > 0) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize revenue rollup: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Add a newly recorded revenue row to its hour and day buckets.
+     */
+    public void record(Revenue revenue) {
+        apply(revenue, 1);
+    }
+
+    /**
+     * Take a deleted revenue row out of its hour and day buckets.
+     */
+    public void remove(Revenue revenue) {
+        apply(revenue, -1);
+    }
+
+    private void apply(Revenue revenue, int sign) {
+        LocalDateTime createdAt = revenue.getCreatedAt() != null ? revenue.getCreatedAt() : LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Long stationId = revenue.getStation().getId();
+        Long chargerId = revenue.getCharger().getId();
+        String status = revenue.getPaymentStatus().toUpperCase();
+        double amount = sign * revenue.getAmount();
+
+        List<Object[]> rows = new ArrayList<>(2);
+        rows.add(new Object[] { RevenueRollup.HOUR, Timestamp.valueOf(createdAt.truncatedTo(ChronoUnit.HOURS)),
+                stationId, chargerId, status, sign, amount, now });
+        rows.add(new Object[] { RevenueRollup.DAY, Timestamp.valueOf(createdAt.truncatedTo(ChronoUnit.DAYS)),
+                stationId, chargerId, status, sign, amount, now });
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    /**
+     * Recompute the whole rollup from the revenue table, in one transaction.
+     * Uses a TransactionTemplate rather than @Transactional because init()
+     * calls it on this instance, bypassing the proxy.
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        int[] rows = tx.execute(status -> {
+            jdbcTemplate.update("DELETE FROM revenue_rollup");
+            int hours = jdbcTemplate.update(
+                    String.format(REBUILD_SQL, "DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00')"), RevenueRollup.HOUR);
+            int days = jdbcTemplate.update(String.format(REBUILD_SQL, "DATE(created_at)"), RevenueRollup.DAY);
+            return new int[] { hours, days };
+        });
+        log.info("Revenue rollup rebuilt: {} hourly and {} daily rows in {} ms",
+                rows[0], rows[1], System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Revenue per period over [from, to] (whole days).
+     *
+     * @param period        hour, day, week (starting Monday) or month
+     * @param stationId     null for all stations
+     * @param paymentStatus null for all statuses
+     */
+    public List<RevenueRollupDTO> getSeries(LocalDate from, LocalDate to, String period, Long stationId,
+            String paymentStatus) {
+        Period p = Period.parse(period);
+        String status = paymentStatus != null ? paymentStatus.toUpperCase() : null;
+        List<Object[]> rows = rollupRepository.sumByBucket(
+                p == Period.HOUR ? RevenueRollup.HOUR : RevenueRollup.DAY,
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), stationId, status);
+
+        // Hour and day come straight from the table; week and month are a
+        // merge of at most a few hundred daily rows
+        Map<LocalDateTime, RevenueRollupDTO> series = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            LocalDateTime periodStart = p.startOf((LocalDateTime) row[0]);
+            RevenueRollupDTO dto = series.computeIfAbsent(periodStart,
+                    start -> new RevenueRollupDTO(start, stationId, 0, 0.0));
+            dto.setTransactionCount(dto.getTransactionCount() + ((Number) row[1]).longValue());
+            dto.setAmount(dto.getAmount() + ((Number) row[2]).doubleValue());
+        }
+        return new ArrayList<>(series.values());
+    }
+
+    /**
+     * Revenue per station over [from, to] (whole days), highest amount first.
+     */
+    public List<RevenueRollupDTO> getByStation(LocalDate from, LocalDate to, String paymentStatus) {
+        String status = paymentStatus != null ? paymentStatus.toUpperCase() : null;
+        List<Object[]> rows = rollupRepository.sumByStation(RevenueRollup.DAY,
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), status);
+
+        List<RevenueRollupDTO> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(new RevenueRollupDTO(from.atStartOfDay(), (Long) row[0],
+                    ((Number) row[1]).longValue(), ((Number) row[2]).doubleValue()));
+        }
+        return result;
+    }
+
+    private enum Period {
+        HOUR, DAY, WEEK, MONTH;
+
+        static Period parse(String value) {
+            try {
+                return Period.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Invalid period: " + value + " (expected hour, day, week or month)");
+            }
+        }
+
+        LocalDateTime startOf(LocalDateTime bucketStart) {
+            return switch (this) {
+                case HOUR, DAY -> bucketStart;
+                case WEEK -> bucketStart.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                        .atStartOfDay();
+                case MONTH -> bucketStart.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            };
+        }
+    }
+}
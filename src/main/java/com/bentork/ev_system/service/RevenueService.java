@@ -20,9 +20,15 @@ import java.util.stream.Collectors;
 public class RevenueService {
 
     private final RevenueRepository revenueRepository;
+    private final DashboardAggregateService dashboardAggregateService;
+    private final RevenueRollupService revenueRollupService;
 
-    public RevenueService(RevenueRepository revenueRepository) {
+    public RevenueService(RevenueRepository revenueRepository,
+            DashboardAggregateService dashboardAggregateService,
+            RevenueRollupService revenueRollupService) {
         this.revenueRepository = revenueRepository;
+        this.dashboardAggregateService = dashboardAggregateService;
+        this.revenueRollupService = revenueRollupService;
     }
 
     /* package-private */
@@ -40,6 +46,8 @@ public class RevenueService {
                     amount);
 
             Revenue saved = revenueRepository.save(revenue);
+            revenueRollupService.record(saved);
+            dashboardAggregateService.onRevenueRecorded(saved.getPaymentStatus(), saved.getAmount());
             log.info("Revenue recorded: id={}, sessionId={}, amount={}, status={}",
                     saved.getId(), session.getId(), amount, paymentStatus);
 
@@ -54,10 +62,7 @@ public class RevenueService {
     // Calculate Total Revenue
     public BigDecimal getTotalRevenue() {
         try {
-            double total = revenueRepository.findAll().stream()
-                    .filter(r -> "SUCCESS".equalsIgnoreCase(r.getPaymentStatus()))
-                    .mapToDouble(Revenue::getAmount)
-                    .sum();
+            double total = dashboardAggregateService.getRevenueAmount("SUCCESS");
 
             BigDecimal result = BigDecimal.valueOf(total);
 
@@ -75,10 +80,7 @@ public class RevenueService {
     // Pending Revenue (
     public BigDecimal getPendingRevenue() {
         try {
-            double pending = revenueRepository.findAll().stream()
-                    .filter(r -> "PENDING".equalsIgnoreCase(r.getPaymentStatus()))
-                    .mapToDouble(Revenue::getAmount)
-                    .sum();
+            double pending = dashboardAggregateService.getRevenueAmount("PENDING");
 
             BigDecimal result = BigDecimal.valueOf(pending);
 
@@ -131,10 +133,11 @@ public class RevenueService {
 
     public void delete(Long id) {
         try {
-            if (!revenueRepository.existsById(id)) {
-                throw new RuntimeException("Revenue not found");
-            }
-            revenueRepository.deleteById(id);
+            Revenue revenue = revenueRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Revenue not found"));
+            revenueRepository.delete(revenue);
+            revenueRollupService.remove(revenue);
+            dashboardAggregateService.onRevenueDeleted(revenue.getPaymentStatus(), revenue.getAmount());
             log.info("Revenue deleted: id={}", id);
         } catch (RuntimeException e) {
             log.warn("Failed to delete revenue - Revenue not found: id={}", id);
@@ -148,7 +151,7 @@ public class RevenueService {
     // Total Transactions
     public Long getTotalTransactions() {
         try {
-            Long total = revenueRepository.count();
+            Long total = dashboardAggregateService.getRevenueTransactionCount();
 
             if (log.isDebugEnabled()) {
                 log.debug("Total transactions count: {}", total);
@@ -164,16 +167,14 @@ public class RevenueService {
     // Success Rate
     public Double getSuccessRate() {
         try {
-            long totalTransactions = revenueRepository.count();
+            long totalTransactions = dashboardAggregateService.getRevenueTransactionCount();
 
             if (totalTransactions == 0) {
                 log.warn("No transactions found for success rate calculation");
                 return 0.0;
             }
 
-            long successfulTransactions = revenueRepository.findAll().stream()
-                    .filter(r -> "SUCCESS".equalsIgnoreCase(r.getPaymentStatus()))
-                    .count();
+            long successfulTransactions = dashboardAggregateService.getRevenueCount("SUCCESS");
 
             double successRate = (successfulTransactions * 100.0) / totalTransactions;
             double roundedRate = Math.round(successRate * 100.0) / 100.0;
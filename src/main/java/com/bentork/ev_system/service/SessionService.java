@@ -1,6 +1,8 @@
 package com.bentork.ev_system.service;
 
 import com.bentork.ev_system.dto.request.SessionDTO;
+import com.bentork.ev_system.dto.request.SessionRecordDTO;
+import com.bentork.ev_system.dto.request.SessionRecordPageDTO;
 import com.bentork.ev_system.model.Receipt;
 import com.bentork.ev_system.model.Session;
 import com.bentork.ev_system.enums.SessionStatus;
@@ -12,21 +14,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy; // ✅ CORRECT IMPORT
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.Clock;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -54,9 +54,21 @@ public class SessionService {
 	private UserNotificationService userNotificationService;
 
 	@Autowired
-	private Clock clock;
+	private LiveSessionRegistry liveSessionRegistry;
 
-	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(5);
+	@Autowired
+	private DashboardAggregateService dashboardAggregateService;
+
+	@Autowired
+	private SessionTelemetryHub sessionTelemetryHub;
+
+	@Autowired
+	private AutoStopScheduler autoStopScheduler;
+
+	@Autowired
+	private PendingStartResolver pendingStartResolver;
+
+	private static final int MAX_RECORDS_PAGE_SIZE = 500;
 
 	@Autowired
 	@Lazy // ✅ FIXED: This prevents circular dependency
@@ -102,6 +114,7 @@ public class SessionService {
 			session.setCreatedAt(LocalDateTime.now());
 			session.setSourceType("SESSION");
 			sessionRepository.save(session);
+			dashboardAggregateService.onSessionCreated();
 
 			// Link receipt to session
 			receipt.setSession(session);
@@ -109,13 +122,16 @@ public class SessionService {
 
 			log.info("Session created in DB: sessionId={}, status=INITIATED", session.getId());
 
+			// The charger's StartTransaction will pick it up from here
+			pendingStartResolver.offer(session, receipt);
+
 			// Send RemoteStartTransaction with correct idTag format
 			String ocppId = session.getCharger().getOcppId();
 			if (ocppId != null && !ocppId.isEmpty()) {
 				try {
 					com.fasterxml.jackson.databind.node.ObjectNode payload = objectMapper.createObjectNode();
 					// Use "SESSION_" prefix so handleStartTransaction recognizes it
-					payload.put("idTag", "SESSION_" + session.getId());
+					payload.put("idTag", PendingStartResolver.SESSION_ID_TAG_PREFIX + session.getId());
 					payload.put("connectorId", 1);
 
 					log.info("Sending RemoteStartTransaction to {}: idTag=SESSION_{}, connectorId=1",
@@ -126,7 +142,7 @@ public class SessionService {
 					if (sent) {
 						log.info("✅ RemoteStartTransaction sent successfully to charger: {}", ocppId);
 
-						userNotificationService.createNotification(
+						userNotificationService.sendNotification(
 								session.getUser().getId(),
 								"Charging Command Sent",
 								"Start command sent to charger. Please ensure cable is connected.",
@@ -138,7 +154,7 @@ public class SessionService {
 				} catch (Exception e) {
 					log.error("❌ Error sending RemoteStartTransaction to {}: {}", ocppId, e.getMessage(), e);
 
-					userNotificationService.createNotification(
+					userNotificationService.sendNotification(
 							session.getUser().getId(),
 							"Start Command Failed",
 							"Failed to send start command to charger. Error: " + e.getMessage(),
@@ -319,6 +335,9 @@ public class SessionService {
 	 * Finalize session (shared logic).
 	 */
 	private Map<String, Object> finalizeSession(Session session, String stopReason) {
+		boolean completionCounted = false;
+		// INITIATED sessions were never counted as active
+		boolean wasActive = SessionStatus.ACTIVE.matches(session.getStatus());
 		try {
 			log.info("Finalizing session: sessionId={}, stopReason={}", session.getId(), stopReason);
 
@@ -326,6 +345,9 @@ public class SessionService {
 				return buildAlreadyCompletedResponse(session);
 			}
 
+			// Pick up the latest in-memory meter readings before computing energy
+			liveSessionRegistry.detach(session);
+
 			session.setEndTime(LocalDateTime.now());
 			session.setStatus(SessionStatus.COMPLETED.getValue());
 
@@ -378,7 +400,7 @@ public class SessionService {
 							"Refund issued for kWh session: sessionId={}, selectedKwh={}, actualKwh={}, prepaid={}, finalCost={}, refund={}",
 							session.getId(), selectedKwh, energyUsed, prepaidAmount, finalCostBD, refund);
 
-					userNotificationService.createNotification(
+					userNotificationService.sendNotification(
 							session.getUser().getId(),
 							"Refund Issued",
 							"Unused energy refund: ₹" + refund + " has been credited to your wallet. (Used " +
@@ -396,7 +418,7 @@ public class SessionService {
 							"Extra debit for kWh session: sessionId={}, selectedKwh={}, actualKwh={}, prepaid={}, finalCost={}, extra={}",
 							session.getId(), selectedKwh, energyUsed, prepaidAmount, finalCostBD, extra);
 
-					userNotificationService.createNotification(
+					userNotificationService.sendNotification(
 							session.getUser().getId(),
 							"Extra Debit",
 							"Extra amount ₹" + extra + " has been deducted. (Used " +
@@ -435,7 +457,7 @@ public class SessionService {
 						log.info("Refund issued: sessionId={}, prepaid={}, finalCost={}, refund={}",
 								session.getId(), prepaid, finalCostBD, refund);
 
-						userNotificationService.createNotification(
+						userNotificationService.sendNotification(
 								session.getUser().getId(),
 								"Refund Issued",
 								"Unused amount ₹" + refund + " has been refunded to your wallet.",
@@ -449,7 +471,7 @@ public class SessionService {
 						log.info("Extra debit: sessionId={}, prepaid={}, finalCost={}, extra={}",
 								session.getId(), prepaid, finalCostBD, extra);
 
-						userNotificationService.createNotification(
+						userNotificationService.sendNotification(
 								session.getUser().getId(),
 								"Extra Debit",
 								"Extra amount ₹" + extra + " has been deducted due to higher usage.",
@@ -461,6 +483,10 @@ public class SessionService {
 			session.setEnergyKwh(energyUsed);
 			session.setCost(finalCostBD.doubleValue());
 			sessionRepository.save(session);
+			dashboardAggregateService.onSessionCompleted(wasActive, energyUsed);
+			completionCounted = true;
+			sessionTelemetryHub.publishStatus(session);
+			autoStopScheduler.cancel(session.getId());
 
 			if (receipt != null) {
 				receiptService.finalizeReceipt(session, finalCostBD);
@@ -477,7 +503,7 @@ public class SessionService {
 							String.format("%.2f", energyUsed) + " kWh, Final cost: ₹" + finalCostBD,
 					"Session Completed");
 
-			userNotificationService.createNotification(
+			userNotificationService.sendNotification(
 					session.getUser().getId(),
 					"Charging Stopped",
 					"Your session has ended (" + stopReason + "). Total cost: ₹" + finalCostBD,
@@ -504,6 +530,10 @@ public class SessionService {
 				session.setStatus(SessionStatus.FAILED.getValue());
 				session.setEndTime(LocalDateTime.now());
 				sessionRepository.save(session);
+				if (!completionCounted) {
+					dashboardAggregateService.onSessionFailed(wasActive, session.getCreatedAt());
+				}
+				sessionTelemetryHub.publishStatus(session);
 				log.info("Session {} marked as FAILED due to finalization error", session.getId());
 			} catch (Exception saveEx) {
 				log.error("CRITICAL: Failed to save session failure status for session {}: {}",
@@ -545,13 +575,7 @@ public class SessionService {
 	}
 
 	private void scheduleAutoStop(Long sessionId, int durationMin) {
-		scheduler.schedule(() -> {
-			try {
-				stopSessionBySystem(sessionId);
-			} catch (Exception e) {
-				log.error("Auto-stop scheduler error: sessionId={}: {}", sessionId, e.getMessage(), e);
-			}
-		}, durationMin, TimeUnit.MINUTES);
+		autoStopScheduler.schedule(sessionId, LocalDateTime.now().plusMinutes(durationMin));
 	}
 
 	private void handleOfflineSession(Session session, Receipt receipt) {
@@ -568,7 +592,7 @@ public class SessionService {
 					receipt.getAmount(), session.getUser().getId());
 		}
 
-		userNotificationService.createNotification(
+		userNotificationService.sendNotification(
 				session.getUser().getId(),
 				"Charger Offline",
 				"Cannot start charging - charger is offline. Amount refunded.",
@@ -577,6 +601,8 @@ public class SessionService {
 		session.setStatus(SessionStatus.FAILED.getValue());
 		session.setEndTime(LocalDateTime.now());
 		sessionRepository.save(session);
+		dashboardAggregateService.onSessionFailed(false, session.getCreatedAt());
+		sessionTelemetryHub.publishStatus(session);
 
 		throw new RuntimeException("Charger is offline. Session failed and amount refunded.");
 	}
@@ -585,9 +611,7 @@ public class SessionService {
 
 	public long getTotalSessions() {
 		try {
-			long total = sessionRepository.findAll().stream()
-					.filter(s -> SessionStatus.COMPLETED.matches(s.getStatus()))
-					.count();
+			long total = dashboardAggregateService.getCompletedSessions();
 			if (log.isDebugEnabled()) {
 				log.debug("Total completed sessions: {}", total);
 			}
@@ -600,10 +624,7 @@ public class SessionService {
 
 	public double getTotalEnergyConsumed() {
 		try {
-			double totalEnergy = sessionRepository.findAll().stream()
-					.filter(s -> SessionStatus.COMPLETED.matches(s.getStatus()))
-					.mapToDouble(Session::getEnergyKwh)
-					.sum();
+			double totalEnergy = dashboardAggregateService.getCompletedEnergyKwh();
 			if (log.isDebugEnabled()) {
 				log.debug("Total energy consumed: {} kWh", totalEnergy);
 			}
@@ -616,9 +637,7 @@ public class SessionService {
 
 	public Long getActiveSessions() {
 		try {
-			Long activeCount = sessionRepository.findAll().stream()
-					.filter(session -> SessionStatus.ACTIVE.matches(session.getStatus()))
-					.count();
+			Long activeCount = dashboardAggregateService.getActiveSessions();
 			if (log.isDebugEnabled()) {
 				log.debug("Active sessions count: {}", activeCount);
 			}
@@ -631,14 +650,12 @@ public class SessionService {
 
 	public Double getAverageUptime() {
 		try {
-			long totalSessions = sessionRepository.count();
+			long totalSessions = dashboardAggregateService.getTotalSessions();
 			if (totalSessions == 0) {
 				log.warn("No sessions found for uptime calculation");
 				return 0.0;
 			}
-			long completedSessions = sessionRepository.findAll().stream()
-					.filter(session -> SessionStatus.COMPLETED.matches(session.getStatus()))
-					.count();
+			long completedSessions = dashboardAggregateService.getCompletedSessions();
 			double uptime = (completedSessions * 100.0) / totalSessions;
 			double roundedUptime = Math.round(uptime * 100.0) / 100.0;
 			log.info("Average uptime calculated: {}% (completed={}, total={})",
@@ -666,27 +683,19 @@ public class SessionService {
 
 	public Long getTodaysErrorCount() {
 		try {
-			LocalDate today = LocalDate.now(clock);
-			LocalDateTime startOfDay = today.atStartOfDay();
-			LocalDateTime endOfDay = today.atTime(23, 59, 59, 999999999);
-			log.debug("Getting all session to count todays errors");
-			List<Session> allSessions = sessionRepository.findAll();
-			return allSessions.stream()
-					.filter(session -> session.getCreatedAt() != null
-							&& (session.getCreatedAt().isEqual(startOfDay)
-									|| (session.getCreatedAt().isAfter(startOfDay)
-											&& session.getCreatedAt().isBefore(endOfDay))))
-					.filter(session -> SessionStatus.FAILED.matches(session.getStatus()))
-					.count();
-		} catch (DataAccessException e) {
-			log.error("Error while accessing data: {}", e);
-			throw e;
+			log.debug("Counting todays errors");
+			return dashboardAggregateService.getFailedToday();
 		} catch (Exception e) {
 			log.error("Unexpected error in getTodaysErrorCount ", e);
 			throw new RuntimeException("Failed to calculate today's error count", e);
 		}
 	}
 
+	/**
+	 * @deprecated loads every session with its user, charger and station;
+	 *             use {@link #getSessionRecords} instead.
+	 */
+	@Deprecated
 	public List<Session> getallSessionRecords() {
 		try {
 			log.debug("Getting all session records");
@@ -700,4 +709,48 @@ public class SessionService {
 			throw e;
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * One page of session records, newest first.
+	 *
+	 * @param cursor nextCursor of the previous page, or null for the first page
+	 * @param limit  page size, capped at 500
+	 */
+	public SessionRecordPageDTO getSessionRecords(String status, Long chargerId, Long stationId, Long userId,
+			LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_RECORDS_PAGE_SIZE));
+
+		LocalDateTime afterCreatedAt = null;
+		Long afterId = null;
+		if (cursor != null && !cursor.isBlank()) {
+			try {
+				String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+				String[] parts = decoded.split("\\|");
+				afterCreatedAt = LocalDateTime.parse(parts[0]);
+				afterId = Long.parseLong(parts[1]);
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+		}
+
+		// One extra row tells whether there is a next page
+		List<SessionRecordDTO> records = sessionRepository.findRecords(
+				status != null ? status.toLowerCase() : null, chargerId, stationId, userId, from, to,
+				afterCreatedAt, afterId, PageRequest.of(0, pageSize + 1));
+
+		String nextCursor = null;
+		if (records.size() > pageSize) {
+			records = records.subList(0, pageSize);
+			SessionRecordDTO last = records.get(pageSize - 1);
+			if (last.getCreatedAt() != null) {
+				nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+						(last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Session records page: size={}, hasNext={}", records.size(), nextCursor != null);
+		}
+		return new SessionRecordPageDTO(records, nextCursor);
+	}
+}
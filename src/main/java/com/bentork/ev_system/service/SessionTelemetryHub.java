@@ -0,0 +1,326 @@
+package com.bentork.ev_system.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.bentork.ev_system.dto.request.SessionTelemetryDTO;
+import com.bentork.ev_system.enums.SessionStatus;
+import com.bentork.ev_system.model.Session;
+import com.bentork.ev_system.repository.SessionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes live session telemetry (energy, cost, status) to app clients over
+ * server-sent events.
+ *
+ * MeterValues and session state transitions only overwrite the latest
+ * snapshot of the session; a ticker sends each changed snapshot to the
+ * session's subscribers at most once per push interval. A channel whose
+ * previous push is still being written is skipped for that tick, so a slow
+ * client only delays its own session. Sessions nobody is watching cost one
+ * map lookup per reading.
+ */
+@Slf4j
+@Service
+public class SessionTelemetryHub {
+
+    private static final String EVENT_NAME = "telemetry";
+
+    @Autowired
+    private LiveSessionRegistry liveSessionRegistry;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Value("${telemetry.push-interval-ms:2000}")
+    private long pushIntervalMs;
+
+    // Comment lines keep idle connections open through proxies
+    @Value("${telemetry.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${telemetry.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${telemetry.push-threads:4}")
+    private int pushThreads;
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    private ExecutorService pushPool;
+
+    private long lastHeartbeatAt;
+
+    @PostConstruct
+    public void init() {
+        pushPool = Executors.newFixedThreadPool(pushThreads);
+        ticker.scheduleAtFixedRate(this::tick, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Session telemetry hub started: pushIntervalMs={}, heartbeatMs={}", pushIntervalMs, heartbeatMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        pushPool.shutdownNow();
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        channels.clear();
+    }
+
+    /**
+     * Open a stream for a session. The current state is sent right away;
+     * finished sessions get that one event and the stream is closed.
+     */
+    public SseEmitter subscribe(Session session) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Long sessionId = session.getId();
+
+        SessionTelemetryDTO snapshot = snapshotOf(session);
+        if (isFinished(snapshot.getStatus())) {
+            try {
+                emitter.send(event(snapshot));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+            return emitter;
+        }
+
+        Subscriber subscriber = new Subscriber(emitter);
+        Channel channel = channels.compute(sessionId, (id, existing) -> {
+            Channel c = existing != null ? existing : new Channel(id);
+            c.subscribers.add(subscriber);
+            return c;
+        });
+        emitter.onCompletion(() -> unsubscribe(channel, subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unsubscribe(channel, subscriber));
+
+        SessionTelemetryDTO latest = channel.latest;
+        if ((latest == null || !isFinished(latest.getStatus()))
+                && liveSessionRegistry.get(sessionId.intValue()) == null) {
+            // Not charging here: it may have finished between the snapshot and
+            // registering, after its final status was pushed to no one
+            SessionTelemetryDTO reloaded = sessionRepository.findById(sessionId)
+                    .map(SessionTelemetryHub::fromSession)
+                    .orElse(null);
+            if (reloaded != null && isFinished(reloaded.getStatus())) {
+                latest = reloaded;
+            }
+        }
+        try {
+            emitter.send(event(latest != null ? latest : snapshot));
+            if (latest != null && isFinished(latest.getStatus())) {
+                unsubscribe(channel, subscriber);
+                emitter.complete();
+                return emitter;
+            }
+        } catch (Exception e) {
+            unsubscribe(channel, subscriber);
+            emitter.completeWithError(e);
+        }
+
+        log.debug("Telemetry subscriber added: sessionId={}, subscribers={}", sessionId,
+                channel.subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * New meter reading (and, for RFID, billing) of a charging session.
+     */
+    public void publishReading(LiveSessionRegistry.LiveSession live) {
+        Channel channel = channels.get(live.getSessionId());
+        if (channel == null) {
+            return;
+        }
+        channel.update(new SessionTelemetryDTO(live.getSessionId(), SessionStatus.ACTIVE.getValue(),
+                live.isRfid() ? live.getBilledKwh() : live.getEnergyKwh(),
+                live.isRfid() ? live.getCost() : null, LocalDateTime.now()));
+    }
+
+    /**
+     * Session changed state (activated, completed, failed).
+     */
+    public void publishStatus(Session session) {
+        Channel channel = channels.get(session.getId());
+        if (channel == null) {
+            return;
+        }
+        channel.update(fromSession(session));
+    }
+
+    public int subscriberCount() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            count += channel.subscribers.size();
+        }
+        return count;
+    }
+
+    /**
+     * Current energy, cost and status of a session. A charging session is read
+     * from the live registry; its DB row lags behind by up to one write-behind
+     * flush.
+     */
+    public SessionTelemetryDTO snapshotOf(Session session) {
+        LiveSessionRegistry.LiveSession live = SessionStatus.ACTIVE.matches(session.getStatus())
+                ? liveSessionRegistry.get(session.getId().intValue())
+                : null;
+        if (live != null) {
+            return new SessionTelemetryDTO(session.getId(), session.getStatus(),
+                    live.isRfid() ? live.getBilledKwh() : live.getEnergyKwh(),
+                    live.isRfid() ? live.getCost() : null, LocalDateTime.now());
+        }
+        return fromSession(session);
+    }
+
+    private static SessionTelemetryDTO fromSession(Session session) {
+        boolean finished = isFinished(session.getStatus());
+        return new SessionTelemetryDTO(session.getId(), session.getStatus(), session.getEnergyKwh(),
+                finished || "RFID".equals(session.getSourceType()) ? session.getCost() : null,
+                LocalDateTime.now());
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            boolean heartbeat = now - lastHeartbeatAt >= heartbeatMs;
+            if (heartbeat) {
+                lastHeartbeatAt = now;
+            }
+
+            for (Channel channel : channels.values()) {
+                if (!channel.sending.compareAndSet(false, true)) {
+                    // Previous push still in progress; its snapshot stays dirty
+                    continue;
+                }
+                if (channel.dirty.compareAndSet(true, false)) {
+                    execute(channel, () -> push(channel, channel.latest));
+                } else if (heartbeat) {
+                    execute(channel, () -> heartbeat(channel));
+                } else {
+                    channel.sending.set(false);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Telemetry tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void execute(Channel channel, Runnable task) {
+        try {
+            pushPool.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    channel.sending.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            channel.sending.set(false);
+        }
+    }
+
+    private void push(Channel channel, SessionTelemetryDTO telemetry) {
+        if (telemetry == null) {
+            return;
+        }
+        for (Subscriber subscriber : channel.subscribers) {
+            try {
+                subscriber.emitter.send(event(telemetry));
+            } catch (Exception e) {
+                // Client went away
+                log.debug("Dropping telemetry subscriber: sessionId={}: {}", channel.sessionId, e.getMessage());
+                unsubscribe(channel, subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+
+        if (isFinished(telemetry.getStatus())) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.emitter.complete();
+            }
+            channels.remove(channel.sessionId, channel);
+        }
+    }
+
+    private void heartbeat(Channel channel) {
+        for (Subscriber subscriber : channel.subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (Exception e) {
+                unsubscribe(channel, subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void unsubscribe(Channel channel, Subscriber subscriber) {
+        channel.subscribers.remove(subscriber);
+        channels.computeIfPresent(channel.sessionId, (id, c) -> c == channel && c.subscribers.isEmpty() ? null : c);
+    }
+
+    private static SseEmitter.SseEventBuilder event(SessionTelemetryDTO telemetry) {
+        return SseEmitter.event().name(EVENT_NAME).data(telemetry, MediaType.APPLICATION_JSON);
+    }
+
+    private static boolean isFinished(String status) {
+        return SessionStatus.COMPLETED.matches(status) || SessionStatus.FAILED.matches(status);
+    }
+
+    /**
+     * Subscribers of one session and its latest unsent snapshot.
+     */
+    private static final class Channel {
+        private final Long sessionId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile SessionTelemetryDTO latest;
+
+        private Channel(Long sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        private synchronized void update(SessionTelemetryDTO telemetry) {
+            // A late reading must not turn a finished session back into an active one
+            SessionTelemetryDTO current = latest;
+            if (current != null && isFinished(current.getStatus()) && !isFinished(telemetry.getStatus())) {
+                return;
+            }
+            latest = telemetry;
+            dirty.set(true);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
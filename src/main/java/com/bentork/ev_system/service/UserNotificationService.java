@@ -19,10 +19,13 @@ public class UserNotificationService {
 
     private final UserNotificationRepository repository;
     private final UserRepository userRepo;
+    private final NotificationDispatcher notificationDispatcher;
 
-    public UserNotificationService(UserNotificationRepository repository, UserRepository userRepo) {
+    public UserNotificationService(UserNotificationRepository repository, UserRepository userRepo,
+            NotificationDispatcher notificationDispatcher) {
         this.repository = repository;
         this.userRepo = userRepo;
+        this.notificationDispatcher = notificationDispatcher;
     }
 
     // Get all notifications for a user
@@ -92,6 +95,11 @@ public class UserNotificationService {
         }
     }
 
+    // Queue a notification; written in the background, for service-internal events
+    public void sendNotification(Long userId, String title, String message, String type) {
+        notificationDispatcher.publishUser(userId, title, message, type);
+    }
+
     // Mark notification as read
     public Optional<UserNotification> markAsRead(Long notificationId) {
         try {
@@ -5,7 +5,6 @@ import com.bentork.ev_system.dto.request.UserPlanSelectionDTO;
 import com.bentork.ev_system.mapper.PlanMapper;
 import com.bentork.ev_system.mapper.UserPlanSelectionMapper;
 import com.bentork.ev_system.model.Plan;
-import com.bentork.ev_system.model.User;
 import com.bentork.ev_system.model.UserPlanSelection;
 import com.bentork.ev_system.repository.PlanRepository;
 import com.bentork.ev_system.repository.UserPlanSelectionRepository;
@@ -17,6 +16,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -28,13 +28,16 @@ public class UserPlanSelectionService {
     private final UserPlanSelectionRepository userPlanSelectionRepository;
     private final PlanRepository planRepository;
     private final UserRepository userRepository;
+    private final WalletTransactionService walletTransactionService;
 
     public UserPlanSelectionService(UserPlanSelectionRepository userPlanSelectionRepository,
                                     PlanRepository planRepository,
-                                    UserRepository userRepository) {
+                                    UserRepository userRepository,
+                                    WalletTransactionService walletTransactionService) {
         this.userPlanSelectionRepository = userPlanSelectionRepository;
         this.planRepository = planRepository;
         this.userRepository = userRepository;
+        this.walletTransactionService = walletTransactionService;
     }
 
     @Transactional
@@ -44,18 +47,23 @@ public class UserPlanSelectionService {
                 .orElseThrow(() -> new RuntimeException("Plan not found"));
 
         // fetch user
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // check wallet balance
-        if (user.getWalletBalance().compareTo(plan.getWalletDeduction()) < 0) {
-            throw new RuntimeException("Insufficient wallet balance. Required: "
-                    + plan.getWalletDeduction() + ", Available: " + user.getWalletBalance());
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
         }
 
-        // deduct balance
-        user.setWalletBalance(user.getWalletBalance().subtract(plan.getWalletDeduction()));
-        userRepository.save(user);
+        // Free plans skip the wallet; debit() only accepts positive amounts
+        BigDecimal deduction = plan.getWalletDeduction();
+        if (deduction != null && deduction.signum() > 0) {
+            // check wallet balance
+            BigDecimal balance = walletTransactionService.getBalance(userId);
+            if (balance.compareTo(deduction) < 0) {
+                throw new RuntimeException("Insufficient wallet balance. Required: "
+                        + deduction + ", Available: " + balance);
+            }
+
+            // deduct balance (ledger entry; rechecked atomically)
+            walletTransactionService.debit(userId, null, deduction, "Plan");
+        }
 
         // deactivate old active plan
         userPlanSelectionRepository.findByUserIdAndIsActiveTrue(userId).ifPresent(existing -> {
@@ -0,0 +1,342 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bentork.ev_system.enums.SessionStatus;
+import com.bentork.ev_system.model.WalletHold;
+import com.bentork.ev_system.model.WalletTransaction;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pre-authorization holds on the wallet for RFID charging sessions, in paise.
+ *
+ * placeHold() appends a hold entry to the wallet ledger for the hold amount
+ * (wallet.hold.amount, or the whole balance if lower) and records it in
+ * wallet_holds in one transaction. MeterValues are then checked against the
+ * remaining hold in memory only; when the hold is used up, consumption fails
+ * and the caller stops the session. capture() releases the hold, debits the
+ * actual cost and closes the hold in one transaction. That makes two wallet
+ * writes per session, however many readings it has.
+ *
+ * Captured amounts are checkpointed to wallet_holds in batches. After a
+ * crash, HELD rows are reloaded (session still active) or captured at the
+ * session's final cost (the last checkpoint if the session row is gone), so
+ * held money always goes back to the user.
+ *
+ * capture() joins the caller's transaction when there is one; the hold is
+ * only forgotten in memory once that transaction commits.
+ */
+@Slf4j
+@Service
+public class WalletHoldService {
+
+    private static final String INSERT_SQL = "INSERT INTO wallet_holds "
+            + "(session_id, user_id, amount_paise, captured_paise, status, created_at, updated_at) "
+            + "VALUES (?, ?, ?, 0, ?, ?, ?)";
+
+    // Only ever moves forward, so an older snapshot cannot overwrite a newer one
+    private static final String CHECKPOINT_SQL = "UPDATE wallet_holds SET captured_paise = ?, updated_at = ? "
+            + "WHERE session_id = ? AND status = ? AND captured_paise < ?";
+
+    private static final String CAPTURE_SQL = "UPDATE wallet_holds "
+            + "SET captured_paise = ?, status = ?, updated_at = ? WHERE session_id = ? AND status = ?";
+
+    private static final String LOAD_HELD_SQL = "SELECT h.session_id, h.user_id, h.amount_paise, h.captured_paise, "
+            + "s.status, s.cost FROM wallet_holds h LEFT JOIN sessions s ON s.id = h.session_id WHERE h.status = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WalletTransactionService walletTransactionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Maximum amount held per session (rupees)
+    @Value("${wallet.hold.amount:500.00}")
+    private BigDecimal holdAmount;
+
+    @Value("${wallet.hold.checkpoint-interval-ms:5000}")
+    private long checkpointIntervalMs;
+
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor();
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        try {
+            recover();
+        } catch (Exception e) {
+            log.error("Failed to recover wallet holds: {}", e.getMessage(), e);
+        }
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, checkpointIntervalMs, checkpointIntervalMs,
+                TimeUnit.MILLISECONDS);
+        log.info("Wallet holds started: holdAmount={}, checkpointIntervalMs={}, held={}",
+                holdAmount, checkpointIntervalMs, holds.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Final checkpoint; held sessions are restored on the next start
+        checkpoint();
+    }
+
+    /**
+     * Place the hold for a session. Returns false when the wallet is empty.
+     */
+    public boolean placeHold(Long userId, Long sessionId) {
+        if (holds.containsKey(sessionId)) {
+            return true;
+        }
+        long paise;
+        try {
+            paise = takeFromWallet(userId, sessionId);
+        } catch (DuplicateKeyException e) {
+            // Lost a race with another placeHold for the same session (debit rolled
+            // back), or the session was already captured
+            return holds.containsKey(sessionId);
+        }
+        if (paise == 0) {
+            return false;
+        }
+        holds.put(sessionId, new Hold(sessionId, userId, paise, 0));
+        log.debug("Wallet hold placed: sessionId={}, userId={}, paise={}", sessionId, userId, paise);
+        return true;
+    }
+
+    /**
+     * Bill the session up to totalPaise (the total cost so far) against its
+     * hold. Idempotent: a total that was already billed is a no-op. Returns
+     * false when the total does not fit in the hold.
+     */
+    public boolean consumeUpTo(Long userId, Long sessionId, long totalPaise) {
+        Hold hold = holds.get(sessionId);
+        if (hold == null) {
+            // e.g. a session started before holds existed
+            if (!placeHold(userId, sessionId)) {
+                return false;
+            }
+            hold = holds.get(sessionId);
+        }
+
+        if (totalPaise > hold.amount) {
+            return false;
+        }
+        while (true) {
+            long captured = hold.captured.get();
+            if (totalPaise <= captured) {
+                return true;
+            }
+            if (hold.captured.compareAndSet(captured, totalPaise)) {
+                hold.dirty.set(true);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Close the session's hold: release it and debit finalPaise (at most the
+     * hold) in one transaction. Returns the debit transaction; null when the
+     * session had no hold or nothing was captured.
+     */
+    public WalletTransaction capture(Long sessionId, long finalPaise) {
+        Hold hold = holds.get(sessionId);
+        if (hold == null) {
+            return null;
+        }
+        synchronized (hold) {
+            if (hold.closed) {
+                return null;
+            }
+            long captured = Math.min(Math.max(finalPaise, 0), hold.amount);
+
+            WalletTransaction debit = tx.execute(status -> {
+                walletTransactionService.releaseHold(hold.userId, sessionId, toRupees(hold.amount));
+                jdbcTemplate.update(CAPTURE_SQL, captured, WalletHold.CAPTURED,
+                        Timestamp.valueOf(LocalDateTime.now()), sessionId, WalletHold.HELD);
+                return captured > 0
+                        ? walletTransactionService.recordDebit(hold.userId, sessionId, toRupees(captured), "Wallet")
+                        : null;
+            });
+
+            hold.closed = true;
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        synchronized (hold) {
+                            if (status == STATUS_COMMITTED) {
+                                close(hold, captured);
+                            } else {
+                                // Still HELD in the database: keep billing against it
+                                hold.closed = false;
+                            }
+                        }
+                    }
+                });
+            } else {
+                close(hold, captured);
+            }
+            log.info("Wallet hold captured: sessionId={}, userId={}, captured={} paise, released={} paise",
+                    sessionId, hold.userId, captured, hold.amount - captured);
+            return debit;
+        }
+    }
+
+    private void close(Hold hold, long captured) {
+        hold.captured.set(captured);
+        holds.remove(hold.sessionId, hold);
+    }
+
+    public boolean hasHold(Long sessionId) {
+        return holds.containsKey(sessionId);
+    }
+
+    public static long toPaise(BigDecimal rupees) {
+        return rupees.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static long toPaise(double rupees) {
+        return Math.round(rupees * 100.0);
+    }
+
+    public static BigDecimal toRupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    /**
+     * Move the hold amount from the wallet into wallet_holds. Returns the
+     * amount taken in paise, 0 when the wallet is empty.
+     */
+    private long takeFromWallet(Long userId, Long sessionId) {
+        // Retry once in case a concurrent debit lowered the balance in between
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long taken = tx.execute(status -> {
+                WalletTransaction hold = walletTransactionService.placeHold(userId, sessionId, holdAmount);
+                if (hold == null) {
+                    return null;
+                }
+                long paise = toPaise(hold.getAmount());
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                jdbcTemplate.update(INSERT_SQL, sessionId, userId, paise, WalletHold.HELD, now, now);
+                return paise;
+            });
+            if (taken != null) {
+                return taken;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Write captured amounts of holds that changed as one JDBC batch.
+     */
+    void checkpoint() {
+        try {
+            List<Hold> flushed = new ArrayList<>();
+            List<Object[]> rows = new ArrayList<>();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (Hold hold : holds.values()) {
+                if (hold.dirty.compareAndSet(true, false)) {
+                    long captured = hold.captured.get();
+                    flushed.add(hold);
+                    rows.add(new Object[] { captured, now, hold.sessionId, WalletHold.HELD, captured });
+                }
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                jdbcTemplate.batchUpdate(CHECKPOINT_SQL, rows);
+                log.debug("Checkpointed {} wallet holds", rows.size());
+            } catch (Exception e) {
+                // Retry with the next checkpoint
+                for (Hold hold : flushed) {
+                    hold.dirty.set(true);
+                }
+                throw e;
+            }
+        } catch (Exception e) {
+            log.error("Wallet hold checkpoint failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void recover() {
+        List<Object[]> rows = jdbcTemplate.query(LOAD_HELD_SQL,
+                (rs, rowNum) -> new Object[] { rs.getLong("session_id"), rs.getLong("user_id"),
+                        rs.getLong("amount_paise"), rs.getLong("captured_paise"), rs.getString("status"),
+                        rs.getObject("cost") },
+                WalletHold.HELD);
+        int restored = 0;
+        int captured = 0;
+        for (Object[] row : rows) {
+            Long sessionId = (Long) row[0];
+            Hold hold = new Hold(sessionId, (Long) row[1], (long) row[2], (long) row[3]);
+            holds.put(sessionId, hold);
+            if (SessionStatus.isActiveStatus((String) row[4])) {
+                restored++;
+            } else {
+                // Session ended without its hold being captured: bill the final
+                // cost, not just the last checkpoint
+                long finalPaise = row[5] != null ? toPaise(((Number) row[5]).doubleValue()) : hold.captured.get();
+                capture(sessionId, finalPaise);
+                captured++;
+            }
+        }
+        if (!rows.isEmpty()) {
+            log.info("Recovered wallet holds: restored={}, captured={}", restored, captured);
+        }
+    }
+
+    private static final class Hold {
+        private final Long sessionId;
+        private final Long userId;
+        private final long amount;
+        private final AtomicLong captured;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private boolean closed;
+
+        private Hold(Long sessionId, Long userId, long amountPaise, long capturedPaise) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.amount = amountPaise;
+            this.captured = new AtomicLong(capturedPaise);
+        }
+    }
+}
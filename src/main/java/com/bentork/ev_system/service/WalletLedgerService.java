@@ -0,0 +1,432 @@
+package com.bentork.ev_system.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bentork.ev_system.model.WalletTransaction;
+import com.bentork.ev_system.repository.WalletTransactionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only wallet ledger.
+ *
+ * Every balance change is a successful wallet_transactions row: credit and
+ * release add to the balance, debit and hold subtract from it, other types
+ * leave it unchanged. Nothing updates a per-user row, so concurrent changes
+ * of one wallet are plain inserts. The balance is the user's latest
+ * wallet_balance_snapshots row plus the rows after it; it is cached per user
+ * and recomputed when older than cache-ttl-ms, or before every checked debit.
+ *
+ * Snapshots are advanced in one statement every snapshot-interval-ms, for
+ * rows older than snapshot-lag-ms and newer than the previous run (recorded
+ * on the seed marker row), and mirrored into user.wallet_balance as a read
+ * model. Ids are taken at insert but become visible at commit, so a
+ * transaction open for longer than the lag can commit a row below a
+ * snapshot's last_tx_id that the snapshot never counted. The reconciliation
+ * job replays each user's ledger from its opening balance and repairs
+ * snapshots that do not match.
+ *
+ * Checked debits are serialized per user on this node; across nodes the
+ * window is the time between the balance query and the insert.
+ */
+@Slf4j
+@Service
+public class WalletLedgerService {
+
+    // The only types that move the balance; deltaOf and DELTA both use these
+    static final List<String> CREDIT_TYPES = List.of("credit", "release");
+    static final List<String> DEBIT_TYPES = List.of("debit", "hold");
+
+    private static final String DELTA = "CASE WHEN LOWER(t.type) IN (" + sqlList(CREDIT_TYPES) + ") THEN t.amount "
+            + "WHEN LOWER(t.type) IN (" + sqlList(DEBIT_TYPES) + ") THEN -t.amount ELSE 0 END";
+
+    private static final String SNAPSHOT_SQL = "SELECT balance, last_tx_id FROM wallet_balance_snapshots "
+            + "WHERE user_id = ?";
+
+    private static final String TAIL_SQL = "SELECT t.id, " + DELTA + " AS delta FROM wallet_transactions t "
+            + "WHERE t.user_id = ? AND t.id > ? AND LOWER(t.status) = 'success'";
+
+    // Marks that legacy balances were copied into opening snapshots
+    private static final long SEED_MARKER_USER_ID = 0L;
+
+    private static final String SEED_DONE_SQL = "SELECT COUNT(*) FROM wallet_balance_snapshots WHERE user_id = ?";
+
+    private static final String SEED_SQL = "INSERT IGNORE INTO wallet_balance_snapshots "
+            + "(user_id, balance, last_tx_id, opening_balance, opening_tx_id, updated_at) "
+            + "SELECT u.id, COALESCE(u.wallet_balance, 0), ?, COALESCE(u.wallet_balance, 0), ?, ? FROM `user` u";
+
+    private static final String SEED_MARKER_SQL = "INSERT IGNORE INTO wallet_balance_snapshots "
+            + "(user_id, balance, last_tx_id, opening_balance, opening_tx_id, updated_at) VALUES (?, 0, ?, 0, ?, ?)";
+
+    private static final String MAX_TX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM wallet_transactions";
+
+    private static final String MAX_SETTLED_TX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM wallet_transactions "
+            + "WHERE created_at < ?";
+
+    // Transaction the previous snapshot run advanced to, kept on the marker row
+    private static final String ADVANCED_TO_SQL = "SELECT last_tx_id FROM wallet_balance_snapshots WHERE user_id = ?";
+
+    private static final String ADVANCED_TO_UPDATE_SQL = "UPDATE wallet_balance_snapshots "
+            + "SET last_tx_id = GREATEST(last_tx_id, ?) WHERE user_id = ?";
+
+    // Users without a snapshot start from zero at transaction 0. Only rows after
+    // the previous run are read; rows that committed below it are left to reconcile
+    private static final String ADVANCE_SQL = "INSERT INTO wallet_balance_snapshots "
+            + "(user_id, balance, last_tx_id, opening_balance, opening_tx_id, updated_at) "
+            + "SELECT t.user_id, COALESCE(s.balance, 0) + SUM(" + DELTA + "), ?, 0, 0, ? "
+            + "FROM wallet_transactions t LEFT JOIN wallet_balance_snapshots s ON s.user_id = t.user_id "
+            + "WHERE t.id > ? AND t.id <= ? AND t.id > COALESCE(s.last_tx_id, 0) AND LOWER(t.status) = 'success' "
+            + "GROUP BY t.user_id, s.balance "
+            + "ON DUPLICATE KEY UPDATE "
+            + "balance = IF(VALUES(last_tx_id) > last_tx_id, VALUES(balance), balance), "
+            + "updated_at = IF(VALUES(last_tx_id) > last_tx_id, VALUES(updated_at), updated_at), "
+            + "last_tx_id = GREATEST(last_tx_id, VALUES(last_tx_id))";
+
+    private static final String PROJECT_SQL = "UPDATE `user` u JOIN wallet_balance_snapshots s ON s.user_id = u.id "
+            + "SET u.wallet_balance = s.balance WHERE s.updated_at = ?";
+
+    private static final String RECONCILE_SQL = "SELECT s.user_id, s.balance, s.last_tx_id, "
+            + "s.opening_balance + COALESCE(SUM(" + DELTA + "), 0) AS replayed "
+            + "FROM wallet_balance_snapshots s LEFT JOIN wallet_transactions t ON t.user_id = s.user_id "
+            + "AND t.id > s.opening_tx_id AND t.id <= s.last_tx_id AND LOWER(t.status) = 'success' "
+            + "WHERE s.user_id <> ? "
+            + "GROUP BY s.user_id, s.balance, s.opening_balance, s.last_tx_id "
+            + "HAVING s.balance <> replayed";
+
+    // Skipped if the snapshot moved since it was replayed
+    private static final String REPAIR_SQL = "UPDATE wallet_balance_snapshots SET balance = ?, updated_at = ? "
+            + "WHERE user_id = ? AND last_tx_id = ? AND balance = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WalletTransactionRepository walletTransactionRepository;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    // Picks up changes written by other nodes
+    @Value("${wallet.ledger.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    @Value("${wallet.ledger.snapshot-interval-ms:300000}")
+    private long snapshotIntervalMs;
+
+    // Rows younger than this may belong to transactions that have not committed yet
+    @Value("${wallet.ledger.snapshot-lag-ms:60000}")
+    private long snapshotLagMs;
+
+    @Value("${wallet.ledger.reconcile-interval-ms:3600000}")
+    private long reconcileIntervalMs;
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    // Told (userId, available balance) whenever a cached balance may have changed
+    private final List<BiConsumer<Long, BigDecimal>> balanceListeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @PostConstruct
+    public void init() {
+        try {
+            seedOpeningBalances();
+        } catch (Exception e) {
+            log.error("Failed to seed wallet opening balances: {}", e.getMessage(), e);
+        }
+        scheduler.scheduleWithFixedDelay(this::snapshot, snapshotIntervalMs, snapshotIntervalMs,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs,
+                TimeUnit.MILLISECONDS);
+        log.info("Wallet ledger started: cacheTtlMs={}, snapshotIntervalMs={}, reconcileIntervalMs={}",
+                cacheTtlMs, snapshotIntervalMs, reconcileIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Current balance of a user, from the cache when it is recent enough.
+     */
+    public BigDecimal getBalance(Long userId) {
+        Account account = account(userId);
+        synchronized (account) {
+            if (System.currentTimeMillis() - account.loadedAt > cacheTtlMs) {
+                load(account);
+            }
+            return account.available();
+        }
+    }
+
+    /**
+     * Current balance of a user, recomputed from the ledger.
+     */
+    public BigDecimal getFreshBalance(Long userId) {
+        Account account = account(userId);
+        synchronized (account) {
+            load(account);
+            return account.available();
+        }
+    }
+
+    /**
+     * Append a transaction. Successful rows change the balance.
+     */
+    public WalletTransaction append(WalletTransaction tx) {
+        Account account = account(tx.getUserId());
+        synchronized (account) {
+            WalletTransaction saved = walletTransactionRepository.save(tx);
+            track(account, saved);
+            return saved;
+        }
+    }
+
+    /**
+     * Append a debit or hold only if the balance covers it. Returns null when
+     * it does not.
+     */
+    public WalletTransaction debitIfSufficient(WalletTransaction tx) {
+        Account account = account(tx.getUserId());
+        synchronized (account) {
+            load(account);
+            if (account.available().compareTo(tx.getAmount()) < 0) {
+                return null;
+            }
+            WalletTransaction saved = walletTransactionRepository.save(tx);
+            track(account, saved);
+            return saved;
+        }
+    }
+
+    /**
+     * Register a listener for balance changes seen by this node. Listeners
+     * run while the account is locked and must not block.
+     */
+    public void addBalanceListener(BiConsumer<Long, BigDecimal> listener) {
+        balanceListeners.add(listener);
+    }
+
+    public int cachedAccounts() {
+        return accounts.size();
+    }
+
+    static BigDecimal deltaOf(WalletTransaction tx) {
+        if (tx.getAmount() == null || !"success".equalsIgnoreCase(tx.getStatus()) || tx.getType() == null) {
+            return BigDecimal.ZERO;
+        }
+        String type = tx.getType().toLowerCase();
+        if (CREDIT_TYPES.contains(type)) {
+            return tx.getAmount();
+        }
+        if (DEBIT_TYPES.contains(type)) {
+            return tx.getAmount().negate();
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static String sqlList(List<String> values) {
+        return values.stream().map(v -> "'" + v + "'").collect(Collectors.joining(", "));
+    }
+
+    private Account account(Long userId) {
+        return accounts.computeIfAbsent(userId, Account::new);
+    }
+
+    /**
+     * Count a new row into the cached balance. Until its transaction ends the
+     * row is pending: it is available to this node but skipped when the
+     * balance is recomputed, so it is never counted twice.
+     */
+    private void track(Account account, WalletTransaction saved) {
+        BigDecimal delta = deltaOf(saved);
+        if (delta.signum() == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            account.committed = account.committed.add(delta);
+            balanceChanged(account);
+            return;
+        }
+        Long id = saved.getId();
+        account.pending.put(id, delta);
+        balanceChanged(account);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (account) {
+                    BigDecimal pending = account.pending.remove(id);
+                    if (pending != null && status == STATUS_COMMITTED) {
+                        account.committed = account.committed.add(pending);
+                    }
+                    balanceChanged(account);
+                }
+            }
+        });
+    }
+
+    private void load(Account account) {
+        BigDecimal balance = BigDecimal.ZERO;
+        long lastTxId = 0;
+        List<Map<String, Object>> snapshot = jdbcTemplate.queryForList(SNAPSHOT_SQL, account.userId);
+        if (!snapshot.isEmpty()) {
+            balance = (BigDecimal) snapshot.get(0).get("balance");
+            lastTxId = ((Number) snapshot.get(0).get("last_tx_id")).longValue();
+        }
+
+        Map<Long, BigDecimal> tail = new HashMap<>();
+        jdbcTemplate.query(TAIL_SQL, rs -> {
+            tail.put(rs.getLong("id"), rs.getBigDecimal("delta"));
+        }, account.userId, lastTxId);
+        for (Map.Entry<Long, BigDecimal> row : tail.entrySet()) {
+            if (!account.pending.containsKey(row.getKey())) {
+                balance = balance.add(row.getValue());
+            }
+        }
+
+        account.committed = balance;
+        account.loadedAt = System.currentTimeMillis();
+        balanceChanged(account);
+    }
+
+    private void balanceChanged(Account account) {
+        if (balanceListeners.isEmpty()) {
+            return;
+        }
+        BigDecimal available = account.available();
+        for (BiConsumer<Long, BigDecimal> listener : balanceListeners) {
+            try {
+                listener.accept(account.userId, available);
+            } catch (Exception e) {
+                log.warn("Wallet balance listener failed: userId={}: {}", account.userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copy the legacy user.wallet_balance into opening snapshots, once.
+     */
+    private void seedOpeningBalances() {
+        Integer done = jdbcTemplate.queryForObject(SEED_DONE_SQL, Integer.class, SEED_MARKER_USER_ID);
+        if (done != null && done > 0) {
+            return;
+        }
+        Long maxTxId = jdbcTemplate.queryForObject(MAX_TX_ID_SQL, Long.class);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int seeded = jdbcTemplate.update(SEED_SQL, maxTxId, maxTxId, now);
+        jdbcTemplate.update(SEED_MARKER_SQL, SEED_MARKER_USER_ID, maxTxId, maxTxId, now);
+        log.info("Seeded {} wallet opening balances at transaction {}", seeded, maxTxId);
+    }
+
+    /**
+     * Advance snapshots to the newest settled transaction and refresh the
+     * user.wallet_balance read model.
+     */
+    void snapshot() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp settledBefore = Timestamp.valueOf(now.minus(snapshotLagMs, ChronoUnit.MILLIS));
+            Long upTo = jdbcTemplate.queryForObject(MAX_SETTLED_TX_ID_SQL, Long.class, settledBefore);
+            if (upTo == null || upTo == 0) {
+                return;
+            }
+            List<Long> advancedTo = jdbcTemplate.queryForList(ADVANCED_TO_SQL, Long.class, SEED_MARKER_USER_ID);
+            long from = advancedTo.isEmpty() ? 0 : advancedTo.get(0);
+            if (upTo <= from) {
+                return;
+            }
+            Timestamp stamp = Timestamp.valueOf(now);
+            int advanced = jdbcTemplate.update(ADVANCE_SQL, upTo, stamp, from, upTo);
+            jdbcTemplate.update(ADVANCED_TO_UPDATE_SQL, upTo, SEED_MARKER_USER_ID);
+            int projected = jdbcTemplate.update(PROJECT_SQL, stamp);
+            log.debug("Wallet snapshots advanced to transaction {}: rows={}, projected={}", upTo, advanced,
+                    projected);
+
+            // Drop idle cache entries
+            long idleBefore = System.currentTimeMillis() - cacheTtlMs;
+            accounts.values().removeIf(account -> account.loadedAt < idleBefore && account.pending.isEmpty());
+        } catch (Exception e) {
+            log.error("Wallet snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replay every user's ledger up to its snapshot and repair mismatches,
+     * such as rows that committed after the snapshot passed their id.
+     */
+    void reconcile() {
+        try {
+            List<Map<String, Object>> mismatches = jdbcTemplate.queryForList(RECONCILE_SQL, SEED_MARKER_USER_ID);
+            if (mismatches.isEmpty()) {
+                log.info("Wallet ledger reconciled: no mismatches");
+                return;
+            }
+            Timestamp stamp = Timestamp.valueOf(LocalDateTime.now());
+            int repaired = 0;
+            for (Map<String, Object> row : mismatches) {
+                Long userId = ((Number) row.get("user_id")).longValue();
+                log.warn("Wallet ledger mismatch: userId={}, snapshot={}, ledger={}",
+                        userId, row.get("balance"), row.get("replayed"));
+                if (jdbcTemplate.update(REPAIR_SQL, row.get("replayed"), stamp, userId, row.get("last_tx_id"),
+                        row.get("balance")) == 1) {
+                    repaired++;
+                    Account account = accounts.get(userId);
+                    if (account != null) {
+                        synchronized (account) {
+                            account.loadedAt = 0;
+                        }
+                    }
+                }
+            }
+            jdbcTemplate.update(PROJECT_SQL, stamp);
+            log.info("Wallet ledger reconciled: mismatches={}, repaired={}", mismatches.size(), repaired);
+            notificationDispatcher.publishAdmin("Wallet ledger reconciliation found " + mismatches.size()
+                    + " balance mismatch(es) and repaired " + repaired + "; see logs for details", "Wallet");
+        } catch (Exception e) {
+            log.error("Wallet ledger reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static final class Account {
+        private final Long userId;
+        private BigDecimal committed = BigDecimal.ZERO;
+        private long loadedAt;
+        // Rows of transactions that have not completed yet, by id
+        private final Map<Long, BigDecimal> pending = new HashMap<>();
+
+        private Account(Long userId) {
+            this.userId = userId;
+        }
+
+        private BigDecimal available() {
+            BigDecimal available = committed;
+            for (BigDecimal delta : pending.values()) {
+                available = available.add(delta);
+            }
+            return available;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.bentork.ev_system.service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,9 +12,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.bentork.ev_system.model.User;
 import com.bentork.ev_system.model.WalletTransaction;
-import com.bentork.ev_system.repository.UserRepository;
 import com.bentork.ev_system.repository.WalletTransactionRepository;
 
 import lombok.extern.slf4j.Slf4j;
@@ -23,11 +21,14 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class WalletTransactionService {
 
+    // Session pre-authorization rows, not shown in the history unless asked for
+    private static final List<String> HOLD_TYPES = List.of("hold", "release");
+
     @Autowired
     private WalletTransactionRepository repo;
 
     @Autowired
-    private UserRepository userRepo;
+    private WalletLedgerService ledger;
 
     @Autowired
     private TaxCalculationService taxService;
@@ -41,80 +42,47 @@ public class WalletTransactionService {
         if (type != null && !type.isEmpty()) {
             return repo.findByUserIdAndType(userId, type, pageable).getContent();
         } else {
-            return repo.findByUserId(userId, pageable).getContent();
+            return repo.findByUserIdAndTypeNotIn(userId, HOLD_TYPES, pageable).getContent();
         }
     }
 
     /**
-     * Save a WalletTransaction and update user's wallet balance if the transaction
-     * status is "success".
-     * 
-     * FIXED: Uses pessimistic locking to prevent race conditions.
-     * This method is transactional and uses findByIdWithLock to ensure atomic
-     * updates.
+     * Save a WalletTransaction. Successful transactions are ledger entries and
+     * change the user's balance (see WalletLedgerService).
      */
     @Transactional
     public WalletTransaction save(WalletTransaction tx) {
-        WalletTransaction saved = repo.save(tx);
-
-        if ("success".equalsIgnoreCase(saved.getStatus())) {
-            // Use pessimistic lock to prevent race conditions
-            userRepo.findByIdWithLock(saved.getUserId()).ifPresent(user -> {
-                BigDecimal balance = user.getWalletBalance() != null ? user.getWalletBalance()
-                        : BigDecimal.ZERO;
-
-                if ("credit".equalsIgnoreCase(saved.getType())) {
-                    user.setWalletBalance(balance.add(saved.getAmount()));
-                    log.debug("Credited {} to user {}, new balance: {}",
-                            saved.getAmount(), user.getId(), user.getWalletBalance());
-                } else {
-                    user.setWalletBalance(balance.subtract(saved.getAmount()));
-                    log.debug("Debited {} from user {}, new balance: {}",
-                            saved.getAmount(), user.getId(), user.getWalletBalance());
-                }
-                userRepo.save(user);
-            });
+        WalletTransaction saved = ledger.append(tx);
+        if (log.isDebugEnabled()) {
+            log.debug("Wallet {} of {} for user {}: status={}", saved.getType(), saved.getAmount(),
+                    saved.getUserId(), saved.getStatus());
         }
-
         return saved;
     }
 
     /**
      * Check whether a user has at least `amount` in wallet.
-     * 
-     * FIXED: Uses pessimistic lock to get accurate balance during checks
-     * that will be followed by debit operations.
      */
-    @Transactional
     public boolean hasBalance(Long userId, BigDecimal amount) {
         if (amount == null)
             return true; // treat null as no-check
 
-        // Use lock to ensure balance doesn't change between check and debit
-        Optional<User> userOpt = userRepo.findByIdWithLock(userId);
-        return userOpt.map(u -> {
-            BigDecimal balance = u.getWalletBalance() != null ? u.getWalletBalance()
-                    : BigDecimal.ZERO;
-            return balance.compareTo(amount) >= 0;
-        }).orElse(false);
+        return ledger.getFreshBalance(userId).compareTo(amount) >= 0;
     }
 
     /**
-     * Return user's current wallet balance (or ZERO if user not found / null).
+     * Return user's current wallet balance (ZERO for a user without transactions).
      */
     public BigDecimal getBalance(Long userId) {
-        return userRepo.findById(userId)
-                .map(u -> u.getWalletBalance() != null ? u.getWalletBalance() : BigDecimal.ZERO)
-                .orElse(BigDecimal.ZERO);
+        return ledger.getBalance(userId);
     }
 
     /**
      * Create and save a debit transaction. Throws RuntimeException when balance is
      * insufficient.
      * sessionId is optional and used only to include in transactionRef for tracing.
-     * 
-     * FIXED: Entire operation is transactional with pessimistic locking.
-     * Balance check and debit are atomic.
+     *
+     * The balance check and the ledger entry are atomic per user.
      */
     @Transactional
     public WalletTransaction debit(Long userId, Long sessionId, BigDecimal amount, String method) {
@@ -123,40 +91,64 @@ public class WalletTransactionService {
         if (amount.compareTo(BigDecimal.ZERO) <= 0)
             throw new IllegalArgumentException("amount must be positive");
 
-        // Lock user row and check balance atomically
-        User user = userRepo.findByIdWithLock(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-
-        BigDecimal balance = user.getWalletBalance() != null ? user.getWalletBalance() : BigDecimal.ZERO;
-
-        if (balance.compareTo(amount) < 0) {
-            log.warn("Insufficient balance for debit: userId={}, balance={}, requested={}",
-                    userId, balance, amount);
+        WalletTransaction saved = ledger.debitIfSufficient(
+                newTransaction(userId, sessionId, amount, "debit", method != null ? method : "debit"));
+        if (saved == null) {
+            log.warn("Insufficient balance for debit: userId={}, requested={}", userId, amount);
             throw new RuntimeException("Insufficient wallet balance");
         }
 
-        // Debit directly while holding lock
-        user.setWalletBalance(balance.subtract(amount));
-        userRepo.save(user);
+        log.info("Wallet debit: userId={}, amount={}, sessionId={}", userId, amount, sessionId);
+        return saved;
+    }
 
-        log.info("Wallet debit: userId={}, amount={}, newBalance={}, sessionId={}",
-                userId, amount, user.getWalletBalance(), sessionId);
+    /**
+     * Record a debit without a balance check, for amounts already covered by
+     * a hold the caller releases in the same transaction.
+     */
+    @Transactional
+    public WalletTransaction recordDebit(Long userId, Long sessionId, BigDecimal amount, String method) {
+        WalletTransaction saved = ledger.append(
+                newTransaction(userId, sessionId, amount, "debit", method != null ? method : "debit"));
+        log.info("Wallet debit recorded: userId={}, amount={}, sessionId={}", userId, amount, sessionId);
+        return saved;
+    }
 
-        // Create transaction record (status is success since we already debited)
+    /**
+     * Hold up to maxAmount of the wallet for a session (the whole balance if
+     * lower). Returns null when the wallet is empty or the balance changed
+     * in between.
+     */
+    @Transactional
+    public WalletTransaction placeHold(Long userId, Long sessionId, BigDecimal maxAmount) {
+        BigDecimal amount = ledger.getFreshBalance(userId).min(maxAmount).setScale(2, RoundingMode.DOWN);
+        if (amount.signum() <= 0) {
+            return null;
+        }
+        return ledger.debitIfSufficient(newTransaction(userId, sessionId, amount, "hold", "Hold"));
+    }
+
+    /**
+     * Give a session's held amount back to the wallet.
+     */
+    @Transactional
+    public WalletTransaction releaseHold(Long userId, Long sessionId, BigDecimal amount) {
+        return ledger.append(newTransaction(userId, sessionId, amount, "release", "Hold"));
+    }
+
+    private static WalletTransaction newTransaction(Long userId, Long sessionId, BigDecimal amount, String type,
+            String method) {
         WalletTransaction tx = new WalletTransaction();
         tx.setUserId(userId);
         tx.setSessionId(sessionId);
         tx.setAmount(amount);
-        tx.setType("debit");
-        tx.setMethod(method != null ? method : "debit");
+        tx.setType(type);
+        tx.setMethod(method);
         tx.setStatus("success");
         tx.setTransactionRef((sessionId != null ? "sess-" + sessionId + "-" : "") + UUID.randomUUID().toString());
-
-        return repo.save(tx);
+        return tx;
     }
 
-
-
     @Transactional
     public void updateSessionIdForUser(Long userId, BigDecimal amount, Long sessionId) {
         // Get the last wallet transaction for this user that matches amount and has no
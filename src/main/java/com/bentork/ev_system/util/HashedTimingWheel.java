@@ -0,0 +1,103 @@
+package com.bentork.ev_system.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel keyed by id.
+ *
+ * Deadlines are rounded up to whole ticks and hashed into wheelSize slots;
+ * each advance only visits the slots of the ticks that passed, so add,
+ * cancel and advance are O(1) per timer regardless of how many are pending.
+ * A key has at most one timer; adding it again replaces the deadline.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+public final class HashedTimingWheel<K> {
+
+    private final long tickMs;
+    private final List<List<Timer<K>>> slots;
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+
+    // Last tick that was processed
+    private long cursor;
+
+    public HashedTimingWheel(long tickMs, int wheelSize, long nowMs) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.cursor = nowMs / tickMs;
+    }
+
+    /**
+     * Add or move the timer of key. Past deadlines fire on the next advance.
+     */
+    public void add(K key, long deadlineMs) {
+        cancel(key);
+        long tick = Math.max((deadlineMs + tickMs - 1) / tickMs, cursor + 1);
+        Timer<K> timer = new Timer<>(key, tick);
+        timers.put(key, timer);
+        slots.get((int) (tick % slots.size())).add(timer);
+    }
+
+    public boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer == null) {
+            return false;
+        }
+        // Removed from its slot lazily
+        timer.cancelled = true;
+        return true;
+    }
+
+    public boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Move the wheel to nowMs and return the keys whose deadline passed.
+     */
+    public List<K> advance(long nowMs) {
+        long nowTick = nowMs / tickMs;
+        List<K> due = new ArrayList<>();
+        // Past a full turn every slot has been visited once
+        long steps = Math.min(nowTick - cursor, slots.size());
+        for (long i = 1; i <= steps; i++) {
+            Iterator<Timer<K>> it = slots.get((int) ((cursor + i) % slots.size())).iterator();
+            while (it.hasNext()) {
+                Timer<K> timer = it.next();
+                if (timer.cancelled) {
+                    it.remove();
+                } else if (timer.tick <= nowTick) {
+                    it.remove();
+                    timers.remove(timer.key);
+                    due.add(timer.key);
+                }
+            }
+        }
+        if (nowTick > cursor) {
+            cursor = nowTick;
+        }
+        return due;
+    }
+
+    private static final class Timer<K> {
+        private final K key;
+        private final long tick;
+        private boolean cancelled;
+
+        private Timer(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
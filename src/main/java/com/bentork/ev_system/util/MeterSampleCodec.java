@@ -0,0 +1,208 @@
+package com.bentork.ev_system.util;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bentork.ev_system.dto.request.MeterSampleDTO;
+
+/**
+ * Compact columnar encoding for a block of meter samples.
+ *
+ * Layout (version 1):
+ * <pre>
+ * version:byte  count:varint
+ * flags[count]:byte           which measurands each sample carries
+ * timestamps                  first epoch-millis, then deltas
+ * energy, power, current,     one column each, present values only,
+ * voltage, soc                delta from the previous present value
+ * </pre>
+ * All numbers are zigzag varints of scaled integers: Wh, W, centiamps,
+ * decivolts and whole percent. A typical sample (steady 30s interval, slowly
+ * rising energy) takes 6-10 bytes.
+ */
+public final class MeterSampleCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final int HAS_ENERGY = 1;
+    private static final int HAS_POWER = 1 << 1;
+    private static final int HAS_CURRENT = 1 << 2;
+    private static final int HAS_VOLTAGE = 1 << 3;
+    private static final int HAS_SOC = 1 << 4;
+
+    private MeterSampleCodec() {
+    }
+
+    public static byte[] encode(List<MeterSampleDTO> samples) {
+        Writer out = new Writer(samples.size() * 10 + 8);
+        out.writeByte(VERSION);
+        out.writeVarLong(samples.size());
+
+        for (MeterSampleDTO sample : samples) {
+            out.writeByte(flagsOf(sample));
+        }
+
+        long prevTs = 0;
+        for (MeterSampleDTO sample : samples) {
+            long ts = sample.getTimestamp().toEpochMilli();
+            out.writeZigZag(ts - prevTs);
+            prevTs = ts;
+        }
+
+        writeColumn(out, samples, HAS_ENERGY);
+        writeColumn(out, samples, HAS_POWER);
+        writeColumn(out, samples, HAS_CURRENT);
+        writeColumn(out, samples, HAS_VOLTAGE);
+        writeColumn(out, samples, HAS_SOC);
+
+        return out.toByteArray();
+    }
+
+    public static List<MeterSampleDTO> decode(byte[] data) {
+        Reader in = new Reader(data);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported meter sample encoding version: " + version);
+        }
+
+        int count = (int) in.readVarLong();
+        int[] flags = new int[count];
+        for (int i = 0; i < count; i++) {
+            flags[i] = in.readByte();
+        }
+
+        List<MeterSampleDTO> samples = new ArrayList<>(count);
+        long ts = 0;
+        for (int i = 0; i < count; i++) {
+            ts += in.readZigZag();
+            samples.add(new MeterSampleDTO(Instant.ofEpochMilli(ts)));
+        }
+
+        readColumn(in, samples, flags, HAS_ENERGY);
+        readColumn(in, samples, flags, HAS_POWER);
+        readColumn(in, samples, flags, HAS_CURRENT);
+        readColumn(in, samples, flags, HAS_VOLTAGE);
+        readColumn(in, samples, flags, HAS_SOC);
+
+        return samples;
+    }
+
+    private static int flagsOf(MeterSampleDTO sample) {
+        int flags = 0;
+        if (sample.getEnergyWh() != null) flags |= HAS_ENERGY;
+        if (sample.getPowerW() != null) flags |= HAS_POWER;
+        if (sample.getCurrentA() != null) flags |= HAS_CURRENT;
+        if (sample.getVoltageV() != null) flags |= HAS_VOLTAGE;
+        if (sample.getSoc() != null) flags |= HAS_SOC;
+        return flags;
+    }
+
+    private static void writeColumn(Writer out, List<MeterSampleDTO> samples, int column) {
+        long prev = 0;
+        for (MeterSampleDTO sample : samples) {
+            if ((flagsOf(sample) & column) == 0) {
+                continue;
+            }
+            long value = scaled(sample, column);
+            out.writeZigZag(value - prev);
+            prev = value;
+        }
+    }
+
+    private static void readColumn(Reader in, List<MeterSampleDTO> samples, int[] flags, int column) {
+        long value = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            if ((flags[i] & column) == 0) {
+                continue;
+            }
+            value += in.readZigZag();
+            MeterSampleDTO sample = samples.get(i);
+            switch (column) {
+                case HAS_ENERGY -> sample.setEnergyWh(value);
+                case HAS_POWER -> sample.setPowerW((double) value);
+                case HAS_CURRENT -> sample.setCurrentA(value / 100.0);
+                case HAS_VOLTAGE -> sample.setVoltageV(value / 10.0);
+                case HAS_SOC -> sample.setSoc((int) value);
+                default -> throw new IllegalStateException("Unknown column: " + column);
+            }
+        }
+    }
+
+    private static long scaled(MeterSampleDTO sample, int column) {
+        return switch (column) {
+            case HAS_ENERGY -> sample.getEnergyWh();
+            case HAS_POWER -> Math.round(sample.getPowerW());
+            case HAS_CURRENT -> Math.round(sample.getCurrentA() * 100.0);
+            case HAS_VOLTAGE -> Math.round(sample.getVoltageV() * 10.0);
+            case HAS_SOC -> sample.getSoc();
+            default -> throw new IllegalStateException("Unknown column: " + column);
+        };
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        private Writer(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        private void writeByte(int b) {
+            if (pos == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[pos++] = (byte) b;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        private Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        private byte readByte() {
+            if (pos >= buf.length) {
+                throw new IllegalArgumentException("Truncated meter sample block");
+            }
+            return buf[pos++];
+        }
+
+        private long readZigZag() {
+            long raw = readVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in meter sample block");
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.bentork.ev_system.util;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bentork.ev_system.dto.request.MeterSampleDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming decoder for OCPP 1.6-J frames.
+ *
+ * Reads {@code [messageType, messageId, action, payload]} token by token and
+ * binds the payload of the supported actions straight into typed records,
+ * without building a JsonNode tree. Unknown fields are skipped; payloads of
+ * unsupported actions are skipped and returned as null.
+ */
+public final class OcppFrameDecoder {
+
+    public static final int CALL = 2;
+
+    private static final String ENERGY_REGISTER = "Energy.Active.Import.Register";
+
+    private final JsonFactory jsonFactory;
+
+    public OcppFrameDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Decode one frame. Returns null if the frame is not a valid OCPP array.
+     *
+     * @throws IOException if the text is not valid JSON
+     */
+    public Frame decode(String message) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(message)) {
+            if (p.nextToken() != JsonToken.START_ARRAY || p.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                return null;
+            }
+            int messageType = p.getIntValue();
+
+            JsonToken token = p.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            String messageId = p.getValueAsString();
+            p.skipChildren();
+
+            token = p.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (messageType != CALL) {
+                // CallResult / CallError: the server does not consume them yet
+                return new Frame(messageType, messageId, null, null);
+            }
+            String action = p.getValueAsString();
+            if (action == null) {
+                return null;
+            }
+
+            // A missing or non-object payload is treated as {}
+            token = p.nextToken();
+            if (token != JsonToken.START_OBJECT) {
+                if (token != null && token != JsonToken.END_ARRAY) {
+                    p.skipChildren();
+                }
+                try (JsonParser empty = jsonFactory.createParser("{}")) {
+                    empty.nextToken();
+                    return new Frame(messageType, messageId, action, readPayload(action, empty));
+                }
+            }
+            return new Frame(messageType, messageId, action, readPayload(action, p));
+        }
+    }
+
+    // Parser is on the payload's START_OBJECT
+    private static Object readPayload(String action, JsonParser p) throws IOException {
+        return switch (action) {
+            case "BootNotification" -> readBootNotification(p);
+            case "Heartbeat" -> {
+                p.skipChildren();
+                yield new Heartbeat();
+            }
+            case "Authorize" -> readAuthorize(p);
+            case "StartTransaction" -> readStartTransaction(p);
+            case "StopTransaction" -> readStopTransaction(p);
+            case "StatusNotification" -> readStatusNotification(p);
+            case "MeterValues" -> readMeterValues(p);
+            default -> {
+                p.skipChildren();
+                yield null;
+            }
+        };
+    }
+
+    private static BootNotification readBootNotification(JsonParser p) throws IOException {
+        String vendor = null;
+        String model = null;
+        String serialNumber = null;
+        String firmwareVersion = null;
+        String field;
+        while ((field = nextField(p)) != null) {
+            switch (field) {
+                case "chargePointVendor" -> vendor = p.getValueAsString();
+                case "chargePointModel" -> model = p.getValueAsString();
+                case "chargePointSerialNumber" -> serialNumber = p.getValueAsString();
+                case "firmwareVersion" -> firmwareVersion = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        return new BootNotification(vendor, model, serialNumber, firmwareVersion);
+    }
+
+    private static Authorize readAuthorize(JsonParser p) throws IOException {
+        String idTag = null;
+        String field;
+        while ((field = nextField(p)) != null) {
+            if ("idTag".equals(field)) {
+                idTag = p.getValueAsString();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Authorize(idTag);
+    }
+
+    private static StartTransaction readStartTransaction(JsonParser p) throws IOException {
+        Integer connectorId = null;
+        String idTag = null;
+        Double meterStart = null;
+        String timestamp = null;
+        String field;
+        while ((field = nextField(p)) != null) {
+            switch (field) {
+                case "connectorId" -> connectorId = p.getValueAsInt();
+                case "idTag" -> idTag = p.getValueAsString();
+                case "meterStart" -> meterStart = p.getValueAsDouble();
+                case "timestamp" -> timestamp = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        return new StartTransaction(connectorId, idTag, meterStart, timestamp);
+    }
+
+    private static StopTransaction readStopTransaction(JsonParser p) throws IOException {
+        Integer transactionId = null;
+        String idTag = null;
+        Double meterStop = null;
+        String timestamp = null;
+        String reason = null;
+        String field;
+        while ((field = nextField(p)) != null) {
+            switch (field) {
+                case "transactionId" -> transactionId = p.getValueAsInt();
+                case "idTag" -> idTag = p.getValueAsString();
+                case "meterStop" -> meterStop = p.getValueAsDouble();
+                case "timestamp" -> timestamp = p.getValueAsString();
+                case "reason" -> reason = p.getValueAsString();
+                // transactionData is not used; skip it without building nodes
+                default -> p.skipChildren();
+            }
+        }
+        return new StopTransaction(transactionId, idTag, meterStop, timestamp, reason);
+    }
+
+    private static StatusNotification readStatusNotification(JsonParser p) throws IOException {
+        Integer connectorId = null;
+        String errorCode = null;
+        String status = null;
+        String info = null;
+        String field;
+        while ((field = nextField(p)) != null) {
+            switch (field) {
+                case "connectorId" -> connectorId = p.getValueAsInt();
+                case "errorCode" -> errorCode = p.getValueAsString();
+                case "status" -> status = p.getValueAsString();
+                case "info" -> info = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        return new StatusNotification(connectorId, errorCode, status, info);
+    }
+
+    private static MeterValues readMeterValues(JsonParser p) throws IOException {
+        Integer connectorId = null;
+        Integer transactionId = null;
+        MeterValuesReader reader = new MeterValuesReader();
+        String field;
+        while ((field = nextField(p)) != null) {
+            switch (field) {
+                case "connectorId" -> connectorId = p.getValueAsInt();
+                case "transactionId" -> transactionId = p.getValueAsInt();
+                case "meterValue" -> reader.readMeterValueArray(p);
+                default -> p.skipChildren();
+            }
+        }
+        return new MeterValues(connectorId, transactionId, reader.energyKwh, reader.samples);
+    }
+
+    /**
+     * Advance to the next field of the current object and onto its value.
+     * Returns null at the end of the object.
+     */
+    private static String nextField(JsonParser p) throws IOException {
+        if (p.nextToken() != JsonToken.FIELD_NAME) {
+            return null;
+        }
+        String name = p.currentName();
+        p.nextToken();
+        return name;
+    }
+
+    private static final class MeterValuesReader {
+        private final List<MeterSampleDTO> samples = new ArrayList<>();
+        // First explicit Energy.Active.Import.Register reading, in kWh
+        private Double energyKwh;
+
+        private void readMeterValueArray(JsonParser p) throws IOException {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                return;
+            }
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                readMeterValue(p);
+            }
+        }
+
+        private void readMeterValue(JsonParser p) throws IOException {
+            MeterSampleDTO sample = new MeterSampleDTO();
+            String timestamp = null;
+            String field;
+            while ((field = nextField(p)) != null) {
+                if ("timestamp".equals(field)) {
+                    timestamp = p.getValueAsString();
+                } else if ("sampledValue".equals(field) && p.currentToken() == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        readSampledValue(p, sample);
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+
+            Instant instant = parseTimestamp(timestamp);
+            if (instant != null) {
+                sample.setTimestamp(instant);
+                samples.add(sample);
+            }
+        }
+
+        private void readSampledValue(JsonParser p, MeterSampleDTO sample) throws IOException {
+            String value = null;
+            String measurand = null;
+            String unit = null;
+            String field;
+            while ((field = nextField(p)) != null) {
+                switch (field) {
+                    case "value" -> value = p.getValueAsString();
+                    case "measurand" -> measurand = p.getValueAsString();
+                    case "unit" -> unit = p.getValueAsString();
+                    default -> p.skipChildren();
+                }
+            }
+            if (value == null) {
+                return;
+            }
+
+            double number;
+            try {
+                number = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return;
+            }
+
+            // Billing only trusts an explicit energy measurand; for the curve
+            // the OCPP default (energy register) applies
+            if (ENERGY_REGISTER.equals(measurand) && energyKwh == null) {
+                // Default unit is Wh
+                energyKwh = "kWh".equalsIgnoreCase(unit) ? number : Math.round(number * 10.0) / 10000.0;
+            }
+            applyToSample(sample, measurand == null ? ENERGY_REGISTER : measurand, unit, number);
+        }
+
+        private static void applyToSample(MeterSampleDTO sample, String measurand, String unit, double value) {
+            // For per-phase current/voltage the first reported value is kept
+            switch (measurand) {
+                case ENERGY_REGISTER -> {
+                    if (sample.getEnergyWh() == null)
+                        sample.setEnergyWh(Math.round("kWh".equalsIgnoreCase(unit) ? value * 1000 : value));
+                }
+                case "Power.Active.Import" -> {
+                    if (sample.getPowerW() == null)
+                        sample.setPowerW("kW".equalsIgnoreCase(unit) ? value * 1000 : value);
+                }
+                case "Current.Import" -> {
+                    if (sample.getCurrentA() == null)
+                        sample.setCurrentA(value);
+                }
+                case "Voltage" -> {
+                    if (sample.getVoltageV() == null)
+                        sample.setVoltageV(value);
+                }
+                case "SoC" -> {
+                    if (sample.getSoc() == null)
+                        sample.setSoc((int) Math.round(value));
+                }
+                default -> {
+                    // not stored
+                }
+            }
+        }
+
+        private static Instant parseTimestamp(String timestamp) {
+            if (timestamp == null) {
+                return null;
+            }
+            try {
+                return OffsetDateTime.parse(timestamp).toInstant();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A decoded frame. payload is one of the records below, or null for
+     * unsupported actions and non-Call frames.
+     */
+    public record Frame(int messageType, String messageId, String action, Object payload) {
+    }
+
+    public record BootNotification(String chargePointVendor, String chargePointModel,
+            String chargePointSerialNumber, String firmwareVersion) {
+    }
+
+    public record Heartbeat() {
+    }
+
+    public record Authorize(String idTag) {
+    }
+
+    public record StartTransaction(Integer connectorId, String idTag, Double meterStart, String timestamp) {
+    }
+
+    public record StopTransaction(Integer transactionId, String idTag, Double meterStop, String timestamp,
+            String reason) {
+    }
+
+    public record StatusNotification(Integer connectorId, String errorCode, String status, String info) {
+    }
+
+    /**
+     * energyKwh is the first explicit Energy.Active.Import.Register value
+     * (absolute register, kWh), or null if none was reported.
+     */
+    public record MeterValues(Integer connectorId, Integer transactionId, Double energyKwh,
+            List<MeterSampleDTO> samples) {
+    }
+}
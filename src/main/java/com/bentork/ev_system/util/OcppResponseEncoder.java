@@ -0,0 +1,139 @@
+package com.bentork.ev_system.util;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Builds the OCPP replies the server sends most often (empty CallResult,
+ * Heartbeat, idTagInfo, CallError) by splicing the messageId into fixed
+ * frame templates, without going through Jackson.
+ *
+ * currentTime is formatted at most once per second and shared by all
+ * Heartbeat / BootNotification replies sent in that second.
+ */
+public final class OcppResponseEncoder {
+
+    private static final String RESULT_PREFIX = "[3,\"";
+    private static final String ERROR_PREFIX = "[4,\"";
+
+    private static final String EMPTY_SUFFIX = "\",{}]";
+    private static final String CURRENT_TIME_INFIX = "\",{\"currentTime\":\"";
+
+    private volatile CachedTime cachedTime = new CachedTime(Long.MIN_VALUE, null);
+
+    /**
+     * [3,"id",{}] - StatusNotification, MeterValues and other empty replies.
+     */
+    public String emptyResult(String messageId) {
+        StringBuilder sb = start(RESULT_PREFIX, messageId);
+        return sb.append(EMPTY_SUFFIX).toString();
+    }
+
+    /**
+     * [3,"id",{"currentTime":"..."}]
+     */
+    public String heartbeatResult(String messageId) {
+        StringBuilder sb = start(RESULT_PREFIX, messageId);
+        return sb.append(CURRENT_TIME_INFIX).append(currentTime()).append("\"}]").toString();
+    }
+
+    /**
+     * [3,"id",{"status":"...","currentTime":"...","interval":n}]
+     */
+    public String bootNotificationResult(String messageId, String status, int interval) {
+        StringBuilder sb = start(RESULT_PREFIX, messageId);
+        sb.append("\",{\"status\":");
+        appendString(sb, status);
+        return sb.append(",\"currentTime\":\"").append(currentTime())
+                .append("\",\"interval\":").append(interval).append("}]").toString();
+    }
+
+    /**
+     * [3,"id",{"idTagInfo":{"status":"..."}}] - Authorize and StopTransaction.
+     */
+    public String idTagInfoResult(String messageId, String status) {
+        StringBuilder sb = start(RESULT_PREFIX, messageId);
+        sb.append("\",{\"idTagInfo\":{\"status\":");
+        appendString(sb, status);
+        return sb.append("}}]").toString();
+    }
+
+    /**
+     * [3,"id",{"transactionId":n,"idTagInfo":{"status":"..."}}]
+     */
+    public String startTransactionResult(String messageId, int transactionId, String status) {
+        StringBuilder sb = start(RESULT_PREFIX, messageId);
+        sb.append("\",{\"transactionId\":").append(transactionId).append(",\"idTagInfo\":{\"status\":");
+        appendString(sb, status);
+        return sb.append("}}]").toString();
+    }
+
+    /**
+     * [4,"id","errorCode","description",{}]
+     */
+    public String callError(String messageId, String errorCode, String errorDescription) {
+        StringBuilder sb = start(ERROR_PREFIX, messageId);
+        sb.append("\",");
+        appendString(sb, errorCode);
+        sb.append(',');
+        appendString(sb, errorDescription);
+        return sb.append(",{}]").toString();
+    }
+
+    /**
+     * Current UTC time in ISO-8601, second precision, cached per second.
+     */
+    public String currentTime() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedTime cached = cachedTime;
+        if (cached.second != second) {
+            cached = new CachedTime(second, DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(second)));
+            cachedTime = cached;
+        }
+        return cached.text;
+    }
+
+    private static StringBuilder start(String prefix, String messageId) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append(prefix);
+        appendEscaped(sb, messageId);
+        return sb;
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        appendEscaped(sb, value);
+        sb.append('"');
+    }
+
+    // JSON string escaping; message ids are normally plain UUIDs and pass through
+    private static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+    }
+
+    private record CachedTime(long second, String text) {
+    }
+}
@@ -0,0 +1,434 @@
+package com.bentork.ev_system.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Benchmark and EXPLAIN check of the session dashboard counters
+ * (SessionRepository.countByStatus, sumEnergyKwhByStatus,
+ * countByStatusCreatedBetween), the keyset-paginated findRecords and the
+ * streaming export queries, against synthetic data in MySQL.
+ *
+ * Runs only when a scratch database is given, e.g.
+ * <pre>
+ * mvn test -Dtest=SessionQueryBenchmarkTest \
+ *     -Dbench.jdbc.url=jdbc:mysql://localhost:3306/ev_bench?rewriteBatchedStatements=true \
+ *     -Dbench.jdbc.user=root -Dbench.jdbc.password=... [-Dbench.rows=1000000]
+ * </pre>
+ * The database name must contain "bench": its sessions, charger, stations,
+ * user, revenue and wallet_transactions tables are dropped and recreated
+ * with the indexes declared on the entities. Queries are the SQL Hibernate
+ * generates for the repository methods; "before" is the old findAll() load
+ * of every session with its user, charger and station, filtered in Java.
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc.url", matches = ".+")
+class SessionQueryBenchmarkTest {
+
+	private static final String[] TABLES = { "wallet_transactions", "revenue", "sessions", "charger", "stations",
+			"`user`" };
+
+	private static final String[] DDL = {
+			"CREATE TABLE stations (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255))",
+			"CREATE TABLE charger (id BIGINT AUTO_INCREMENT PRIMARY KEY, station_id BIGINT NOT NULL, "
+					+ "ocpp_id VARCHAR(255) NOT NULL UNIQUE)",
+			"CREATE TABLE `user` (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), email VARCHAR(255), "
+					+ "password VARCHAR(255), wallet_balance DECIMAL(38,2))",
+			"CREATE TABLE sessions (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+					+ "charger_id BIGINT NOT NULL, box_id VARCHAR(255), start_time DATETIME(6), "
+					+ "end_time DATETIME(6), energy_kwh DOUBLE NOT NULL, status VARCHAR(255), cost DOUBLE NOT NULL, "
+					+ "created_at DATETIME(6), source_type VARCHAR(255), auto_stop_at DATETIME(6), "
+					+ "INDEX idx_sessions_status_created_at (status, created_at), "
+					+ "INDEX idx_sessions_created_at_id (created_at, id), "
+					+ "INDEX idx_sessions_auto_stop_at (auto_stop_at), "
+					+ "INDEX idx_sessions_charger_status_created_at (charger_id, status, created_at))",
+			"CREATE TABLE revenue (id BIGINT AUTO_INCREMENT PRIMARY KEY, session_id BIGINT NOT NULL, "
+					+ "user_id BIGINT NOT NULL, charger_id BIGINT NOT NULL, station_id BIGINT NOT NULL, "
+					+ "amount DOUBLE NOT NULL, payment_method VARCHAR(255) NOT NULL, "
+					+ "transaction_id VARCHAR(255) NOT NULL UNIQUE, payment_status VARCHAR(255) NOT NULL, "
+					+ "created_at DATETIME(6) NOT NULL, INDEX idx_revenue_created_at (created_at))",
+			"CREATE TABLE wallet_transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+					+ "session_id BIGINT, amount DECIMAL(38,2), type VARCHAR(255), method VARCHAR(255), "
+					+ "status VARCHAR(255), transaction_ref VARCHAR(255), created_at DATETIME(6), "
+					+ "INDEX idx_wallet_transactions_created_at (created_at), "
+					+ "INDEX idx_wallet_transactions_user_id (user_id, id))" };
+
+	private static final String FIND_ALL_SQL = "SELECT s.*, u.*, c.*, st.* FROM sessions s "
+			+ "LEFT JOIN `user` u ON u.id = s.user_id JOIN charger c ON c.id = s.charger_id "
+			+ "JOIN stations st ON st.id = c.station_id";
+
+	private static final String COUNT_BY_STATUS_SQL = "SELECT COUNT(s.id) FROM sessions s WHERE s.status = ?";
+
+	private static final String SUM_ENERGY_SQL = "SELECT COALESCE(SUM(s.energy_kwh), 0) FROM sessions s "
+			+ "WHERE s.status = ?";
+
+	private static final String COUNT_BETWEEN_SQL = "SELECT COUNT(s.id) FROM sessions s WHERE s.status = ? "
+			+ "AND s.created_at >= ? AND s.created_at < ?";
+
+	private static final String RECORD_COLUMNS = "s.id, u.id, u.name, c.id, c.ocpp_id, st.id, st.name, s.box_id, "
+			+ "s.status, s.source_type, s.start_time, s.end_time, s.energy_kwh, s.cost, s.created_at "
+			+ "FROM sessions s LEFT JOIN `user` u ON u.id = s.user_id JOIN charger c ON c.id = s.charger_id "
+			+ "JOIN stations st ON st.id = c.station_id ";
+
+	// Parameters bound per occurrence, as Hibernate does for named parameters
+	private static final String FIND_RECORDS_SQL = "SELECT " + RECORD_COLUMNS
+			+ "WHERE (? IS NULL OR s.status = ?) AND (? IS NULL OR c.id = ?) AND (? IS NULL OR st.id = ?) "
+			+ "AND (? IS NULL OR u.id = ?) AND (? IS NULL OR s.created_at >= ?) AND (? IS NULL OR s.created_at < ?) "
+			+ "AND (? IS NULL OR s.created_at < ? OR (s.created_at = ? AND s.id < ?)) "
+			+ "ORDER BY s.created_at DESC, s.id DESC LIMIT ?";
+
+	private static final String OFFSET_PAGE_SQL = "SELECT " + RECORD_COLUMNS
+			+ "ORDER BY s.created_at DESC, s.id DESC LIMIT ? OFFSET ?";
+
+	private static final String EXPORT_SESSIONS_SQL = "SELECT " + RECORD_COLUMNS
+			+ "WHERE s.created_at >= ? AND s.created_at < ? ORDER BY s.created_at, s.id";
+
+	private static final String EXPORT_REVENUE_SQL = "SELECT r.id, r.session_id, r.user_id, r.charger_id, "
+			+ "r.station_id, r.amount, r.payment_method, r.transaction_id, r.payment_status, r.created_at "
+			+ "FROM revenue r WHERE r.created_at >= ? AND r.created_at < ? ORDER BY r.created_at, r.id";
+
+	private static final String EXPORT_WALLET_SQL = "SELECT t.* FROM wallet_transactions t "
+			+ "WHERE t.created_at >= ? AND t.created_at < ? ORDER BY t.created_at, t.id";
+
+	private static final int PAGE_SIZE = 50;
+	private static final int RUNS = 3;
+
+	private static boolean seeded;
+
+	private final int rows = Integer.getInteger("bench.rows", 1_000_000);
+
+	@Test
+	void dashboardCountersBeforeAndAfter() throws SQLException {
+		try (Connection conn = connect()) {
+			seed(conn);
+			LocalDateTime today = LocalDate.now().atStartOfDay();
+
+			long[] before = new long[4];
+			double beforeMs = time(() -> {
+				Arrays.fill(before, 0);
+				double energy = 0;
+				try (Statement st = conn.createStatement()) {
+					st.setFetchSize(Integer.MIN_VALUE);
+					try (ResultSet rs = st.executeQuery(FIND_ALL_SQL)) {
+						while (rs.next()) {
+							String status = rs.getString("s.status");
+							LocalDateTime createdAt = rs.getTimestamp("s.created_at").toLocalDateTime();
+							if ("completed".equals(status)) {
+								before[0]++;
+								energy += rs.getDouble("s.energy_kwh");
+							} else if ("active".equals(status)) {
+								before[1]++;
+							} else if ("failed".equals(status) && !createdAt.isBefore(today)) {
+								before[2]++;
+							}
+						}
+					}
+				}
+				before[3] = Math.round(energy);
+			});
+
+			long[] after = new long[4];
+			double afterMs = time(() -> {
+				after[0] = queryLong(conn, COUNT_BY_STATUS_SQL, "completed");
+				after[1] = queryLong(conn, COUNT_BY_STATUS_SQL, "active");
+				after[2] = queryLong(conn, COUNT_BETWEEN_SQL, "failed", Timestamp.valueOf(today),
+						Timestamp.valueOf(today.plusDays(1)));
+				try (PreparedStatement ps = conn.prepareStatement(SUM_ENERGY_SQL)) {
+					ps.setString(1, "completed");
+					try (ResultSet rs = ps.executeQuery()) {
+						rs.next();
+						after[3] = Math.round(rs.getDouble(1));
+					}
+				}
+			});
+
+			report("dashboard counters, findAll + Java filter", beforeMs);
+			report("dashboard counters, aggregate queries", afterMs);
+			assertEquals(before[0], after[0], "completed sessions");
+			assertEquals(before[1], after[1], "active sessions");
+			assertEquals(before[2], after[2], "failed today");
+			assertEquals(before[3], after[3], "completed energy (rounded)");
+		}
+	}
+
+	@Test
+	void keysetPagesBeforeAndAfter() throws SQLException {
+		try (Connection conn = connect()) {
+			seed(conn);
+			int offset = rows / 2;
+
+			Object[] cursor = new Object[2];
+			try (PreparedStatement ps = conn.prepareStatement(
+					"SELECT created_at, id FROM sessions ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET ?")) {
+				ps.setInt(1, offset - 1);
+				try (ResultSet rs = ps.executeQuery()) {
+					rs.next();
+					cursor[0] = rs.getTimestamp(1);
+					cursor[1] = rs.getLong(2);
+				}
+			}
+
+			List<Long> offsetIds = new ArrayList<>();
+			double offsetMs = time(() -> {
+				offsetIds.clear();
+				try (PreparedStatement ps = conn.prepareStatement(OFFSET_PAGE_SQL)) {
+					ps.setInt(1, PAGE_SIZE);
+					ps.setInt(2, offset);
+					readIds(ps, offsetIds);
+				}
+			});
+
+			List<Long> keysetIds = new ArrayList<>();
+			double keysetMs = time(() -> {
+				keysetIds.clear();
+				try (PreparedStatement ps = prepare(conn, FIND_RECORDS_SQL,
+						findRecordsParams(null, null, (Timestamp) cursor[0], (Long) cursor[1]))) {
+					readIds(ps, keysetIds);
+				}
+			});
+
+			report("records page at offset " + offset + ", LIMIT/OFFSET", offsetMs);
+			report("records page at offset " + offset + ", keyset (findRecords)", keysetMs);
+			assertEquals(offsetIds, keysetIds, "keyset page must match the offset page");
+		}
+	}
+
+	@Test
+	void queriesUseTheDeclaredIndexes() throws SQLException {
+		try (Connection conn = connect()) {
+			seed(conn);
+			LocalDateTime today = LocalDate.now().atStartOfDay();
+			Timestamp monthStart = Timestamp.valueOf(today.minusDays(30));
+			Timestamp monthEnd = Timestamp.valueOf(today);
+
+			assertIndex(explain(conn, COUNT_BY_STATUS_SQL, "completed"), "s", "idx_sessions_status_created_at");
+			assertIndex(explain(conn, SUM_ENERGY_SQL, "completed"), "s", "idx_sessions_status_created_at");
+			assertIndex(explain(conn, COUNT_BETWEEN_SQL, "failed", Timestamp.valueOf(today),
+					Timestamp.valueOf(today.plusDays(1))), "s", "idx_sessions_status_created_at");
+
+			assertIndex(explain(conn, FIND_RECORDS_SQL, findRecordsParams(null, null, null, null)), "s",
+					"idx_sessions_created_at_id");
+			assertIndex(explain(conn, FIND_RECORDS_SQL, findRecordsParams(null, null, monthEnd, Long.MAX_VALUE)), "s",
+					"idx_sessions_created_at_id");
+			assertIndex(explain(conn, FIND_RECORDS_SQL, findRecordsParams(monthStart, monthEnd, null, null)), "s",
+					"idx_sessions_created_at_id");
+
+			assertIndex(explain(conn, EXPORT_SESSIONS_SQL, monthStart, monthEnd), "s", "idx_sessions_created_at_id");
+			assertIndex(explain(conn, EXPORT_REVENUE_SQL, monthStart, monthEnd), "r", "idx_revenue_created_at");
+			assertIndex(explain(conn, EXPORT_WALLET_SQL, monthStart, monthEnd), "t",
+					"idx_wallet_transactions_created_at");
+		}
+	}
+
+	private Connection connect() throws SQLException {
+		Connection conn = DriverManager.getConnection(System.getProperty("bench.jdbc.url"),
+				System.getProperty("bench.jdbc.user", "root"), System.getProperty("bench.jdbc.password", ""));
+		String catalog = conn.getCatalog();
+		assertTrue(catalog != null && catalog.contains("bench"),
+				"refusing to recreate tables in database '" + catalog + "'; use a scratch *bench* database");
+		return conn;
+	}
+
+	private void seed(Connection conn) throws SQLException {
+		synchronized (SessionQueryBenchmarkTest.class) {
+			if (seeded) {
+				return;
+			}
+			long started = System.nanoTime();
+			try (Statement st = conn.createStatement()) {
+				for (String table : TABLES) {
+					st.execute("DROP TABLE IF EXISTS " + table);
+				}
+				for (String ddl : DDL) {
+					st.execute(ddl);
+				}
+			}
+
+			int stations = 20;
+			int chargers = 200;
+			int users = 5_000;
+			batch(conn, "INSERT INTO stations (name) VALUES (?)", stations, (ps, i) -> ps.setString(1, "Station " + i));
+			batch(conn, "INSERT INTO charger (station_id, ocpp_id) VALUES (?, ?)", chargers, (ps, i) -> {
+				ps.setLong(1, i % stations + 1);
+				ps.setString(2, "CP-" + i);
+			});
+			batch(conn, "INSERT INTO `user` (name, email, password, wallet_balance) VALUES (?, ?, ?, 100)", users,
+					(ps, i) -> {
+						ps.setString(1, "User " + i);
+						ps.setString(2, "user" + i + "@example.com");
+						ps.setString(3, "$2a$10$" + "x".repeat(53));
+					});
+
+			// A year of sessions, oldest first; the last few are still active
+			Random random = new Random(42);
+			LocalDateTime start = LocalDateTime.now().minusDays(365);
+			long stepMs = 365L * 24 * 3600 * 1000 / rows;
+			batch(conn, "INSERT INTO sessions (user_id, charger_id, box_id, start_time, end_time, energy_kwh, "
+					+ "status, cost, created_at, source_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows, (ps, i) -> {
+						LocalDateTime createdAt = start.plusNanos(i * stepMs * 1_000_000);
+						double energy = Math.round(random.nextDouble() * 400) / 10.0;
+						String status = i >= rows - 200 ? "active"
+								: random.nextInt(100) < 5 ? "failed" : random.nextInt(100) < 2 ? "cancelled" : "completed";
+						ps.setLong(1, random.nextInt(users) + 1);
+						ps.setLong(2, random.nextInt(chargers) + 1);
+						ps.setString(3, "BOX-" + random.nextInt(1000));
+						ps.setTimestamp(4, Timestamp.valueOf(createdAt));
+						ps.setTimestamp(5, "active".equals(status) ? null : Timestamp.valueOf(createdAt.plusMinutes(45)));
+						ps.setDouble(6, energy);
+						ps.setString(7, status);
+						ps.setDouble(8, energy * 18);
+						ps.setTimestamp(9, Timestamp.valueOf(createdAt));
+						ps.setString(10, random.nextBoolean() ? "RFID" : "SESSION");
+					});
+			batch(conn, "INSERT INTO revenue (session_id, user_id, charger_id, station_id, amount, payment_method, "
+					+ "transaction_id, payment_status, created_at) VALUES (?, ?, ?, ?, ?, 'Wallet', ?, 'success', ?)",
+					rows / 2, (ps, i) -> {
+						ps.setLong(1, i * 2L + 1);
+						ps.setLong(2, random.nextInt(users) + 1);
+						ps.setLong(3, random.nextInt(chargers) + 1);
+						ps.setLong(4, random.nextInt(stations) + 1);
+						ps.setDouble(5, random.nextInt(80_000) / 100.0);
+						ps.setString(6, "sess-" + i);
+						ps.setTimestamp(7, Timestamp.valueOf(start.plusNanos(i * 2L * stepMs * 1_000_000)));
+					});
+			batch(conn, "INSERT INTO wallet_transactions (user_id, session_id, amount, type, method, status, "
+					+ "transaction_ref, created_at) VALUES (?, ?, ?, ?, 'Wallet', 'success', ?, ?)", rows, (ps, i) -> {
+						ps.setLong(1, random.nextInt(users) + 1);
+						ps.setLong(2, i + 1L);
+						ps.setBigDecimal(3, java.math.BigDecimal.valueOf(random.nextInt(80_000), 2));
+						ps.setString(4, i % 4 == 0 ? "credit" : "debit");
+						ps.setString(5, "tx-" + i);
+						ps.setTimestamp(6, Timestamp.valueOf(start.plusNanos(i * stepMs * 1_000_000)));
+					});
+			try (Statement st = conn.createStatement()) {
+				for (String table : TABLES) {
+					st.execute("ANALYZE TABLE " + table);
+				}
+			}
+			seeded = true;
+			System.out.printf("Seeded %,d sessions in %.1f s%n", rows, (System.nanoTime() - started) / 1e9);
+		}
+	}
+
+	// Unfiltered by status, charger, station and user, as the admin records page loads by default
+	private static Object[] findRecordsParams(Timestamp from, Timestamp to, Timestamp afterCreatedAt, Long afterId) {
+		return new Object[] { null, null, null, null, null, null, null, null, from, from, to, to, afterCreatedAt,
+				afterCreatedAt, afterCreatedAt, afterId, PAGE_SIZE };
+	}
+
+	private static PreparedStatement prepare(Connection conn, String sql, Object... params) throws SQLException {
+		PreparedStatement ps = conn.prepareStatement(sql);
+		for (int i = 0; i < params.length; i++) {
+			ps.setObject(i + 1, params[i]);
+		}
+		return ps;
+	}
+
+	private static List<Map<String, String>> explain(Connection conn, String sql, Object... params)
+			throws SQLException {
+		List<Map<String, String>> plan = new ArrayList<>();
+		try (PreparedStatement ps = prepare(conn, "EXPLAIN " + sql, params); ResultSet rs = ps.executeQuery()) {
+			int columns = rs.getMetaData().getColumnCount();
+			while (rs.next()) {
+				Map<String, String> row = new HashMap<>();
+				for (int i = 1; i <= columns; i++) {
+					row.put(rs.getMetaData().getColumnLabel(i), rs.getString(i));
+				}
+				plan.add(row);
+			}
+		}
+		return plan;
+	}
+
+	private static void assertIndex(List<Map<String, String>> plan, String table, String index) {
+		System.out.println("EXPLAIN:");
+		for (Map<String, String> row : plan) {
+			System.out.printf("  table=%s type=%s key=%s rows=%s extra=%s%n", row.get("table"), row.get("type"),
+					row.get("key"), row.get("rows"), row.get("Extra"));
+		}
+		Map<String, String> row = plan.stream().filter(r -> table.equals(r.get("table"))).findFirst()
+				.orElseThrow(() -> new AssertionError("no plan row for " + table));
+		assertEquals(index, row.get("key"), "index used for " + table);
+		assertFalse(String.valueOf(row.get("Extra")).contains("Using filesort"), "filesort on " + table);
+	}
+
+	private static long queryLong(Connection conn, String sql, Object... params) throws SQLException {
+		try (PreparedStatement ps = prepare(conn, sql, params); ResultSet rs = ps.executeQuery()) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private static void readIds(PreparedStatement ps, List<Long> ids) throws SQLException {
+		try (ResultSet rs = ps.executeQuery()) {
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+			}
+		}
+	}
+
+	private static void batch(Connection conn, String sql, int count, RowBinder binder) throws SQLException {
+		boolean autoCommit = conn.getAutoCommit();
+		conn.setAutoCommit(false);
+		try (PreparedStatement ps = conn.prepareStatement(sql)) {
+			for (int i = 0; i < count; i++) {
+				binder.bind(ps, i);
+				ps.addBatch();
+				if (i % 5_000 == 4_999) {
+					ps.executeBatch();
+					conn.commit();
+				}
+			}
+			ps.executeBatch();
+			conn.commit();
+		} finally {
+			conn.setAutoCommit(autoCommit);
+		}
+	}
+
+	// Median of RUNS timed runs after one warm-up, in milliseconds
+	private static double time(SqlRunnable run) throws SQLException {
+		run.run();
+		double[] ms = new double[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			long started = System.nanoTime();
+			run.run();
+			ms[i] = (System.nanoTime() - started) / 1e6;
+		}
+		Arrays.sort(ms);
+		return ms[RUNS / 2];
+	}
+
+	private static void report(String label, double ms) {
+		System.out.printf("%-60s %10.1f ms%n", label, ms);
+	}
+
+	@FunctionalInterface
+	private interface RowBinder {
+		void bind(PreparedStatement ps, int i) throws SQLException;
+	}
+
+	@FunctionalInterface
+	private interface SqlRunnable {
+		void run() throws SQLException;
+	}
+}
@@ -0,0 +1,124 @@
+package com.bentork.ev_system.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.bentork.ev_system.dto.request.MeterSampleDTO;
+
+class MeterSampleCodecTest {
+
+	@Test
+	void roundTripsAllMeasurands() {
+		List<MeterSampleDTO> samples = new ArrayList<>();
+		long ts = 1_700_000_000_000L;
+		for (int i = 0; i < 120; i++) {
+			ts += 30_000 + (i % 3) * 7;
+			// Values on the stored scale (centiamps, decivolts) decode exactly
+			samples.add(sample(ts, 12_000L + i * 95, 7_200.0 - i * 3, (3_125 - i) / 100.0, (2_299 + i % 5) / 10.0,
+					20 + i / 4));
+		}
+
+		List<MeterSampleDTO> decoded = MeterSampleCodec.decode(MeterSampleCodec.encode(samples));
+
+		assertSame(samples, decoded);
+	}
+
+	@Test
+	void roundTripsSamplesWithoutSomeMeasurands() {
+		List<MeterSampleDTO> samples = List.of(
+				sample(1_000L, 500L, null, null, null, null),
+				sample(2_000L, null, 3_500.0, 15.5, null, null),
+				sample(3_000L, 520L, null, null, 230.0, 45),
+				sample(4_000L, null, null, null, null, null),
+				sample(5_000L, 541L, 3_450.0, null, 229.5, 46));
+
+		List<MeterSampleDTO> decoded = MeterSampleCodec.decode(MeterSampleCodec.encode(samples));
+
+		assertSame(samples, decoded);
+		assertNull(decoded.get(3).getEnergyWh());
+		assertNull(decoded.get(0).getPowerW());
+	}
+
+	@Test
+	void roundTripsNegativeAndLargeDeltas() {
+		// Zigzag must keep sign and magnitude of deltas in both directions
+		List<MeterSampleDTO> samples = List.of(
+				sample(4_102_444_800_000L, Long.MAX_VALUE / 4, -2_000.0, -40.0, 0.0, 100),
+				sample(4_102_444_799_000L, 0L, 2_000_000.0, 40.0, 1_000.0, 0),
+				sample(0L, -123_456_789L, 0.0, -0.01, -0.1, 1));
+
+		assertSame(samples, MeterSampleCodec.decode(MeterSampleCodec.encode(samples)));
+	}
+
+	@Test
+	void roundsToStoredScale() {
+		List<MeterSampleDTO> decoded = MeterSampleCodec.decode(MeterSampleCodec.encode(List.of(
+				sample(1_000L, null, 1_234.6, 16.237, 231.04, null))));
+
+		assertEquals(1_235.0, decoded.get(0).getPowerW());
+		assertEquals(16.24, decoded.get(0).getCurrentA());
+		assertEquals(231.0, decoded.get(0).getVoltageV());
+	}
+
+	@Test
+	void encodesSteadySamplesCompactly() {
+		List<MeterSampleDTO> samples = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			samples.add(sample(1_700_000_000_000L + i * 30_000L, 10_000L + i * 60, 7_200.0, null, null, null));
+		}
+
+		byte[] data = MeterSampleCodec.encode(samples);
+
+		assertTrue(data.length <= 120 * 10, "encoded size " + data.length);
+	}
+
+	@Test
+	void roundTripsEmptyBlock() {
+		assertEquals(0, MeterSampleCodec.decode(MeterSampleCodec.encode(List.of())).size());
+	}
+
+	@Test
+	void rejectsUnknownVersionAndTruncatedData() {
+		byte[] data = MeterSampleCodec.encode(List.of(sample(1_000L, 500L, 7_000.0, null, null, null)));
+
+		byte[] wrongVersion = data.clone();
+		wrongVersion[0] = 2;
+		assertThrows(IllegalArgumentException.class, () -> MeterSampleCodec.decode(wrongVersion));
+
+		byte[] truncated = java.util.Arrays.copyOf(data, data.length - 1);
+		assertThrows(IllegalArgumentException.class, () -> MeterSampleCodec.decode(truncated));
+	}
+
+	private static MeterSampleDTO sample(long ts, Long energyWh, Double powerW, Double currentA, Double voltageV,
+			Integer soc) {
+		MeterSampleDTO sample = new MeterSampleDTO(Instant.ofEpochMilli(ts));
+		sample.setEnergyWh(energyWh);
+		sample.setPowerW(powerW);
+		sample.setCurrentA(currentA);
+		sample.setVoltageV(voltageV);
+		sample.setSoc(soc);
+		return sample;
+	}
+
+	private static void assertSame(List<MeterSampleDTO> expected, List<MeterSampleDTO> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			MeterSampleDTO e = expected.get(i);
+			MeterSampleDTO a = actual.get(i);
+			assertEquals(e.getTimestamp(), a.getTimestamp(), "timestamp of sample " + i);
+			assertEquals(e.getEnergyWh(), a.getEnergyWh(), "energy of sample " + i);
+			assertEquals(e.getPowerW(), a.getPowerW(), "power of sample " + i);
+			assertEquals(e.getCurrentA(), a.getCurrentA(), "current of sample " + i);
+			assertEquals(e.getVoltageV(), a.getVoltageV(), "voltage of sample " + i);
+			assertEquals(e.getSoc(), a.getSoc(), "soc of sample " + i);
+		}
+	}
+}
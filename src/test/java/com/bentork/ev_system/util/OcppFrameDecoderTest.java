@@ -0,0 +1,152 @@
+package com.bentork.ev_system.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.bentork.ev_system.dto.request.MeterSampleDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+
+class OcppFrameDecoderTest {
+
+	private final OcppFrameDecoder decoder = new OcppFrameDecoder(new JsonFactory());
+
+	@Test
+	void readsEnergyRegisterInDefaultWhUnit() throws IOException {
+		OcppFrameDecoder.MeterValues mv = meterValues("""
+				[{"timestamp":"2024-05-01T10:00:00Z","sampledValue":[
+				  {"value":"12345.67","measurand":"Energy.Active.Import.Register"}]}]""");
+
+		assertEquals(7, mv.connectorId());
+		assertEquals(42, mv.transactionId());
+		// Wh rounded to 0.1 Wh, then kWh
+		assertEquals(12.3457, mv.energyKwh());
+		assertEquals(1, mv.samples().size());
+		assertEquals(12346L, mv.samples().get(0).getEnergyWh());
+		assertEquals(Instant.parse("2024-05-01T10:00:00Z"), mv.samples().get(0).getTimestamp());
+	}
+
+	@Test
+	void convertsKwhAndKwUnits() throws IOException {
+		OcppFrameDecoder.MeterValues mv = meterValues("""
+				[{"timestamp":"2024-05-01T10:00:00+05:30","sampledValue":[
+				  {"value":"12.5","measurand":"Energy.Active.Import.Register","unit":"kWh"},
+				  {"value":"7.2","measurand":"Power.Active.Import","unit":"kW"},
+				  {"value":"31.4","measurand":"Current.Import","unit":"A","phase":"L1"},
+				  {"value":"30.9","measurand":"Current.Import","unit":"A","phase":"L2"},
+				  {"value":"229.8","measurand":"Voltage","unit":"V"},
+				  {"value":"54.6","measurand":"SoC","unit":"Percent"}]}]""");
+
+		assertEquals(12.5, mv.energyKwh());
+		MeterSampleDTO sample = mv.samples().get(0);
+		assertEquals(12500L, sample.getEnergyWh());
+		assertEquals(7200.0, sample.getPowerW());
+		// Per-phase values: the first one is kept
+		assertEquals(31.4, sample.getCurrentA());
+		assertEquals(229.8, sample.getVoltageV());
+		assertEquals(55, sample.getSoc());
+		assertEquals(Instant.parse("2024-05-01T04:30:00Z"), sample.getTimestamp());
+	}
+
+	@Test
+	void sampledValueWithoutMeasurandGoesToCurveButNotBilling() throws IOException {
+		OcppFrameDecoder.MeterValues mv = meterValues("""
+				[{"timestamp":"2024-05-01T10:00:00Z","sampledValue":[{"value":"2500"}]},
+				 {"timestamp":"2024-05-01T10:00:30Z","sampledValue":[{"value":"2.6","unit":"kWh"}]}]""");
+
+		assertNull(mv.energyKwh());
+		assertEquals(2, mv.samples().size());
+		assertEquals(2500L, mv.samples().get(0).getEnergyWh());
+		assertEquals(2600L, mv.samples().get(1).getEnergyWh());
+	}
+
+	@Test
+	void billingUsesFirstExplicitEnergyRegister() throws IOException {
+		OcppFrameDecoder.MeterValues mv = meterValues("""
+				[{"timestamp":"2024-05-01T10:00:00Z","sampledValue":[
+				  {"value":"999"},
+				  {"value":"1000","measurand":"Energy.Active.Import.Register"}]},
+				 {"timestamp":"2024-05-01T10:00:30Z","sampledValue":[
+				  {"value":"1100","measurand":"Energy.Active.Import.Register"}]}]""");
+
+		assertEquals(1.0, mv.energyKwh());
+	}
+
+	@Test
+	void skipsUnusableSamples() throws IOException {
+		OcppFrameDecoder.MeterValues mv = meterValues("""
+				[{"sampledValue":[{"value":"100","measurand":"Energy.Active.Import.Register"}]},
+				 {"timestamp":"not a time","sampledValue":[{"value":"200"}]},
+				 {"timestamp":"2024-05-01T10:00:00Z","sampledValue":[
+				  {"value":"n/a","measurand":"Voltage"},
+				  {"measurand":"Power.Active.Import"},
+				  {"value":"1.5","measurand":"Temperature","context":{"nested":[1,2]}}]}]""");
+
+		// Energy without a timestamp still bills; only timestamped samples form the curve
+		assertEquals(0.1, mv.energyKwh());
+		assertEquals(1, mv.samples().size());
+		MeterSampleDTO sample = mv.samples().get(0);
+		assertNull(sample.getEnergyWh());
+		assertNull(sample.getVoltageV());
+		assertNull(sample.getPowerW());
+	}
+
+	@Test
+	void decodesCallErrorAndCallResultFraming() throws IOException {
+		OcppFrameDecoder.Frame error = decoder.decode(
+				"[4,\"err-1\",\"GenericError\",\"Something \\\"bad\\\"\",{\"detail\":[1,{\"x\":2}]}]");
+		assertEquals(4, error.messageType());
+		assertEquals("err-1", error.messageId());
+		assertNull(error.action());
+		assertNull(error.payload());
+
+		OcppFrameDecoder.Frame result = decoder.decode("[3,\"res-1\",{\"status\":\"Accepted\"}]");
+		assertEquals(3, result.messageType());
+		assertEquals("res-1", result.messageId());
+		assertNull(result.payload());
+	}
+
+	@Test
+	void decodesCallPayloads() throws IOException {
+		OcppFrameDecoder.Frame start = decoder.decode("[2,\"m1\",\"StartTransaction\",{\"connectorId\":1,"
+				+ "\"idTag\":\"CARD1\",\"meterStart\":1500,\"timestamp\":\"2024-05-01T10:00:00Z\",\"extra\":{}}]");
+		assertEquals("StartTransaction", start.action());
+		assertEquals(new OcppFrameDecoder.StartTransaction(1, "CARD1", 1500.0, "2024-05-01T10:00:00Z"),
+				start.payload());
+
+		OcppFrameDecoder.Frame stop = decoder.decode("[2,\"m2\",\"StopTransaction\",{\"transactionId\":9,"
+				+ "\"meterStop\":2500,\"transactionData\":[{\"sampledValue\":[{\"value\":\"1\"}]}],"
+				+ "\"reason\":\"Local\"}]");
+		assertEquals(new OcppFrameDecoder.StopTransaction(9, null, 2500.0, null, "Local"), stop.payload());
+
+		OcppFrameDecoder.Frame heartbeat = decoder.decode("[2,\"m3\",\"Heartbeat\"]");
+		assertEquals(new OcppFrameDecoder.Heartbeat(), heartbeat.payload());
+
+		OcppFrameDecoder.Frame unknown = decoder.decode("[2,\"m4\",\"DataTransfer\",{\"data\":[1,2]}]");
+		assertEquals("DataTransfer", unknown.action());
+		assertNull(unknown.payload());
+	}
+
+	@Test
+	void rejectsFramesThatAreNotOcppArrays() throws IOException {
+		assertNull(decoder.decode("{\"a\":1}"));
+		assertNull(decoder.decode("[\"2\",\"m1\",\"Heartbeat\",{}]"));
+		assertNull(decoder.decode("[2]"));
+		assertNull(decoder.decode("[2,\"m1\"]"));
+		assertThrows(IOException.class, () -> decoder.decode("[2,\"m1\",\"Heartbeat\",{"));
+	}
+
+	private OcppFrameDecoder.MeterValues meterValues(String meterValueArray) throws IOException {
+		OcppFrameDecoder.Frame frame = decoder.decode("[2,\"mv-1\",\"MeterValues\",{\"connectorId\":7,"
+				+ "\"transactionId\":42,\"meterValue\":" + meterValueArray + "}]");
+		assertEquals("MeterValues", frame.action());
+		assertTrue(frame.payload() instanceof OcppFrameDecoder.MeterValues);
+		return (OcppFrameDecoder.MeterValues) frame.payload();
+	}
+}
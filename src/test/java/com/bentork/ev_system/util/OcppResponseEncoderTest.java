@@ -0,0 +1,66 @@
+package com.bentork.ev_system.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class OcppResponseEncoderTest {
+
+	private final OcppResponseEncoder encoder = new OcppResponseEncoder();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void encodesCallErrorFrame() throws Exception {
+		String frame = encoder.callError("m-1", "InternalError", "Charger not found");
+
+		assertEquals("[4,\"m-1\",\"InternalError\",\"Charger not found\",{}]", frame);
+	}
+
+	@Test
+	void escapesCallErrorTextAndMessageId() throws Exception {
+		String description = "Bad \"idTag\" \\ at\nline\t2 \u0001";
+		JsonNode frame = objectMapper.readTree(encoder.callError("id\"1", "GenericError", description));
+
+		assertEquals(5, frame.size());
+		assertEquals(4, frame.get(0).intValue());
+		assertEquals("id\"1", frame.get(1).textValue());
+		assertEquals("GenericError", frame.get(2).textValue());
+		assertEquals(description, frame.get(3).textValue());
+		assertTrue(frame.get(4).isObject() && frame.get(4).isEmpty());
+	}
+
+	@Test
+	void encodesNullErrorDescriptionAsJsonNull() throws Exception {
+		JsonNode frame = objectMapper.readTree(encoder.callError("m-2", "GenericError", null));
+
+		assertTrue(frame.get(3).isNull());
+	}
+
+	@Test
+	void encodesCallResults() throws Exception {
+		assertEquals("[3,\"m-1\",{}]", encoder.emptyResult("m-1"));
+		assertEquals("[3,\"m-2\",{\"idTagInfo\":{\"status\":\"Accepted\"}}]",
+				encoder.idTagInfoResult("m-2", "Accepted"));
+		assertEquals("[3,\"m-3\",{\"transactionId\":17,\"idTagInfo\":{\"status\":\"Invalid\"}}]",
+				encoder.startTransactionResult("m-3", 17, "Invalid"));
+	}
+
+	@Test
+	void encodesCurrentTime() throws Exception {
+		JsonNode heartbeat = objectMapper.readTree(encoder.heartbeatResult("m-1"));
+		Instant time = Instant.parse(heartbeat.get(2).get("currentTime").textValue());
+		assertTrue(Math.abs(time.getEpochSecond() - Instant.now().getEpochSecond()) <= 2);
+
+		JsonNode boot = objectMapper.readTree(encoder.bootNotificationResult("m-2", "Accepted", 300));
+		assertEquals(3, boot.get(0).intValue());
+		assertEquals("Accepted", boot.get(2).get("status").textValue());
+		assertEquals(300, boot.get(2).get("interval").intValue());
+		Instant.parse(boot.get(2).get("currentTime").textValue());
+	}
+}